@@ -456,6 +456,20 @@ public abstract class Cell implements NavComposite<Cell>, HasVisibility, HasFocu
     }
   }
 
+  /**
+   * Sets every property which has a value to its default, e.g. to give a detached cell to other content.
+   */
+  protected void resetProperties() {
+    if (myProperties == null) return;
+    for (CellPropertySpec<?> prop : new ArrayList<>(myProperties.keySet())) {
+      resetProperty(prop);
+    }
+  }
+
+  private <ValueT> void resetProperty(CellPropertySpec<ValueT> prop) {
+    set(prop, getDefaultValue(prop));
+  }
+
   private <ValueT> ValueT getDefaultValue(CellPropertySpec<ValueT> prop) {
     for (CellTrait t : myCellTraits) {
       Object result = t.get(this, prop);
@@ -376,6 +376,10 @@ public class CellContainer {
     myCellContainerPeer = CellContainerPeer.NULL;
   }
 
+  public boolean hasCellContainerPeer() {
+    return !(myCellContainerPeer instanceof NullCellContainerPeer);
+  }
+
   public ReadableProperty<Boolean> focused() {
     return getCellContainerPeer().focused();
   }
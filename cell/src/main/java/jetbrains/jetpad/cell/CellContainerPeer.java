@@ -16,58 +16,12 @@
 package jetbrains.jetpad.cell;
 
 import jetbrains.jetpad.base.edt.EventDispatchThread;
-import jetbrains.jetpad.base.edt.NullEventDispatchThread;
-import jetbrains.jetpad.cell.util.Cells;
 import jetbrains.jetpad.geometry.Rectangle;
 import jetbrains.jetpad.geometry.Vector;
-import jetbrains.jetpad.model.property.Properties;
 import jetbrains.jetpad.model.property.ReadableProperty;
 
 public interface CellContainerPeer {
-  public static final CellContainerPeer NULL = new CellContainerPeer() {
-    @Override
-    public int getCaretAt(TextCell tv, int x) {
-      throw new UnsupportedOperationException();
-    }
-
-    @Override
-    public int getCaretOffset(TextCell tv, int caret) {
-      throw new UnsupportedOperationException();
-    }
-
-    @Override
-    public Rectangle getBounds(Cell cell) {
-      throw new UnsupportedOperationException();
-    }
-
-    @Override
-    public void scrollTo(Rectangle rect, Cell cell) {
-    }
-
-    @Override
-    public Cell findCell(Cell root, Vector loc) {
-      return Cells.findCell(root, loc);
-    }
-
-    @Override
-    public Rectangle visibleRect() {
-      return new Rectangle(0, 0, 10000, 10000);
-    }
-
-    @Override
-    public void requestFocus() {
-    }
-
-    @Override
-    public ReadableProperty<Boolean> focused() {
-      return Properties.TRUE;
-    }
-
-    @Override
-    public EventDispatchThread getEdt() {
-      return new NullEventDispatchThread();
-    }
-  };
+  public static final CellContainerPeer NULL = new NullCellContainerPeer();
 
 
   int getCaretAt(TextCell tv, int x);
@@ -20,7 +20,17 @@ import jetbrains.jetpad.model.property.Property;
 public class VerticalCell extends Cell {
   public static final CellPropertySpec<Boolean> INDENTED = new CellPropertySpec<>("indented", false);
 
+  /**
+   * When mapped to views, map only children which are in or near the visible area. Should be set before the cell is attached,
+   * changing it later doesn't affect existing mappings.
+   */
+  public static final CellPropertySpec<Boolean> VIRTUALIZED = new CellPropertySpec<>("virtualized", false);
+
   public Property<Boolean> indented() {
     return getProp(INDENTED);
   }
+
+  public Property<Boolean> virtualized() {
+    return getProp(VIRTUALIZED);
+  }
 }
\ No newline at end of file
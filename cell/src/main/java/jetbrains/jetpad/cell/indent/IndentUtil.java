@@ -23,10 +23,15 @@ import jetbrains.jetpad.model.composite.Composites;
 public final class IndentUtil {
 
   public static void iterateLeaves(Cell cell, Handler<Cell> handler) {
+    if (!Composites.isVisible(cell)) return;
+    iterateVisibleLeaves(cell, handler);
+  }
+
+  private static void iterateVisibleLeaves(Cell cell, Handler<Cell> handler) {
     for (Cell child : cell.children()) {
-      if (!Composites.isVisible(child)) continue;
+      if (!child.visible().get()) continue;
       if (child instanceof IndentCell) {
-        iterateLeaves(child, handler);
+        iterateVisibleLeaves(child, handler);
       } else {
         handler.handle(child);
       }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.cell.mappersUtil;
+
+import jetbrains.jetpad.cell.Cell;
+import jetbrains.jetpad.values.Color;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Counters and background which leaves of an indent root inherit from their ancestors up to the root.
+ * The state is cached per ancestor, so a leaf reads it from its parent instead of walking to the root.
+ * A cached ancestor and all of its descendants must be invalidated when its properties or position change.
+ */
+public class AncestorStateCache {
+  private final Cell myRoot;
+  private final Map<Cell, State> myStates = new IdentityHashMap<>();
+
+  public AncestorStateCache(Cell root) {
+    myRoot = root;
+  }
+
+  public void onAdd(Cell leaf, HasCounters target) {
+    update(target, state(leaf.getParent()), 1);
+  }
+
+  public void onRemove(Cell leaf, HasCounters target) {
+    update(target, state(leaf.getParent()), -1);
+  }
+
+  public Color getAncestorBackground(Cell leaf) {
+    return state(leaf.getParent()).background;
+  }
+
+  public void invalidate(Cell cell) {
+    if (myStates.remove(cell) == null) return;
+    for (Cell child : cell.children()) {
+      invalidate(child);
+    }
+  }
+
+  public void clear() {
+    myStates.clear();
+  }
+
+  private State state(Cell cell) {
+    State result = myStates.get(cell);
+    if (result == null) {
+      result = new State(cell == myRoot ? null : state(cell.getParent()), cell);
+      myStates.put(cell, result);
+    }
+    return result;
+  }
+
+  private void update(HasCounters target, State state, int sign) {
+    if (state.highlightCount != 0) {
+      target.changeCounter(Counters.HIGHLIGHT_COUNT, sign * state.highlightCount);
+    }
+    if (state.selectCount != 0) {
+      target.changeCounter(Counters.SELECT_COUNT, sign * state.selectCount);
+    }
+  }
+
+  private static class State {
+    final int highlightCount;
+    final int selectCount;
+    final Color background;
+
+    State(State parent, Cell cell) {
+      int highlightCount = cell.get(Cell.FOCUS_HIGHLIGHTED) ? 1 : 0;
+      int selectCount = cell.get(Cell.SELECTED) ? 1 : 0;
+      Color background = cell.get(Cell.BACKGROUND);
+      if (parent != null) {
+        highlightCount += parent.highlightCount;
+        selectCount += parent.selectCount;
+        if (background == null) {
+          background = parent.background;
+        }
+      }
+      this.highlightCount = highlightCount;
+      this.selectCount = selectCount;
+      this.background = background;
+    }
+  }
+}
@@ -29,38 +29,36 @@ public class CounterUtil {
     return PROPS.indexOf(prop) != -1;
   }
 
-  public static void updateOnAdd(Cell root, Cell cell, HasCounters target) {
-    update(true, root, cell, target);
+  public static boolean update(HasCounters target, CellPropertySpec<?> prop, PropertyChangeEvent<?> event) {
+    CounterSpec spec = counterSpec(prop);
+    if (spec != null) {
+      target.changeCounter(spec, delta(event));
+      return true;
+    }
+    return false;
   }
 
-  public static void updateOnRemove(Cell root, Cell cell, HasCounters target) {
-    update(false, root, cell, target);
+  /**
+   * @return whether the counter switched between zero and non-zero, i.e. whether the target has to be refreshed
+   */
+  public static boolean updateAndCheckSwitched(HasCounters target, CellPropertySpec<?> prop, PropertyChangeEvent<?> event) {
+    CounterSpec spec = counterSpec(prop);
+    if (spec == null) return false;
+    boolean wasSet = target.getCounter(spec) > 0;
+    target.changeCounter(spec, delta(event));
+    return wasSet != target.getCounter(spec) > 0;
   }
 
-  private static void update(boolean add, Cell root, Cell cell, HasCounters target) {
-    Cell current = cell;
-    do {
-      current = current.getParent();
-      for (CellPropertySpec<Boolean> cp : PROPS) {
-        if (current.get(cp)) {
-          update(target, cp, new PropertyChangeEvent<>(!add, add));
-        }
-      }
-    } while (current != root);
+  private static int delta(PropertyChangeEvent<?> event) {
+    return (Boolean) event.getNewValue() ? 1 : -1;
   }
 
-  public static boolean update(HasCounters target, CellPropertySpec<?> prop, PropertyChangeEvent<?> event) {
-    int delta = (Boolean) event.getNewValue() ? 1 : -1;
-    CounterSpec spec = null;
+  private static CounterSpec counterSpec(CellPropertySpec<?> prop) {
     if (prop == Cell.FOCUS_HIGHLIGHTED) {
-      spec = Counters.HIGHLIGHT_COUNT;
+      return Counters.HIGHLIGHT_COUNT;
     } else if (prop == Cell.SELECTED) {
-      spec = Counters.SELECT_COUNT;
+      return Counters.SELECT_COUNT;
     }
-    if (spec != null) {
-      target.changeCounter(spec, delta);
-      return true;
-    }
-    return false;
+    return null;
   }
-}
\ No newline at end of file
+}
@@ -16,6 +16,7 @@
 package jetbrains.jetpad.cell.message;
 
 import com.google.common.base.Predicate;
+import jetbrains.jetpad.base.CompositeRegistration;
 import jetbrains.jetpad.base.Handler;
 import jetbrains.jetpad.base.Registration;
 import jetbrains.jetpad.cell.Cell;
@@ -38,8 +39,10 @@ public final class MessageController {
   }
 
   public static Registration install(CellContainer container, MessageStyler styler) {
-    final MessageTrait trait = new MessageTrait(container, new StyleApplicator(styler));
-    return TraitPropagator.install(container, trait, HAS_MESSAGE_CONTROLLER,
+    MessageIndex index = new MessageIndex(container);
+    Registration indexReg = index.install();
+    final MessageTrait trait = new MessageTrait(container, new StyleApplicator(styler), index);
+    Registration traitReg = TraitPropagator.install(container, trait, HAS_MESSAGE_CONTROLLER,
         new Predicate<Cell>() {
           @Override
           public boolean apply(Cell cell) {
@@ -52,6 +55,7 @@ public final class MessageController {
             trait.detach(cell);
           }
         });
+    return new CompositeRegistration(traitReg, indexReg);
   }
 
   public static void setBroken(Cell cell, String message) {
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.cell.message;
+
+import jetbrains.jetpad.base.Registration;
+import jetbrains.jetpad.cell.Cell;
+import jetbrains.jetpad.cell.CellContainer;
+import jetbrains.jetpad.cell.CellContainerAdapter;
+import jetbrains.jetpad.cell.CellPropertySpec;
+import jetbrains.jetpad.cell.util.ImplicitTreap;
+import jetbrains.jetpad.model.collections.CollectionItemEvent;
+import jetbrains.jetpad.model.property.PropertyChangeEvent;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Numbers of messages of each kind in subtrees of a container's cells, updated incrementally on message and
+ * structure changes.
+ *
+ * Every cell under the root has an entry, and the entries of a cell's children are kept in an {@link ImplicitTreap}
+ * which knows the kinds of messages in the subtrees of each range of children. Next/previous message search goes up
+ * from the cell and, on every level, finds the closest sibling subtree with messages of the requested kinds through
+ * the treap, then goes down into it the same way, so it costs O(log n) per level of the tree. A message change
+ * updates the counts of the cell's ancestors and, if the kinds of messages in a subtree change, the treaps on the way.
+ * Cells in popups aren't indexed.
+ *
+ * {@link MessageController#install(CellContainer)} installs an index which is used for navigation between messages
+ * with {@link jetbrains.jetpad.event.KeyStrokeSpecs#NEXT_MESSAGE} and {@link jetbrains.jetpad.event.KeyStrokeSpecs#PREV_MESSAGE}.
+ */
+public final class MessageIndex {
+  public static final List<CellPropertySpec<String>> SEVERITY_ORDER =
+      Arrays.asList(MessageController.BROKEN, MessageController.ERROR, MessageController.WARNING, MessageController.INFO);
+
+  private final CellContainer myContainer;
+  private final Map<Cell, Entry> myEntries = new IdentityHashMap<>();
+
+  public MessageIndex(CellContainer container) {
+    myContainer = container;
+  }
+
+  public Registration install() {
+    collect(myContainer.root);
+    final Registration listenerReg = myContainer.addListener(new CellContainerAdapter() {
+      @Override
+      public void onCellPropertyChanged(Cell cell, CellPropertySpec<?> prop, PropertyChangeEvent<?> change) {
+        int kind = SEVERITY_ORDER.indexOf(prop);
+        if (kind == -1) return;
+        Entry entry = myEntries.get(cell);
+        if (entry == null) return;
+        int delta = (change.getNewValue() != null ? 1 : 0) - (change.getOldValue() != null ? 1 : 0);
+        if (delta != 0) {
+          int[] counts = new int[SEVERITY_ORDER.size()];
+          counts[kind] = delta;
+          add(entry, counts);
+        }
+      }
+
+      @Override
+      public void onChildAdded(Cell parent, CollectionItemEvent<? extends Cell> change) {
+        Entry entry = myEntries.get(parent);
+        if (entry == null) return;
+        Entry child = collect(change.getNewItem());
+        child.owner = entry;
+        entry.children().insert(change.getIndex(), child);
+        if (child.counts != null) {
+          add(entry, child.counts);
+        }
+      }
+
+      @Override
+      public void onChildRemoved(Cell parent, CollectionItemEvent<? extends Cell> change) {
+        Entry entry = myEntries.get(parent);
+        if (entry == null) return;
+        Entry child = entry.children().remove(change.getIndex());
+        purge(child);
+        if (child.counts == null) return;
+        int[] negated = new int[child.counts.length];
+        for (int i = 0; i < negated.length; i++) {
+          negated[i] = -child.counts[i];
+        }
+        add(entry, negated);
+      }
+    });
+    return new Registration() {
+      @Override
+      protected void doRemove() {
+        listenerReg.remove();
+        myEntries.clear();
+      }
+    };
+  }
+
+  public int count(Cell cell, CellPropertySpec<String> kind) {
+    int[] counts = counts(cell);
+    return counts == null ? 0 : counts[index(kind)];
+  }
+
+  public boolean hasMessages(Cell cell) {
+    return counts(cell) != null;
+  }
+
+  /**
+   * @return the most severe kind of messages in the cell's subtree in {@link #SEVERITY_ORDER}, or null if there are none
+   */
+  public CellPropertySpec<String> mostSevere(Cell cell) {
+    int[] counts = counts(cell);
+    if (counts == null) return null;
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] > 0) return SEVERITY_ORDER.get(i);
+    }
+    return null;
+  }
+
+  /**
+   * @return the first cell with a message of the kind after the given cell, parents going before their children
+   */
+  public Cell next(Cell cell, CellPropertySpec<String> kind) {
+    return next(cell, Collections.singletonList(kind));
+  }
+
+  /**
+   * @return the first cell with a message of any of the kinds after the given cell, parents going before their children
+   */
+  public Cell next(Cell cell, Collection<CellPropertySpec<String>> kinds) {
+    Entry entry = myEntries.get(cell);
+    if (entry == null) return null;
+    int mask = mask(kinds);
+    if (entry.children != null) {
+      Entry found = firstNode(entry.children.root(), mask);
+      if (found != null) return first(found, mask);
+    }
+    for (Entry current = entry; current.owner != null; current = current.owner) {
+      Entry found = nextNode(current, mask);
+      if (found != null) return first(found, mask);
+    }
+    return null;
+  }
+
+  /**
+   * @return the last cell with a message of the kind before the given cell, parents going before their children
+   */
+  public Cell prev(Cell cell, CellPropertySpec<String> kind) {
+    return prev(cell, Collections.singletonList(kind));
+  }
+
+  /**
+   * @return the last cell with a message of any of the kinds before the given cell, parents going before their children
+   */
+  public Cell prev(Cell cell, Collection<CellPropertySpec<String>> kinds) {
+    Entry entry = myEntries.get(cell);
+    if (entry == null) return null;
+    int mask = mask(kinds);
+    for (Entry current = entry; current.owner != null; current = current.owner) {
+      Entry found = prevNode(current, mask);
+      if (found != null) return last(found, mask);
+      if (hasOwn(current.owner.cell, mask)) return current.owner.cell;
+    }
+    return null;
+  }
+
+  private int[] counts(Cell cell) {
+    Entry entry = myEntries.get(cell);
+    return entry == null ? null : entry.counts;
+  }
+
+  private Cell first(Entry entry, int mask) {
+    if (hasOwn(entry.cell, mask)) return entry.cell;
+    return first(firstNode(entry.children.root(), mask), mask);
+  }
+
+  private Cell last(Entry entry, int mask) {
+    Entry found = entry.children == null ? null : lastNode(entry.children.root(), mask);
+    if (found != null) return last(found, mask);
+    return entry.cell;
+  }
+
+  /**
+   * @return the first child entry in the treap node's subtree with messages of the kinds
+   */
+  private Entry firstNode(Entry node, int mask) {
+    Entry current = node;
+    while (current != null && (current.subtreeKinds & mask) != 0) {
+      if (current.left() != null && (current.left().subtreeKinds & mask) != 0) {
+        current = current.left();
+      } else if ((current.kinds & mask) != 0) {
+        return current;
+      } else {
+        current = current.right();
+      }
+    }
+    return null;
+  }
+
+  private Entry lastNode(Entry node, int mask) {
+    Entry current = node;
+    while (current != null && (current.subtreeKinds & mask) != 0) {
+      if (current.right() != null && (current.right().subtreeKinds & mask) != 0) {
+        current = current.right();
+      } else if ((current.kinds & mask) != 0) {
+        return current;
+      } else {
+        current = current.left();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the first sibling entry after the entry with messages of the kinds
+   */
+  private Entry nextNode(Entry entry, int mask) {
+    Entry result = firstNode(entry.right(), mask);
+    if (result != null) return result;
+    for (Entry node = entry; node.parent() != null; node = node.parent()) {
+      Entry parent = node.parent();
+      if (node != parent.left()) continue;
+      if ((parent.kinds & mask) != 0) return parent;
+      result = firstNode(parent.right(), mask);
+      if (result != null) return result;
+    }
+    return null;
+  }
+
+  private Entry prevNode(Entry entry, int mask) {
+    Entry result = lastNode(entry.left(), mask);
+    if (result != null) return result;
+    for (Entry node = entry; node.parent() != null; node = node.parent()) {
+      Entry parent = node.parent();
+      if (node != parent.right()) continue;
+      if ((parent.kinds & mask) != 0) return parent;
+      result = lastNode(parent.left(), mask);
+      if (result != null) return result;
+    }
+    return null;
+  }
+
+  private boolean hasOwn(Cell cell, int mask) {
+    for (int i = 0; i < SEVERITY_ORDER.size(); i++) {
+      if ((mask & (1 << i)) != 0 && cell.get(SEVERITY_ORDER.get(i)) != null) return true;
+    }
+    return false;
+  }
+
+  private int mask(Collection<CellPropertySpec<String>> kinds) {
+    int result = 0;
+    for (CellPropertySpec<String> kind : kinds) {
+      result |= 1 << index(kind);
+    }
+    return result;
+  }
+
+  private Entry collect(Cell cell) {
+    Entry result = new Entry(cell);
+    myEntries.put(cell, result);
+    int[] counts = null;
+    for (int i = 0; i < SEVERITY_ORDER.size(); i++) {
+      if (cell.get(SEVERITY_ORDER.get(i)) != null) {
+        if (counts == null) {
+          counts = new int[SEVERITY_ORDER.size()];
+        }
+        counts[i]++;
+      }
+    }
+    List<Cell> children = cell.children();
+    for (int i = 0; i < children.size(); i++) {
+      Entry child = collect(children.get(i));
+      child.owner = result;
+      result.children().insert(i, child);
+      if (child.counts == null) continue;
+      if (counts == null) {
+        counts = new int[SEVERITY_ORDER.size()];
+      }
+      for (int j = 0; j < counts.length; j++) {
+        counts[j] += child.counts[j];
+      }
+    }
+    result.setCounts(counts);
+    return result;
+  }
+
+  private void add(Entry entry, int[] delta) {
+    for (Entry current = entry; current != null; current = current.owner) {
+      int[] counts = current.counts;
+      if (counts == null) {
+        counts = new int[SEVERITY_ORDER.size()];
+      }
+      boolean empty = true;
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] += delta[i];
+        empty &= counts[i] == 0;
+      }
+      int kinds = current.kinds;
+      current.setCounts(empty ? null : counts);
+      if (current.kinds != kinds && current.owner != null) {
+        current.owner.children.updated(current);
+      }
+    }
+  }
+
+  private void purge(Entry node) {
+    if (node == null) return;
+    myEntries.remove(node.cell);
+    if (node.children != null) {
+      purge(node.children.root());
+    }
+    purge(node.left());
+    purge(node.right());
+  }
+
+  private int index(CellPropertySpec<String> kind) {
+    int result = SEVERITY_ORDER.indexOf(kind);
+    if (result == -1) {
+      throw new IllegalArgumentException("Unknown message kind: " + kind);
+    }
+    return result;
+  }
+
+  private static class Entry extends ImplicitTreap.Node<Entry> {
+    private final Cell cell;
+    private ImplicitTreap<Entry> children;
+    private Entry owner;
+
+    private int[] counts;
+    private int kinds;
+    private int subtreeKinds;
+
+    private Entry(Cell cell) {
+      this.cell = cell;
+    }
+
+    private ImplicitTreap<Entry> children() {
+      if (children == null) {
+        children = new ImplicitTreap<>();
+      }
+      return children;
+    }
+
+    private void setCounts(int[] newCounts) {
+      counts = newCounts;
+      kinds = 0;
+      if (counts == null) return;
+      for (int i = 0; i < counts.length; i++) {
+        if (counts[i] > 0) {
+          kinds |= 1 << i;
+        }
+      }
+    }
+
+    @Override
+    protected void update() {
+      subtreeKinds = kinds;
+      if (left() != null) {
+        subtreeKinds |= left().subtreeKinds;
+      }
+      if (right() != null) {
+        subtreeKinds |= right().subtreeKinds;
+      }
+    }
+  }
+}
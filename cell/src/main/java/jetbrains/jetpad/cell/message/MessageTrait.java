@@ -21,16 +21,19 @@ import jetbrains.jetpad.cell.Cell;
 import jetbrains.jetpad.cell.CellContainer;
 import jetbrains.jetpad.cell.CellPropertySpec;
 import jetbrains.jetpad.cell.TextCell;
+import jetbrains.jetpad.cell.action.CellActions;
 import jetbrains.jetpad.cell.event.FocusEvent;
 import jetbrains.jetpad.cell.trait.CellTrait;
 import jetbrains.jetpad.event.Key;
 import jetbrains.jetpad.event.KeyEvent;
 import jetbrains.jetpad.event.KeyStrokeSpecs;
 import jetbrains.jetpad.event.MouseEvent;
+import jetbrains.jetpad.model.composite.Composites;
 import jetbrains.jetpad.model.property.PropertyChangeEvent;
 import jetbrains.jetpad.values.Color;
 import jetbrains.jetpad.values.FontFamily;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -41,13 +44,19 @@ class MessageTrait extends CellTrait {
   static final CellPropertySpec<Boolean> POPUP_ACTIVE = new CellPropertySpec<>("isMessagePopupActive", false);
 
   static final int POPUPS_SHOW_DELAY_MILLIS = 300;
+  static final int FLUSH_SLICE_MILLIS = 20;
 
   private static final List<CellPropertySpec<String>> MESSAGES_IN_PRIORITY_ORDER =
       Arrays.asList(MessageController.INFO, MessageController.BROKEN, MessageController.ERROR, MessageController.WARNING);
+  private static final List<CellPropertySpec<String>> NAVIGABLE_MESSAGES =
+      Arrays.asList(MessageController.BROKEN, MessageController.ERROR, MessageController.WARNING);
 
   private Registration myUpdatesReg = null;
   private long myLastEditingKeyEvent = 0;
   private boolean myForceHide = false;
+  private List<Cell> myFlushQueue = null;
+  private int myFlushPosition;
+  private int myFlushUncheckedCount;
   private final Map<Cell, Map<CellPropertySpec<String>, PropertyChangeEvent<String>>> myPendingUpdates = new HashMap<>();
 
   // this field is required only as EDT supplier, but the appropriate EDT may be set after MessageController is installed
@@ -56,10 +65,12 @@ class MessageTrait extends CellTrait {
   private boolean myEditingPopup = false;
   private Map<Cell, LowPriorityPopupSupport> myRegistrations = null;
   private StyleApplicator myStyler;
+  private final MessageIndex myIndex;
 
-  MessageTrait(CellContainer container, StyleApplicator styleApplicator) {
+  MessageTrait(CellContainer container, StyleApplicator styleApplicator, MessageIndex index) {
     myContainer = container;
     myStyler = styleApplicator;
+    myIndex = index;
   }
 
   @Override
@@ -75,7 +86,8 @@ class MessageTrait extends CellTrait {
   @Override
   public void onPropertyChanged(Cell cell, CellPropertySpec<?> prop, PropertyChangeEvent<?> event) {
     if (MESSAGES_IN_PRIORITY_ORDER.contains(prop)) {
-      if (myForceHide) {
+      if (myForceHide || myPendingUpdates.containsKey(cell)) {
+        //a cell which still has pending updates gets new ones in the same order
         postpone(cell, (CellPropertySpec<String>) prop, (PropertyChangeEvent<String>) event);
       } else {
         apply(cell, (CellPropertySpec<String>) prop, (PropertyChangeEvent<String>) event);
@@ -153,22 +165,118 @@ class MessageTrait extends CellTrait {
     myLastEditingKeyEvent = myContainer.getEdt().getCurrentTimeMillis();
     if (myForceHide) return;
     setForceHide(true);
-    myUpdatesReg = myContainer.getEdt().scheduleRepeating(POPUPS_SHOW_DELAY_MILLIS, new Runnable() {
+    cancelScheduled();
+    myFlushQueue = null;
+    scheduleShow(POPUPS_SHOW_DELAY_MILLIS);
+  }
+
+  private void scheduleShow(int delay) {
+    schedule(delay, new Runnable() {
       @Override
       public void run() {
-        if (myContainer.getEdt().getCurrentTimeMillis() - myLastEditingKeyEvent < POPUPS_SHOW_DELAY_MILLIS) return;
-        myUpdatesReg.remove();
-        myUpdatesReg = null;
+        long remaining = myLastEditingKeyEvent + POPUPS_SHOW_DELAY_MILLIS - myContainer.getEdt().getCurrentTimeMillis();
+        if (remaining > 0) {
+          scheduleShow((int) remaining);
+          return;
+        }
         setForceHide(false);
-        for (Map.Entry<Cell, Map<CellPropertySpec<String>, PropertyChangeEvent<String>>> cellEntry : myPendingUpdates.entrySet()) {
-          Cell cell = cellEntry.getKey();
-          for (Map.Entry<CellPropertySpec<String>, PropertyChangeEvent<String>> propEntry : cellEntry.getValue().entrySet()) {
+        flushSlice();
+      }
+    });
+  }
+
+  private void schedule(int delay, final Runnable task) {
+    final boolean[] done = new boolean[1];
+    Registration reg = myContainer.getEdt().schedule(delay, new Runnable() {
+      @Override
+      public void run() {
+        done[0] = true;
+        myUpdatesReg = null;
+        task.run();
+      }
+    });
+    if (!done[0]) {
+      myUpdatesReg = reg;
+    }
+  }
+
+  private void cancelScheduled() {
+    if (myUpdatesReg != null) {
+      myUpdatesReg.remove();
+      myUpdatesReg = null;
+    }
+  }
+
+  private void flushSlice() {
+    if (myForceHide) return;
+    long start = myContainer.getEdt().getCurrentTimeMillis();
+    while (true) {
+      if (myFlushQueue == null || myFlushPosition == myFlushQueue.size()) {
+        if (myPendingUpdates.isEmpty()) {
+          myFlushQueue = null;
+          return;
+        }
+        myFlushQueue = flushOrder();
+        myFlushPosition = 0;
+      }
+
+      Cell cell = myFlushQueue.get(myFlushPosition++);
+      if (myFlushPosition <= myFlushUncheckedCount && !isOnScreen(cell)) {
+        //bounds are computed here rather than in flushOrder() to keep layout within the time slice
+        myFlushQueue.add(cell);
+      } else {
+        Map<CellPropertySpec<String>, PropertyChangeEvent<String>> updates = myPendingUpdates.remove(cell);
+        if (updates != null) {
+          for (Map.Entry<CellPropertySpec<String>, PropertyChangeEvent<String>> propEntry : updates.entrySet()) {
             apply(cell, propEntry.getKey(), propEntry.getValue());
           }
         }
-        myPendingUpdates.clear();
       }
-    });
+
+      if (myContainer.getEdt().getCurrentTimeMillis() - start >= FLUSH_SLICE_MILLIS) {
+        if (myFlushPosition < myFlushQueue.size() || !myPendingUpdates.isEmpty()) {
+          schedule(0, new Runnable() {
+            @Override
+            public void run() {
+              flushSlice();
+            }
+          });
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * Shown cells go first, hidden ones last. Whether a shown cell is on screen is checked when it's flushed:
+   * cells outside of the visible rect are moved to the end of the queue then.
+   */
+  private List<Cell> flushOrder() {
+    List<Cell> result = new ArrayList<>(myPendingUpdates.size());
+    List<Cell> hidden = new ArrayList<>();
+    for (Cell cell : myPendingUpdates.keySet()) {
+      if (isShown(cell)) {
+        result.add(cell);
+      } else {
+        hidden.add(cell);
+      }
+    }
+    //without a peer there are no bounds, so all the shown cells are equally visible
+    myFlushUncheckedCount = myContainer.hasCellContainerPeer() ? result.size() : 0;
+    result.addAll(hidden);
+    return result;
+  }
+
+  private boolean isOnScreen(Cell cell) {
+    return cell.isAttached() && cell.getBounds().intersects(myContainer.visibleRect());
+  }
+
+  private boolean isShown(Cell cell) {
+    if (!cell.isAttached()) return false;
+    for (Cell c = cell; c != null; c = c.getParent()) {
+      if (!c.visible().get()) return false;
+    }
+    return true;
   }
 
   private void setForceHide(boolean forceHide) {
@@ -197,9 +305,30 @@ class MessageTrait extends CellTrait {
         return;
       }
     }
+    if (cell.get(Cell.FOCUSED) && (event.is(KeyStrokeSpecs.NEXT_MESSAGE) || event.is(KeyStrokeSpecs.PREV_MESSAGE))) {
+      if (navigate(cell, event.is(KeyStrokeSpecs.NEXT_MESSAGE))) {
+        event.consume();
+        return;
+      }
+    }
     super.onKeyPressed(cell, event);
   }
 
+  private boolean navigate(Cell cell, boolean forward) {
+    Cell current = cell;
+    while (true) {
+      Cell found = forward ? myIndex.next(current, NAVIGABLE_MESSAGES) : myIndex.prev(current, NAVIGABLE_MESSAGES);
+      if (found == null) return false;
+      Cell target = Composites.firstFocusable(found);
+      if (target != null && target != cell) {
+        CellActions.toFirstFocusable(found).run();
+        target.scrollTo();
+        return true;
+      }
+      current = found;
+    }
+  }
+
   @Override
   public void onFocusLost(Cell cell, FocusEvent event) {
     hidePopup(cell);
@@ -28,7 +28,7 @@ import jetbrains.jetpad.cell.indent.IndentUtil;
 import jetbrains.jetpad.cell.indent.updater.CellWrapper;
 import jetbrains.jetpad.cell.indent.updater.IndentUpdater;
 import jetbrains.jetpad.cell.indent.updater.IndentUpdaterTarget;
-import jetbrains.jetpad.cell.mappersUtil.AncestorUtil;
+import jetbrains.jetpad.cell.mappersUtil.AncestorStateCache;
 import jetbrains.jetpad.cell.mappersUtil.CounterUtil;
 import jetbrains.jetpad.cell.mappersUtil.PopupManager;
 import jetbrains.jetpad.mapper.Mapper;
@@ -46,9 +46,12 @@ class IndentRootCellMapper extends BaseCellMapper<IndentCell> {
   private Set<BaseCellMapper<?>> myCellMappers;
   private IndentUpdater<Node> myIndentUpdater;
   private Registration myRegistration;
+  private final AncestorStateCache myAncestorStates;
 
   IndentRootCellMapper(final IndentCell source, CellToDomContext ctx) {
     super(source, ctx, DOM.createDiv());
+
+    myAncestorStates = new AncestorStateCache(source);
     myCellMappers = createChildSet();
 
     myIndentUpdater = new IndentUpdater<Node>(
@@ -73,8 +76,8 @@ class IndentRootCellMapper extends BaseCellMapper<IndentCell> {
         @Override
         public CellWrapper<Node> wrap(final Cell cell) {
           final BaseCellMapper<? extends Cell> mapper = getContext().apply(cell);
-          CounterUtil.updateOnAdd(getSource(), cell, mapper);
-          mapper.setAncestorBackground(AncestorUtil.getAncestorBackground(getSource(), cell));
+          myAncestorStates.onAdd(cell, mapper);
+          mapper.setAncestorBackground(myAncestorStates.getAncestorBackground(cell));
 
           myCellMappers.add(mapper);
 
@@ -86,7 +89,7 @@ class IndentRootCellMapper extends BaseCellMapper<IndentCell> {
 
             @Override
             public void remove() {
-              CounterUtil.updateOnRemove(getSource(), cell, mapper);
+              myAncestorStates.onRemove(cell, mapper);
               myCellMappers.remove(mapper);
             }
           };
@@ -140,23 +143,27 @@ class IndentRootCellMapper extends BaseCellMapper<IndentCell> {
     myRegistration = getSource().addListener(new IndentContainerCellListener() {
       @Override
       public void childAdded(CollectionItemEvent<? extends Cell> event) {
+        myAncestorStates.invalidate(event.getNewItem());
         myIndentUpdater.childAdded(event.getNewItem());
       }
 
       @Override
       public void childRemoved(CollectionItemEvent<? extends Cell> event) {
         myIndentUpdater.childRemoved(event.getOldItem());
+        myAncestorStates.invalidate(event.getOldItem());
       }
 
       @Override
       public void propertyChanged(final Cell cell, final CellPropertySpec<?> prop, final PropertyChangeEvent<?> event) {
         if (CounterUtil.isCounterProp(prop)) {
+          myAncestorStates.invalidate(cell);
           updateCounters(cell, prop, event);
         } else if (Cell.isPopupProp(prop)) {
           IndentRootCellMapper.this.onEvent((PropertyChangeEvent<Cell>) event);
         } else if (prop == Cell.VISIBLE) {
           myIndentUpdater.visibilityChanged(cell, (PropertyChangeEvent<Boolean>) event);
         } else if (prop == Cell.BACKGROUND) {
+          myAncestorStates.invalidate(cell);
           updateBackground(cell);
         }
       }
@@ -169,7 +176,7 @@ class IndentRootCellMapper extends BaseCellMapper<IndentCell> {
             if (mapper == null) {
               throw new IllegalStateException();
             }
-            if (CounterUtil.update(mapper, prop, event)) {
+            if (CounterUtil.updateAndCheckSwitched(mapper, prop, event)) {
               mapper.refreshProperties();
             }
           }
@@ -181,7 +188,7 @@ class IndentRootCellMapper extends BaseCellMapper<IndentCell> {
           @Override
           public void handle(Cell item) {
             BaseCellMapper<?> mapper = (BaseCellMapper<?>) getDescendantMapper(item);
-            mapper.setAncestorBackground(AncestorUtil.getAncestorBackground(getSource(), item));
+            mapper.setAncestorBackground(myAncestorStates.getAncestorBackground(item));
             mapper.refreshProperties();
           }
         });
@@ -197,6 +204,7 @@ class IndentRootCellMapper extends BaseCellMapper<IndentCell> {
       myIndentUpdater.childRemoved(c);
     }
     myRegistration.remove();
+    myAncestorStates.clear();
     super.onDetach();
   }
 
@@ -120,6 +120,9 @@ class BaseCellMapper<SourceT extends Cell, TargetT extends View> extends Mapper<
     getTarget().children().remove(index);
   }
 
+  void childVisibilityChanged(Cell child) {
+  }
+
   @Override
   public final void onEvent(PropertyChangeEvent<Cell> event) {
     myPopupManager.onEvent(event);
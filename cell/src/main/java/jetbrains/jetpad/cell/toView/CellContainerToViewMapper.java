@@ -116,11 +116,15 @@ public class CellContainerToViewMapper extends Mapper<CellContainer, View> {
               myContext.focused.set(event.getNewValue());
               for (TextCell cell : myWithCaret) {
                 BaseCellMapper<?, ?> mapper = (BaseCellMapper<?, ?>) rootMapper().getDescendantMapper(cell);
-                mapper.refreshProperties();
+                if (mapper != null) {
+                  mapper.refreshProperties();
+                }
               }
               for (Cell cell : myHighlighted) {
                 BaseCellMapper<?, ?> mapper = (BaseCellMapper<?, ?>) rootMapper().getDescendantMapper(cell);
-                mapper.refreshProperties();
+                if (mapper != null) {
+                  mapper.refreshProperties();
+                }
               }
             }
           }),
@@ -136,13 +140,13 @@ public class CellContainerToViewMapper extends Mapper<CellContainer, View> {
     return new CellContainerPeer() {
       @Override
       public int getCaretAt(TextCell tv, int x) {
-        TextView textView = (TextView) rootMapper.getDescendantMapper(tv).getTarget();
+        TextView textView = (TextView) realizedMapper(tv).getTarget();
         return textView.getCaretAt(x);
       }
 
       @Override
       public int getCaretOffset(TextCell tv, int caret) {
-        Mapper<? super TextCell, ?> mapper = rootMapper.getDescendantMapper(tv);
+        Mapper<?, ?> mapper = realizedMapper(tv);
         if (mapper == null) {
           throw new IllegalStateException("Can't find a mapper for " + tv);
         }
@@ -156,8 +160,8 @@ public class CellContainerToViewMapper extends Mapper<CellContainer, View> {
       }
 
       private Rectangle calculateBounds(Cell cell) {
+        BaseCellMapper<?, ? extends View> descendantMapper = (BaseCellMapper<?, ? extends View>) realizedMapper(cell);
         getTarget().container().root().validate();
-        BaseCellMapper<?, ? extends View> descendantMapper = (BaseCellMapper<?, ? extends View>) rootMapper.getDescendantMapper(cell);
 
         if (descendantMapper == null) {
           if (cell instanceof NewLineCell) {
@@ -174,8 +178,9 @@ public class CellContainerToViewMapper extends Mapper<CellContainer, View> {
 
       @Override
       public void scrollTo(Rectangle rect, Cell cell) {
-        BaseCellMapper<?, ? extends View> mapper = (BaseCellMapper<?, ? extends View>) rootMapper.getDescendantMapper(cell);
+        BaseCellMapper<?, ? extends View> mapper = (BaseCellMapper<?, ? extends View>) realizedMapper(cell);
         if (mapper == null) return;
+        getTarget().container().root().validate();
         mapper.getTarget().scrollTo(rect);
       }
 
@@ -232,6 +237,19 @@ public class CellContainerToViewMapper extends Mapper<CellContainer, View> {
     return (RootCellMapper) getDescendantMapper(getSource().root);
   }
 
+  private Mapper<?, ?> realizedMapper(Cell cell) {
+    Mapper<?, ?> mapper = rootMapper().getDescendantMapper(cell);
+    if (mapper != null) return mapper;
+
+    Cell parent = cell.getParent();
+    if (parent == null) return null;
+    Mapper<?, ?> parentMapper = realizedMapper(parent);
+    if (!(parentMapper instanceof VirtualizedVerticalCellMapper)) return null;
+
+    ((VirtualizedVerticalCellMapper) parentMapper).realize(cell);
+    return rootMapper().getDescendantMapper(cell);
+  }
+
   private ViewTrait createRedistpatchTrait() {
     final View targetView = myTargetView;
     final CellContainer cellContainer = getSource();
@@ -329,6 +347,30 @@ public class CellContainerToViewMapper extends Mapper<CellContainer, View> {
     return new CellContainerAdapter() {
       @Override
       public void onCellPropertyChanged(Cell cell, CellPropertySpec<?> prop, PropertyChangeEvent<?> event) {
+        if (prop == TextCell.CARET_VISIBLE) {
+          TextCell text = (TextCell) cell;
+          if (text.caretVisible().get()) {
+            myWithCaret.add(text);
+          } else {
+            myWithCaret.remove(text);
+          }
+        }
+
+        if (prop == Cell.FOCUS_HIGHLIGHTED) {
+          if (cell.focusHighlighted().get()) {
+            myHighlighted.add(cell);
+          } else {
+            myHighlighted.remove(cell);
+          }
+        }
+
+        if (prop == Cell.VISIBLE && cell.getParent() != null) {
+          BaseCellMapper<?, ?> parentMapper = (BaseCellMapper<?, ?>) rootMapper().getDescendantMapper(cell.getParent());
+          if (parentMapper != null) {
+            parentMapper.childVisibilityChanged(cell);
+          }
+        }
+
         BaseCellMapper<?, ?> target = (BaseCellMapper<?, ?>) rootMapper().getDescendantMapper(cell);
         if (target == null) return;
 
@@ -349,23 +391,6 @@ public class CellContainerToViewMapper extends Mapper<CellContainer, View> {
             target.onPopupPropertyChanged(prop, event);
           }
         }
-
-        if (prop == TextCell.CARET_VISIBLE) {
-          TextCell text = (TextCell) cell;
-          if (text.caretVisible().get()) {
-            myWithCaret.add(text);
-          } else {
-            myWithCaret.remove(text);
-          }
-        }
-
-        if (prop == Cell.FOCUS_HIGHLIGHTED) {
-          if (cell.focusHighlighted().get()) {
-            myHighlighted.add(cell);
-          } else {
-            myHighlighted.remove(cell);
-          }
-        }
       }
 
       @Override
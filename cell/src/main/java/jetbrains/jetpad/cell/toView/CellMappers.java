@@ -26,7 +26,11 @@ class CellMappers {
     }
 
     if (cell instanceof VerticalCell) {
-      return new VerticalCellMapper((VerticalCell) cell, ctx);
+      VerticalCell verticalCell = (VerticalCell) cell;
+      if (verticalCell.virtualized().get()) {
+        return new VirtualizedVerticalCellMapper(verticalCell, ctx);
+      }
+      return new VerticalCellMapper(verticalCell, ctx);
     }
 
     if (cell instanceof ScrollCell) {
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.cell.toView;
+
+import jetbrains.jetpad.cell.Cell;
+import jetbrains.jetpad.cell.util.ImplicitTreap;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Heights of children of a virtualized vertical cell, kept in an {@link ImplicitTreap} ordered by child index.
+ * Every subtree knows the sum of its measured heights and the number of its unmeasured children, so that
+ * sums over a range of children, the child at a given offset and the index of a given child cost O(log n).
+ *
+ * Children which were never measured get the average measured height, invisible children get 0.
+ */
+class ChildHeights {
+  static final int DEFAULT_ESTIMATED_HEIGHT = 20;
+
+  private static final int UNKNOWN = -1;
+  private static final int HIDDEN = -2;
+
+  private final ImplicitTreap<Node> myTree = new ImplicitTreap<>();
+  private final Map<Cell, Node> myNodes = new HashMap<>();
+
+  int size() {
+    return myTree.size();
+  }
+
+  void insert(int index, Cell cell) {
+    Node node = new Node(cell, cell.visible().get() ? UNKNOWN : HIDDEN);
+    myTree.insert(index, node);
+    myNodes.put(cell, node);
+  }
+
+  void remove(int index) {
+    myNodes.remove(myTree.remove(index).cell);
+  }
+
+  /**
+   * Index of the child, or -1 if it isn't here.
+   */
+  int indexOf(Cell cell) {
+    Node node = myNodes.get(cell);
+    if (node == null) return -1;
+    return myTree.indexOf(node);
+  }
+
+  void setHeight(int index, int height) {
+    setNodeHeight(myTree.get(index), height);
+  }
+
+  /**
+   * Makes an invisible child take no space, and a visible one the estimated height until it's measured.
+   */
+  void setVisible(int index, boolean visible) {
+    Node node = myTree.get(index);
+    if (!visible) {
+      setNodeHeight(node, HIDDEN);
+    } else if (node.height == HIDDEN) {
+      setNodeHeight(node, UNKNOWN);
+    }
+  }
+
+  /**
+   * Sum of heights of children in [from, to).
+   */
+  long sum(int from, int to) {
+    int estimate = estimate();
+    return prefixSum(to, estimate) - prefixSum(from, estimate);
+  }
+
+  /**
+   * The largest k such that the sum of heights of the first k children is at most y, or -1 if y is negative.
+   */
+  int lastPrefixAtMost(long y) {
+    if (y < 0) return -1;
+
+    int estimate = estimate();
+    int count = 0;
+    Node node = myTree.root();
+    while (node != null) {
+      long leftSum = sum(node.left(), estimate);
+      long withNode = leftSum + height(node, estimate);
+      if (leftSum > y) {
+        node = node.left();
+      } else if (withNode <= y) {
+        y -= withNode;
+        count += size(node.left()) + 1;
+        node = node.right();
+      } else {
+        return count + size(node.left());
+      }
+    }
+    return count;
+  }
+
+  private void setNodeHeight(Node node, int height) {
+    if (node.height == height) return;
+    node.height = height;
+    myTree.updated(node);
+  }
+
+  private long prefixSum(int count, int estimate) {
+    long result = 0;
+    Node node = myTree.root();
+    while (node != null && count > 0) {
+      int leftSize = size(node.left());
+      if (count <= leftSize) {
+        node = node.left();
+      } else {
+        result += sum(node.left(), estimate) + height(node, estimate);
+        count -= leftSize + 1;
+        node = node.right();
+      }
+    }
+    return result;
+  }
+
+  private int estimate() {
+    Node root = myTree.root();
+    if (root == null || root.measuredCount == 0) return DEFAULT_ESTIMATED_HEIGHT;
+    return (int) (root.measuredSum / root.measuredCount);
+  }
+
+  private static int size(Node node) {
+    return node == null ? 0 : node.size();
+  }
+
+  private static long sum(Node node, int estimate) {
+    return node == null ? 0 : node.measuredSum + (long) node.unknownCount * estimate;
+  }
+
+  private static int height(Node node, int estimate) {
+    if (node.height == UNKNOWN) return estimate;
+    if (node.height == HIDDEN) return 0;
+    return node.height;
+  }
+
+  private static class Node extends ImplicitTreap.Node<Node> {
+    private final Cell cell;
+    private int height;
+
+    private long measuredSum;
+    private int measuredCount;
+    private int unknownCount;
+
+    private Node(Cell cell, int height) {
+      this.cell = cell;
+      this.height = height;
+    }
+
+    @Override
+    protected void update() {
+      measuredSum = 0;
+      measuredCount = 0;
+      unknownCount = 0;
+      if (height == UNKNOWN) {
+        unknownCount++;
+      } else if (height != HIDDEN) {
+        measuredSum += height;
+        measuredCount++;
+      }
+      add(left());
+      add(right());
+    }
+
+    private void add(Node child) {
+      if (child == null) return;
+      measuredSum += child.measuredSum;
+      measuredCount += child.measuredCount;
+      unknownCount += child.unknownCount;
+    }
+  }
+}
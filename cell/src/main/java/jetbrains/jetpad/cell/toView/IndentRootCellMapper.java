@@ -45,10 +45,12 @@ class IndentRootCellMapper extends BaseCellMapper<IndentCell, VerticalView> {
   private IndentUpdater<View> myIndentUpdater;
   private ObservableSet<BaseCellMapper<?, ?>> myCellMappers;
   private Registration myRegistration;
+  private final AncestorStateCache myAncestorStates;
 
   IndentRootCellMapper(final IndentCell source, CellToViewContext ctx) {
     super(source, new VerticalView(), ctx);
 
+    myAncestorStates = new AncestorStateCache(source);
     myCellMappers = createChildSet();
 
     myIndentUpdater = new IndentUpdater<View>(getSource(), getTarget(),
@@ -69,9 +71,9 @@ class IndentRootCellMapper extends BaseCellMapper<IndentCell, VerticalView> {
           public CellWrapper<View> wrap(final Cell cell) {
             final BaseCellMapper<? extends Cell, ? extends View> mapper = getContext().apply(cell);
 
-            CounterUtil.updateOnAdd(getSource(), cell, mapper);
+            myAncestorStates.onAdd(cell, mapper);
 
-            mapper.setAncestorBackground(AncestorUtil.getAncestorBackground(getSource(), cell));
+            mapper.setAncestorBackground(myAncestorStates.getAncestorBackground(cell));
 
             myCellMappers.add(mapper);
 
@@ -88,7 +90,7 @@ class IndentRootCellMapper extends BaseCellMapper<IndentCell, VerticalView> {
                 if (myRemoved) {
                   throw new IllegalStateException();
                 }
-                CounterUtil.updateOnRemove(getSource(), cell, mapper);
+                myAncestorStates.onRemove(cell, mapper);
                 myCellMappers.remove(mapper);
                 myRemoved = true;
               }
@@ -136,6 +138,7 @@ class IndentRootCellMapper extends BaseCellMapper<IndentCell, VerticalView> {
       @Override
       public void childAdded(CollectionItemEvent<? extends Cell> event) {
         Cell cell = event.getNewItem();
+        myAncestorStates.invalidate(cell);
         myIndentUpdater.childAdded(cell);
       }
 
@@ -143,17 +146,20 @@ class IndentRootCellMapper extends BaseCellMapper<IndentCell, VerticalView> {
       public void childRemoved(CollectionItemEvent<? extends Cell> event) {
         Cell cell = event.getOldItem();
         myIndentUpdater.childRemoved(cell);
+        myAncestorStates.invalidate(cell);
       }
 
       @Override
       public void propertyChanged(Cell cell, final CellPropertySpec<?> prop, final PropertyChangeEvent<?> event) {
         if (CounterUtil.isCounterProp(prop)) {
+          myAncestorStates.invalidate(cell);
           updateCounters(cell, prop, event);
         } else if (prop == Cell.VISIBLE) {
           myIndentUpdater.visibilityChanged(cell, (PropertyChangeEvent<Boolean>) event);
         } else if (Cell.isPopupProp(prop)) {
           IndentRootCellMapper.this.onEvent((PropertyChangeEvent<Cell>) event);
         } else if (prop == Cell.BACKGROUND) {
+          myAncestorStates.invalidate(cell);
           updateBackground(cell);
         }
       }
@@ -166,7 +172,7 @@ class IndentRootCellMapper extends BaseCellMapper<IndentCell, VerticalView> {
             if (mapper == null) {
               throw new IllegalStateException();
             }
-            if (CounterUtil.update(mapper, prop, event)) {
+            if (CounterUtil.updateAndCheckSwitched(mapper, prop, event)) {
               mapper.refreshProperties();
             }
           }
@@ -178,7 +184,7 @@ class IndentRootCellMapper extends BaseCellMapper<IndentCell, VerticalView> {
           @Override
           public void handle(Cell item) {
             BaseCellMapper<?, ?> mapper = (BaseCellMapper<?, ?>) getDescendantMapper(item);
-            mapper.setAncestorBackground(AncestorUtil.getAncestorBackground(getSource(), item));
+            mapper.setAncestorBackground(myAncestorStates.getAncestorBackground(item));
             mapper.refreshProperties();
           }
         });
@@ -195,6 +201,7 @@ class IndentRootCellMapper extends BaseCellMapper<IndentCell, VerticalView> {
     }
 
     myRegistration.remove();
+    myAncestorStates.clear();
 
     super.onDetach();
   }
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.cell.toView;
+
+import jetbrains.jetpad.base.Registration;
+import jetbrains.jetpad.cell.Cell;
+import jetbrains.jetpad.cell.VerticalCell;
+import jetbrains.jetpad.geometry.Rectangle;
+import jetbrains.jetpad.geometry.Vector;
+import jetbrains.jetpad.mapper.Mapper;
+import jetbrains.jetpad.mapper.MappingContext;
+import jetbrains.jetpad.model.event.EventHandler;
+import jetbrains.jetpad.model.property.PropertyChangeEvent;
+import jetbrains.jetpad.projectional.view.RectView;
+import jetbrains.jetpad.projectional.view.View;
+import jetbrains.jetpad.projectional.view.ViewContainer;
+
+import java.util.List;
+
+/**
+ * Maps only a window of children of a vertical cell: the ones intersecting the visible area plus overscan.
+ * Children before and after the window are replaced with spacers whose heights are the sum of the last measured
+ * heights of these children (or an estimate for children which were never realized), see {@link ChildHeights}.
+ * Children outside of the window are realized on demand with {@link #realize(Cell)}.
+ *
+ * Target view children: top spacer, views of children in [myFrom, myTo), bottom spacer.
+ */
+class VirtualizedVerticalCellMapper extends VerticalCellMapper {
+  static final int INITIAL_WINDOW = 100;
+  static final int OVERSCAN = 500;
+  static final int MAX_WINDOW_EXTENSION = 200;
+
+  private final RectView myTopSpacer = createSpacer();
+  private final RectView myBottomSpacer = createSpacer();
+
+  private final ChildHeights myHeights = new ChildHeights();
+
+  private int myFrom;
+  private int myTo;
+  private List<Mapper<?, ?>> myWindowMappers;
+
+  private Registration myAttachReg = Registration.EMPTY;
+  private Registration myDetachReg = Registration.EMPTY;
+  private Registration myVisibleAreaReg = Registration.EMPTY;
+  private Registration myUpdateReg = null;
+
+  VirtualizedVerticalCellMapper(VerticalCell source, CellToViewContext ctx) {
+    super(source, ctx);
+  }
+
+  @Override
+  protected boolean isAutoChildManagement() {
+    return false;
+  }
+
+  @Override
+  protected void onAttach(MappingContext ctx) {
+    super.onAttach(ctx);
+
+    myWindowMappers = createChildList();
+    getTarget().children().add(myTopSpacer);
+    getTarget().children().add(myBottomSpacer);
+
+    List<Cell> children = getSource().children();
+    for (int i = 0; i < children.size(); i++) {
+      myHeights.insert(i, children.get(i));
+    }
+    setWindow(0, Math.min(children.size(), INITIAL_WINDOW));
+    updateSpacers();
+
+    myAttachReg = getTarget().attachEvents().addHandler(new EventHandler<Object>() {
+      @Override
+      public void onEvent(Object event) {
+        onTargetAttached();
+      }
+    });
+    myDetachReg = getTarget().detachEvents().addHandler(new EventHandler<Object>() {
+      @Override
+      public void onEvent(Object event) {
+        onTargetDetached();
+      }
+    });
+    if (getTarget().isAttached()) {
+      onTargetAttached();
+    }
+  }
+
+  @Override
+  protected void onDetach() {
+    onTargetDetached();
+    myAttachReg.remove();
+    myDetachReg.remove();
+    super.onDetach();
+  }
+
+  @Override
+  void childAdded(int index, Cell child) {
+    myHeights.insert(index, child);
+    if (index < myFrom) {
+      myFrom++;
+      myTo++;
+    } else if (index <= myTo) {
+      BaseCellMapper<? extends Cell, ? extends View> mapper = getContext().apply(child);
+      getTarget().children().add(1 + index - myFrom, mapper.getTarget());
+      myWindowMappers.add(index - myFrom, mapper);
+      myTo++;
+    }
+    updateSpacers();
+    scheduleUpdate();
+  }
+
+  @Override
+  void childRemoved(int index, Cell child) {
+    if (index < myFrom) {
+      myFrom--;
+      myTo--;
+    } else if (index < myTo) {
+      myWindowMappers.remove(index - myFrom);
+      getTarget().children().remove(1 + index - myFrom);
+      myTo--;
+    }
+    myHeights.remove(index);
+    updateSpacers();
+    scheduleUpdate();
+  }
+
+  @Override
+  void childVisibilityChanged(Cell child) {
+    int index = myHeights.indexOf(child);
+    if (index == -1) return;
+    myHeights.setVisible(index, child.visible().get());
+    updateSpacers();
+    scheduleUpdate();
+  }
+
+  boolean isRealized(int index) {
+    return index >= myFrom && index < myTo;
+  }
+
+  /**
+   * Makes sure that the child has a mapper. The window is extended if the child is close to it,
+   * otherwise it's moved to the child. The visible window is restored on the next update.
+   */
+  void realize(Cell child) {
+    int index = myHeights.indexOf(child);
+    if (index == -1) {
+      throw new IllegalArgumentException("Not a child: " + child);
+    }
+    if (isRealized(index)) return;
+
+    int from = Math.min(myFrom, index);
+    int to = Math.max(myTo, index + 1);
+    if (myFrom == myTo || to - from > myTo - myFrom + MAX_WINDOW_EXTENSION) {
+      from = index;
+      to = index + 1;
+    }
+    setWindow(from, to);
+    updateSpacers();
+    scheduleUpdate();
+  }
+
+  private void onTargetAttached() {
+    ViewContainer container = getTarget().container();
+    myVisibleAreaReg.remove();
+    myVisibleAreaReg = container.visibleArea().addHandler(new EventHandler<PropertyChangeEvent<Rectangle>>() {
+      @Override
+      public void onEvent(PropertyChangeEvent<Rectangle> event) {
+        scheduleUpdate();
+      }
+    });
+    scheduleUpdate();
+  }
+
+  private void onTargetDetached() {
+    myVisibleAreaReg.remove();
+    myVisibleAreaReg = Registration.EMPTY;
+    if (myUpdateReg != null) {
+      myUpdateReg.remove();
+      myUpdateReg = null;
+    }
+  }
+
+  private void scheduleUpdate() {
+    if (myUpdateReg != null) return;
+    ViewContainer container = getTarget().container();
+    if (container == null) return;
+
+    //updates change the view tree, so they can't be done synchronously from validation or scrolling callbacks
+    final boolean[] done = new boolean[1];
+    Registration reg = container.getEdt().schedule(0, new Runnable() {
+      @Override
+      public void run() {
+        done[0] = true;
+        myUpdateReg = null;
+        update();
+      }
+    });
+    if (!done[0]) {
+      myUpdateReg = reg;
+    }
+  }
+
+  private void update() {
+    ViewContainer container = getTarget().container();
+    if (container == null) return;
+
+    container.root().validate();
+    measureWindow();
+
+    Rectangle visible = container.visibleRect();
+    Rectangle bounds = getTarget().bounds().get();
+    int top = visible.origin.y - bounds.origin.y - OVERSCAN;
+    int bottom = visible.origin.y + visible.dimension.y - bounds.origin.y + OVERSCAN;
+
+    int from = Math.max(0, myHeights.lastPrefixAtMost(top));
+    int to = Math.max(from, Math.min(myHeights.size(), myHeights.lastPrefixAtMost(bottom - 1) + 1));
+
+    if (from == myFrom && to == myTo) return;
+
+    setWindow(from, to);
+    updateSpacers();
+    //heights of newly realized children are known only after the next validation
+    scheduleUpdate();
+  }
+
+  private void setWindow(int from, int to) {
+    while (myFrom < from && myFrom < myTo) {
+      myWindowMappers.remove(0);
+      getTarget().children().remove(1);
+      myFrom++;
+    }
+    while (myTo > to && myTo > myFrom) {
+      myWindowMappers.remove(myTo - myFrom - 1);
+      getTarget().children().remove(myTo - myFrom);
+      myTo--;
+    }
+    if (myFrom == myTo) {
+      myFrom = from;
+      myTo = from;
+    }
+
+    List<Cell> children = getSource().children();
+    while (myFrom > from) {
+      myFrom--;
+      BaseCellMapper<? extends Cell, ? extends View> mapper = getContext().apply(children.get(myFrom));
+      getTarget().children().add(1, mapper.getTarget());
+      myWindowMappers.add(0, mapper);
+    }
+    while (myTo < to) {
+      BaseCellMapper<? extends Cell, ? extends View> mapper = getContext().apply(children.get(myTo));
+      getTarget().children().add(1 + myTo - myFrom, mapper.getTarget());
+      myWindowMappers.add(myTo - myFrom, mapper);
+      myTo++;
+    }
+  }
+
+  private void measureWindow() {
+    for (int i = myFrom; i < myTo; i++) {
+      View view = (View) myWindowMappers.get(i - myFrom).getTarget();
+      if (view.visible().get()) {
+        myHeights.setHeight(i, view.bounds().get().dimension.y);
+      } else {
+        myHeights.setVisible(i, false);
+      }
+    }
+  }
+
+  private void updateSpacers() {
+    setSpacerHeight(myTopSpacer, (int) myHeights.sum(0, myFrom));
+    setSpacerHeight(myBottomSpacer, (int) myHeights.sum(myTo, myHeights.size()));
+  }
+
+  private static RectView createSpacer() {
+    RectView spacer = new RectView();
+    spacer.background().set(null);
+    setSpacerHeight(spacer, 0);
+    return spacer;
+  }
+
+  private static void setSpacerHeight(RectView spacer, int height) {
+    spacer.dimension().set(new Vector(0, height));
+    spacer.visible().set(height > 0);
+  }
+}
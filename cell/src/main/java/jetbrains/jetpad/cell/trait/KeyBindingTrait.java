@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.cell.trait;
+
+import jetbrains.jetpad.cell.Cell;
+import jetbrains.jetpad.cell.event.CellEventHandler;
+import jetbrains.jetpad.event.KeyEvent;
+import jetbrains.jetpad.event.KeyStrokeMap;
+
+/**
+ * Dispatches key presses to the handlers bound to their key strokes. Key presses without a binding, or not consumed
+ * by its handler, go to the next trait. Subclasses can handle other events as usual.
+ */
+public class KeyBindingTrait extends CellTrait {
+  private final KeyStrokeMap<CellEventHandler<KeyEvent>> myBindings;
+
+  public KeyBindingTrait(KeyStrokeMap<CellEventHandler<KeyEvent>> bindings) {
+    myBindings = bindings;
+  }
+
+  @Override
+  public void onKeyPressed(Cell cell, KeyEvent event) {
+    CellEventHandler<KeyEvent> handler = myBindings.get(event);
+    if (handler != null) {
+      handler.handle(cell, event);
+      if (event.isConsumed()) return;
+    }
+    super.onKeyPressed(cell, event);
+  }
+}
@@ -54,7 +54,7 @@ public class CellLists {
     };
   }
 
-  public static List<Cell> spaced(List<Cell> list) {
+  public static SeparatedCellList spaced(List<Cell> list) {
     return new SeparatedCellList(list) {
       @Override
       protected Cell createSeparator(Cell left, Cell right) {
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.cell.util;
+
+/**
+ * List of nodes kept in an implicit treap with parent links. Nodes are ordered by position and every node knows
+ * the size of its subtree, so inserting and removing a node at an index, getting the node at an index and getting
+ * the index of a node cost O(log n).
+ *
+ * Subclasses of {@link Node} may keep other aggregates of their subtrees by overriding {@link Node#update()},
+ * and walk the tree from {@link #root()} to answer queries over these aggregates.
+ */
+public final class ImplicitTreap<NodeT extends ImplicitTreap.Node<NodeT>> {
+  private int mySeed = 0x2545F491;
+  private Node<NodeT> myRoot;
+
+  private Node<NodeT> mySplitLeft;
+  private Node<NodeT> mySplitRight;
+
+  public int size() {
+    return size(myRoot);
+  }
+
+  public NodeT root() {
+    return cast(myRoot);
+  }
+
+  public void insert(int index, NodeT node) {
+    checkIndex(index, size() + 1);
+    Node<NodeT> n = node;
+    if (n.myParent != null || n == myRoot) {
+      throw new IllegalArgumentException("Node is already in a tree");
+    }
+    n.myPriority = nextPriority();
+    n.myLeft = null;
+    n.myRight = null;
+    n.pull();
+
+    split(myRoot, index);
+    Node<NodeT> right = mySplitRight;
+    setRoot(merge(merge(mySplitLeft, n), right));
+  }
+
+  public NodeT remove(int index) {
+    checkIndex(index, size());
+    split(myRoot, index);
+    Node<NodeT> left = mySplitLeft;
+    split(mySplitRight, 1);
+    Node<NodeT> node = mySplitLeft;
+    setRoot(merge(left, mySplitRight));
+    node.myParent = null;
+    return cast(node);
+  }
+
+  public NodeT get(int index) {
+    checkIndex(index, size());
+    Node<NodeT> node = myRoot;
+    while (true) {
+      int leftSize = size(node.myLeft);
+      if (index < leftSize) {
+        node = node.myLeft;
+      } else if (index > leftSize) {
+        index -= leftSize + 1;
+        node = node.myRight;
+      } else {
+        return cast(node);
+      }
+    }
+  }
+
+  public int indexOf(NodeT node) {
+    Node<NodeT> n = node;
+    int result = size(n.myLeft);
+    for (; n.myParent != null; n = n.myParent) {
+      if (n == n.myParent.myRight) {
+        result += size(n.myParent.myLeft) + 1;
+      }
+    }
+    if (n != myRoot) {
+      throw new IllegalArgumentException("Node isn't in this tree");
+    }
+    return result;
+  }
+
+  /**
+   * Updates aggregates of the node and its ancestors after the node's own data was changed.
+   */
+  public void updated(NodeT node) {
+    for (Node<NodeT> n = node; n != null; n = n.myParent) {
+      n.pull();
+    }
+  }
+
+  private void split(Node<NodeT> node, int count) {
+    if (node == null) {
+      mySplitLeft = null;
+      mySplitRight = null;
+      return;
+    }
+
+    if (count <= size(node.myLeft)) {
+      split(node.myLeft, count);
+      node.myLeft = mySplitRight;
+      node.pull();
+      mySplitRight = node;
+    } else {
+      split(node.myRight, count - size(node.myLeft) - 1);
+      node.myRight = mySplitLeft;
+      node.pull();
+      mySplitLeft = node;
+    }
+  }
+
+  private Node<NodeT> merge(Node<NodeT> left, Node<NodeT> right) {
+    if (left == null) return right;
+    if (right == null) return left;
+
+    if (left.myPriority > right.myPriority) {
+      left.myRight = merge(left.myRight, right);
+      left.pull();
+      return left;
+    } else {
+      right.myLeft = merge(left, right.myLeft);
+      right.pull();
+      return right;
+    }
+  }
+
+  private void setRoot(Node<NodeT> root) {
+    myRoot = root;
+    if (root != null) {
+      root.myParent = null;
+    }
+  }
+
+  /**
+   * Xorshift sequence: it's enough to keep the tree balanced and, unlike {@link java.util.Random}, costs nothing
+   * to create, so a tree can be kept for every small list.
+   */
+  private int nextPriority() {
+    mySeed ^= mySeed << 13;
+    mySeed ^= mySeed >>> 17;
+    mySeed ^= mySeed << 5;
+    return mySeed;
+  }
+
+  private void checkIndex(int index, int bound) {
+    if (index < 0 || index >= bound) {
+      throw new IndexOutOfBoundsException("index = " + index + ", size = " + size());
+    }
+  }
+
+  private static int size(Node<?> node) {
+    return node == null ? 0 : node.mySize;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <NodeT extends Node<NodeT>> NodeT cast(Node<NodeT> node) {
+    return (NodeT) node;
+  }
+
+  public abstract static class Node<NodeT extends Node<NodeT>> {
+    private int myPriority;
+    private Node<NodeT> myLeft;
+    private Node<NodeT> myRight;
+    private Node<NodeT> myParent;
+    private int mySize = 1;
+
+    public final NodeT left() {
+      return cast(myLeft);
+    }
+
+    public final NodeT right() {
+      return cast(myRight);
+    }
+
+    /**
+     * Parent of the node in the tree, or null if the node is the root or isn't in a tree.
+     */
+    public final NodeT parent() {
+      return cast(myParent);
+    }
+
+    /**
+     * Number of nodes in the subtree of this node.
+     */
+    public final int size() {
+      return mySize;
+    }
+
+    /**
+     * Recomputes aggregates of the subtree from the node's own data and the aggregates of {@link #left()} and
+     * {@link #right()}. Called whenever the node's children change.
+     */
+    protected void update() {
+    }
+
+    private void pull() {
+      mySize = 1 + ImplicitTreap.size(myLeft) + ImplicitTreap.size(myRight);
+      if (myLeft != null) {
+        myLeft.myParent = this;
+      }
+      if (myRight != null) {
+        myRight.myParent = this;
+      }
+      update();
+    }
+  }
+}
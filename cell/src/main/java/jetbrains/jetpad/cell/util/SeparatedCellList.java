@@ -73,6 +73,17 @@ public abstract class SeparatedCellList extends AbstractList<Cell> {
     }
   }
 
+  /**
+   * Recreates the separator between the items with the given index and the next one, e.g. when properties
+   * the separator depends on changed. The items themselves stay in place.
+   */
+  public void refreshSeparator(int index) {
+    if (index < 0 || index + 1 >= size()) {
+      throw new IndexOutOfBoundsException("index = " + index + ", size = " + size());
+    }
+    myBaseList.set(index * 2 + 1, createSeparator(get(index), get(index + 1)));
+  }
+
   @Override
   public Cell set(int index, Cell element) {
     Cell result = remove(index);
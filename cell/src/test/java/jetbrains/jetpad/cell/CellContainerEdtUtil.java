@@ -24,6 +24,16 @@ public class CellContainerEdtUtil {
 
   public static void resetEdt(final CellContainer container, final EventDispatchThread edt) {
     final CellContainerPeer peer = container.getCellContainerPeer();
+    if (peer instanceof NullCellContainerPeer) {
+      container.setCellContainerPeer(new NullCellContainerPeer() {
+        @Override
+        public EventDispatchThread getEdt() {
+          return edt;
+        }
+      });
+      return;
+    }
+
     container.setCellContainerPeer(new CellContainerPeer() {
       @Override
       public int getCaretAt(TextCell tv, int x) {
@@ -24,6 +24,7 @@ import jetbrains.jetpad.mapper.Mapper;
 import jetbrains.jetpad.projectional.view.View;
 import jetbrains.jetpad.projectional.view.ViewContainer;
 import jetbrains.jetpad.test.BaseTestCase;
+import jetbrains.jetpad.values.Color;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -72,6 +73,41 @@ public class IndentPropertiesTest extends BaseTestCase {
     indentCell.focusHighlighted().set(false);
   }
 
+  @Test
+  public void overlappingHighlightRemoved() {
+    indentCell.focusHighlighted().set(true);
+    c1.focusHighlighted().set(true);
+    indentCell.focusHighlighted().set(false);
+
+    assertHighlighted(l11, l12);
+    assertBlank(l21, l22);
+
+    c1.focusHighlighted().set(false);
+    assertBlank(l11, l12);
+  }
+
+  @Test
+  public void moveToHighlightedPlace() {
+    c2.focusHighlighted().set(true);
+
+    indentCell.children().remove(c1);
+    c2.children().add(c1);
+
+    assertHighlighted(l11, l12);
+  }
+
+  @Test
+  public void ancestorBackgroundUpdate() {
+    indentCell.set(Cell.BACKGROUND, Color.RED);
+    c1.set(Cell.BACKGROUND, Color.BLUE);
+
+    assertBackground(Color.BLUE, l11, l12);
+    assertBackground(Color.RED, l21, l22);
+
+    c1.set(Cell.BACKGROUND, null);
+    assertBackground(Color.RED, l11, l12);
+  }
+
   @Test
   public void addChildToHighlightedPlace() {
     c1.focusHighlighted().set(true);
@@ -122,6 +158,12 @@ public class IndentPropertiesTest extends BaseTestCase {
     }
   }
 
+  private void assertBackground(Color color, Cell... cs) {
+    for (Cell c : cs) {
+      assertEquals(color, getView(c).background().get());
+    }
+  }
+
   private void assertBlank(Cell... cs) {
     for (Cell c : cs) {
       assertNull(getView(c).background().get());
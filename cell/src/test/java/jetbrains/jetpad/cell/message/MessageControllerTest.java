@@ -16,8 +16,12 @@
 package jetbrains.jetpad.cell.message;
 
 import jetbrains.jetpad.cell.HorizontalCell;
+import jetbrains.jetpad.cell.TextCell;
+import jetbrains.jetpad.cell.VerticalCell;
+import jetbrains.jetpad.event.KeyStrokeSpecs;
 import org.junit.Test;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class MessageControllerTest extends MessageControllerTestCase {
@@ -43,4 +47,36 @@ public class MessageControllerTest extends MessageControllerTestCase {
     cell.children().add(child);
     MessageController.setBroken(child, null);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void navigateBetweenMessages() {
+    VerticalCell lines = new VerticalCell();
+    TextCell first = focusableCell("first");
+    TextCell clean = focusableCell("clean");
+    HorizontalCell line = new HorizontalCell();
+    TextCell warning = focusableCell("warning");
+    line.children().add(warning);
+    lines.children().add(first);
+    lines.children().add(clean);
+    lines.children().add(line);
+    myCellContainer.root.children().add(lines);
+    MessageController.setError(first, "error");
+    MessageController.setWarning(line, "warning");
+
+    first.focus();
+    press(KeyStrokeSpecs.NEXT_MESSAGE);
+    assertTrue(warning.focused().get());
+
+    assertFalse(press(KeyStrokeSpecs.NEXT_MESSAGE).isConsumed());
+    assertTrue(warning.focused().get());
+
+    press(KeyStrokeSpecs.PREV_MESSAGE);
+    assertTrue(first.focused().get());
+  }
+
+  private TextCell focusableCell(String text) {
+    TextCell result = new TextCell(text);
+    result.focusable().set(true);
+    return result;
+  }
+}
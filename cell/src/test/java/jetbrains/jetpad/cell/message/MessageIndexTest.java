@@ -0,0 +1,153 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.cell.message;
+
+import jetbrains.jetpad.base.Registration;
+import jetbrains.jetpad.cell.Cell;
+import jetbrains.jetpad.cell.CellContainer;
+import jetbrains.jetpad.cell.CellPropertySpec;
+import jetbrains.jetpad.cell.HorizontalCell;
+import jetbrains.jetpad.cell.TextCell;
+import jetbrains.jetpad.cell.VerticalCell;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MessageIndexTest {
+  private CellContainer container = new CellContainer();
+  private VerticalCell lines = new VerticalCell();
+  private HorizontalCell line1 = new HorizontalCell();
+  private HorizontalCell line2 = new HorizontalCell();
+  private TextCell a = new TextCell("a");
+  private TextCell b = new TextCell("b");
+  private TextCell c = new TextCell("c");
+  private MessageIndex index;
+  private Registration registration;
+
+  @Before
+  public void init() {
+    line1.children().add(a);
+    line1.children().add(b);
+    line2.children().add(c);
+    lines.children().add(line1);
+    lines.children().add(line2);
+    MessageController.setError(b, "error");
+    container.root.children().add(lines);
+
+    index = new MessageIndex(container);
+    registration = index.install();
+  }
+
+  @After
+  public void dispose() {
+    registration.remove();
+  }
+
+  @Test
+  public void initialMessages() {
+    assertEquals(1, index.count(lines, MessageController.ERROR));
+    assertEquals(1, index.count(line1, MessageController.ERROR));
+    assertFalse(index.hasMessages(line2));
+  }
+
+  @Test
+  public void messageChange() {
+    MessageController.setWarning(c, "warning");
+    assertEquals(1, index.count(lines, MessageController.WARNING));
+    assertSame(MessageController.ERROR, index.mostSevere(lines));
+    assertSame(MessageController.WARNING, index.mostSevere(line2));
+
+    MessageController.setError(b, null);
+    assertSame(MessageController.WARNING, index.mostSevere(lines));
+    assertFalse(index.hasMessages(line1));
+  }
+
+  @Test
+  public void subtreeAddedAndRemoved() {
+    HorizontalCell line3 = new HorizontalCell();
+    TextCell d = new TextCell("d");
+    MessageController.setError(d, "error");
+    line3.children().add(d);
+
+    lines.children().add(line3);
+    assertEquals(2, index.count(lines, MessageController.ERROR));
+
+    lines.children().remove(line1);
+    assertEquals(1, index.count(lines, MessageController.ERROR));
+    assertFalse(index.hasMessages(line1));
+    assertFalse(index.hasMessages(b));
+  }
+
+  @Test
+  public void nextAndPrev() {
+    MessageController.setError(c, "error");
+    MessageController.setError(line2, "error");
+
+    assertSame(b, index.next(a, MessageController.ERROR));
+    assertSame(line2, index.next(b, MessageController.ERROR));
+    assertSame(c, index.next(line2, MessageController.ERROR));
+    assertNull(index.next(c, MessageController.ERROR));
+
+    assertSame(line2, index.prev(c, MessageController.ERROR));
+    assertSame(b, index.prev(line2, MessageController.ERROR));
+    assertNull(index.prev(b, MessageController.ERROR));
+  }
+
+  @Test
+  public void nextSkipsOtherKinds() {
+    MessageController.setWarning(c, "warning");
+    assertSame(c, index.next(a, MessageController.WARNING));
+    assertNull(index.prev(c, MessageController.WARNING));
+  }
+
+  @Test
+  public void nextAndPrevOfSeveralKinds() {
+    MessageController.setWarning(c, "warning");
+    List<CellPropertySpec<String>> kinds = Arrays.asList(MessageController.ERROR, MessageController.WARNING);
+
+    assertSame(b, index.next(a, kinds));
+    assertSame(c, index.next(b, kinds));
+    assertSame(b, index.prev(c, kinds));
+    assertNull(index.prev(b, kinds));
+  }
+
+  @Test
+  public void nextAndPrevAmongManySiblings() {
+    HorizontalCell line3 = new HorizontalCell();
+    for (int i = 0; i < 100; i++) {
+      line3.children().add(new TextCell("" + i));
+    }
+    lines.children().add(line3);
+    Cell first = line3.children().get(10);
+    Cell second = line3.children().get(90);
+    MessageController.setError(first, "error");
+    MessageController.setError(second, "error");
+
+    assertSame(second, index.next(first, MessageController.ERROR));
+    assertSame(first, index.prev(second, MessageController.ERROR));
+    assertSame(first, index.next(line3.children().get(0), MessageController.ERROR));
+    assertNull(index.next(second, MessageController.ERROR));
+
+    line3.children().remove(50);
+    MessageController.setError(first, null);
+    assertSame(b, index.prev(second, MessageController.ERROR));
+  }
+}
@@ -159,6 +159,21 @@ public class MessagePopupsDelayTest extends MessageControllerTestCase {
     assertFalse(cell.get(Cell.RED_UNDERLINE));
   }
 
+  @Test
+  public void delayCountedFromLastKey() {
+    showErrorPopup();
+    cell.focus();
+
+    type("a");
+    edt.executeUpdates(MessageTrait.POPUPS_SHOW_DELAY_MILLIS - 100);
+    type("b");
+    edt.executeUpdates(MessageTrait.POPUPS_SHOW_DELAY_MILLIS - 100);
+    assertDecorationPopupVisible(cell, false);
+
+    edt.executeUpdates(100);
+    assertDecorationPopupVisible(cell, true);
+  }
+
   private void assertPopupText(String expected) {
     assertTrue(((TextCell) cell.get(MessageTrait.POPUP_POSITION)).text().get().contains(expected));
   }
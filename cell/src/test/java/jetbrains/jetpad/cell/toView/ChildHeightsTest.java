@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.cell.toView;
+
+import jetbrains.jetpad.cell.TextCell;
+import jetbrains.jetpad.test.BaseTestCase;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChildHeightsTest extends BaseTestCase {
+  private ChildHeights heights = new ChildHeights();
+
+  @Test
+  public void unknownHeightsAreEstimated() {
+    add(3);
+
+    assertEquals(3 * ChildHeights.DEFAULT_ESTIMATED_HEIGHT, heights.sum(0, 3));
+
+    heights.setHeight(0, 10);
+    heights.setHeight(1, 30);
+
+    assertEquals(60, heights.sum(0, 3));
+    assertEquals(50, heights.sum(1, 3));
+  }
+
+  @Test
+  public void invisibleChildHasNoHeight() {
+    TextCell hidden = new TextCell();
+    hidden.visible().set(false);
+    heights.insert(0, hidden);
+
+    assertEquals(0, heights.sum(0, 1));
+  }
+
+  @Test
+  public void visibilityChanges() {
+    add(3);
+    heights.setHeight(0, 10);
+    heights.setHeight(1, 30);
+
+    heights.setVisible(1, false);
+    assertEquals(20, heights.sum(0, 3));
+
+    heights.setVisible(1, true);
+    assertEquals(30, heights.sum(0, 3));
+  }
+
+  @Test
+  public void indexOf() {
+    TextCell[] cells = add(100);
+    TextCell first = new TextCell();
+    heights.insert(0, first);
+    heights.remove(50);
+
+    assertEquals(0, heights.indexOf(first));
+    assertEquals(1, heights.indexOf(cells[0]));
+    assertEquals(-1, heights.indexOf(cells[49]));
+    assertEquals(99, heights.indexOf(cells[99]));
+  }
+
+  @Test
+  public void lastPrefixAtMost() {
+    add(4);
+    for (int i = 0; i < 4; i++) {
+      heights.setHeight(i, 10);
+    }
+    heights.setHeight(2, 0);
+
+    assertEquals(-1, heights.lastPrefixAtMost(-1));
+    assertEquals(0, heights.lastPrefixAtMost(9));
+    assertEquals(1, heights.lastPrefixAtMost(10));
+    assertEquals(3, heights.lastPrefixAtMost(20));
+    assertEquals(4, heights.lastPrefixAtMost(100));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void removeOutOfBounds() {
+    add(2);
+    heights.remove(2);
+  }
+
+  private TextCell[] add(int count) {
+    TextCell[] cells = new TextCell[count];
+    for (int i = 0; i < count; i++) {
+      cells[i] = new TextCell();
+      heights.insert(heights.size(), cells[i]);
+    }
+    return cells;
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.cell.toView;
+
+import jetbrains.jetpad.base.Registration;
+import jetbrains.jetpad.cell.CellContainer;
+import jetbrains.jetpad.cell.TextCell;
+import jetbrains.jetpad.cell.VerticalCell;
+import jetbrains.jetpad.geometry.Rectangle;
+import jetbrains.jetpad.projectional.view.ViewContainer;
+import jetbrains.jetpad.projectional.view.spi.NullViewContainerPeer;
+
+/**
+ * Mapping time and retained heap of a 100k-line vertical cell, with and without virtualization.
+ */
+public class VirtualizedVerticalCellBenchmark {
+  private static final int LINES = 100000;
+
+  public static void main(String[] args) {
+    run(false);
+    run(true);
+    run(false);
+    run(true);
+  }
+
+  private static void run(boolean virtualized) {
+    CellContainer cellContainer = new CellContainer();
+    VerticalCell vertical = new VerticalCell();
+    vertical.set(VerticalCell.VIRTUALIZED, virtualized);
+    for (int i = 0; i < LINES; i++) {
+      vertical.children().add(new TextCell("line " + i + ": the quick brown fox jumps over the lazy dog"));
+    }
+    cellContainer.root.children().add(vertical);
+
+    ViewContainer viewContainer = new ViewContainer();
+    viewContainer.setPeer(new NullViewContainerPeer() {
+      @Override
+      public Rectangle visibleRect() {
+        return new Rectangle(0, 0, 800, 600);
+      }
+    });
+
+    long heapBefore = usedHeap();
+    long start = System.nanoTime();
+    Registration registration = CellToView.map(cellContainer, viewContainer);
+    viewContainer.root().validate();
+    long mapMillis = (System.nanoTime() - start) / 1000000;
+
+    start = System.nanoTime();
+    Rectangle bounds = vertical.children().get(LINES / 2).getBounds();
+    long lookupMillis = (System.nanoTime() - start) / 1000000;
+    long heapAfter = usedHeap();
+
+    System.out.println((virtualized ? "virtualized" : "plain") + ": map + validate " + mapMillis + " ms, "
+        + "bounds of middle line " + lookupMillis + " ms at y=" + bounds.origin.y + ", "
+        + "retained " + (heapAfter - heapBefore) / 1024 + " KB");
+
+    registration.remove();
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.cell.toView;
+
+import jetbrains.jetpad.base.Registration;
+import jetbrains.jetpad.cell.CellContainer;
+import jetbrains.jetpad.cell.TextCell;
+import jetbrains.jetpad.cell.VerticalCell;
+import jetbrains.jetpad.geometry.Rectangle;
+import jetbrains.jetpad.geometry.Vector;
+import jetbrains.jetpad.projectional.view.TextView;
+import jetbrains.jetpad.projectional.view.VerticalView;
+import jetbrains.jetpad.projectional.view.View;
+import jetbrains.jetpad.projectional.view.ViewContainer;
+import jetbrains.jetpad.projectional.view.spi.NullViewContainerPeer;
+import jetbrains.jetpad.test.BaseTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualizedVerticalCellMapperTest extends BaseTestCase {
+  private static final int SIZE = 1000;
+
+  private CellContainer cellContainer = new CellContainer();
+  private ViewContainer viewContainer = new ViewContainer();
+  private VerticalCell vertical = new VerticalCell();
+  private Registration registration;
+  private Rectangle visible = new Rectangle(0, 0, 800, 600);
+
+  @Before
+  public void init() {
+    viewContainer.setPeer(new NullViewContainerPeer() {
+      @Override
+      public Rectangle visibleRect() {
+        return visible;
+      }
+    });
+
+    vertical.set(VerticalCell.VIRTUALIZED, true);
+    for (int i = 0; i < SIZE; i++) {
+      vertical.children().add(new TextCell("line " + i));
+    }
+    cellContainer.root.children().add(vertical);
+    registration = CellToView.map(cellContainer, viewContainer);
+  }
+
+  @After
+  public void dispose() {
+    registration.remove();
+  }
+
+  @Test
+  public void onlyWindowIsMapped() {
+    assertTrue(verticalView().children().size() < SIZE);
+  }
+
+  @Test
+  public void boundsOfUnmappedChild() {
+    vertical.children().get(SIZE - 1).getBounds();
+    Rectangle beforeLast = vertical.children().get(SIZE - 2).getBounds();
+    Rectangle last = vertical.children().get(SIZE - 1).getBounds();
+
+    assertTrue(last.dimension.y > 0);
+    assertTrue(beforeLast.origin.y < last.origin.y);
+    assertEquals(vertical.getBounds().origin.y + vertical.getBounds().dimension.y, last.origin.y + last.dimension.y);
+  }
+
+  @Test
+  public void childAddedBeforeWindow() {
+    vertical.children().get(SIZE - 1).getBounds();
+    vertical.children().add(0, new TextCell("first"));
+
+    assertTrue(vertical.children().get(SIZE).getBounds().dimension.y > 0);
+    assertTrue(vertical.children().get(0).getBounds().dimension.y > 0);
+  }
+
+  @Test
+  public void childRemovedInWindow() {
+    int size = verticalView().children().size();
+    vertical.children().remove(0);
+
+    assertEquals(size - 1, verticalView().children().size());
+  }
+
+  @Test
+  public void hidingUnrealizedChildren() {
+    int height = vertical.getBounds().dimension.y;
+    for (int i = SIZE / 2; i < SIZE; i++) {
+      vertical.children().get(i).visible().set(false);
+    }
+
+    assertTrue(vertical.getBounds().dimension.y < height);
+
+    for (int i = SIZE / 2; i < SIZE; i++) {
+      vertical.children().get(i).visible().set(true);
+    }
+
+    assertEquals(height, vertical.getBounds().dimension.y);
+  }
+
+  @Test
+  public void scrollingMovesWindow() {
+    scrollTo(vertical.getBounds().dimension.y / 2);
+
+    int first = firstRealizedLine();
+    assertTrue(first > 0);
+    assertTrue(lastRealizedLine() < SIZE - 1);
+    assertTrue(verticalView().children().get(0).visible().get());
+
+    scrollTo(0);
+
+    assertEquals(0, firstRealizedLine());
+    assertFalse(verticalView().children().get(0).visible().get());
+  }
+
+  @Test
+  public void scrollingToEnd() {
+    scrollTo(vertical.getBounds().dimension.y - visible.dimension.y);
+
+    assertTrue(firstRealizedLine() > 0);
+    assertEquals(SIZE - 1, lastRealizedLine());
+    assertFalse(verticalView().children().get(verticalView().children().size() - 1).visible().get());
+  }
+
+  @Test
+  public void windowCoversVisibleRect() {
+    int y = vertical.getBounds().dimension.y / 3;
+    scrollTo(y);
+
+    Rectangle first = vertical.children().get(firstRealizedLine()).getBounds();
+    Rectangle last = vertical.children().get(lastRealizedLine()).getBounds();
+    assertTrue(first.origin.y <= y);
+    assertTrue(last.origin.y + last.dimension.y >= y + visible.dimension.y);
+  }
+
+  private void scrollTo(int y) {
+    visible = new Rectangle(new Vector(0, y), visible.dimension);
+    viewContainer.visibleRectChanged();
+  }
+
+  private int firstRealizedLine() {
+    return realizedLine(verticalView().children().get(1));
+  }
+
+  private int lastRealizedLine() {
+    VerticalView view = verticalView();
+    return realizedLine(view.children().get(view.children().size() - 2));
+  }
+
+  private int realizedLine(View view) {
+    String text = ((TextView) view).text().get();
+    return Integer.parseInt(text.substring("line ".length()));
+  }
+
+  private VerticalView verticalView() {
+    return find(viewContainer.contentRoot());
+  }
+
+  private VerticalView find(View view) {
+    if (view instanceof VerticalView) return (VerticalView) view;
+    for (View child : view.children()) {
+      VerticalView result = find(child);
+      if (result != null) return result;
+    }
+    return null;
+  }
+}
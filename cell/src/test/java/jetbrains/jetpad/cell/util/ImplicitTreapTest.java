@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.cell.util;
+
+import jetbrains.jetpad.test.BaseTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ImplicitTreapTest extends BaseTestCase {
+  private ImplicitTreap<SumNode> tree = new ImplicitTreap<>();
+
+  @Test
+  public void insertAndRemove() {
+    SumNode a = insert(0, 1);
+    SumNode c = insert(1, 3);
+    SumNode b = insert(1, 2);
+
+    assertSame(a, tree.get(0));
+    assertSame(b, tree.get(1));
+    assertSame(c, tree.get(2));
+    assertEquals(2, tree.indexOf(c));
+
+    assertSame(b, tree.remove(1));
+    assertEquals(1, tree.indexOf(c));
+    assertEquals(2, tree.size());
+  }
+
+  @Test
+  public void aggregatesFollowChanges() {
+    for (int i = 0; i < 10; i++) {
+      insert(i, i);
+    }
+    assertEquals(45, tree.root().sum);
+
+    SumNode node = tree.get(5);
+    node.value = 15;
+    tree.updated(node);
+    assertEquals(55, tree.root().sum);
+
+    tree.remove(5);
+    assertEquals(40, tree.root().sum);
+  }
+
+  @Test
+  public void mirrorsList() {
+    Random random = new Random(0);
+    List<SumNode> list = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      if (list.isEmpty() || random.nextInt(3) > 0) {
+        int index = random.nextInt(list.size() + 1);
+        list.add(index, insert(index, i));
+      } else {
+        int index = random.nextInt(list.size());
+        assertSame(list.remove(index), tree.remove(index));
+      }
+    }
+
+    assertEquals(list.size(), tree.size());
+    for (int i = 0; i < list.size(); i++) {
+      assertSame(list.get(i), tree.get(i));
+      assertEquals(i, tree.indexOf(list.get(i)));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void indexOfRemoved() {
+    insert(0, 1);
+    tree.indexOf(tree.remove(0));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void insertOutOfBounds() {
+    insert(1, 1);
+  }
+
+  private SumNode insert(int index, int value) {
+    SumNode node = new SumNode(value);
+    tree.insert(index, node);
+    return node;
+  }
+
+  private static class SumNode extends ImplicitTreap.Node<SumNode> {
+    private int value;
+    private int sum;
+
+    private SumNode(int value) {
+      this.value = value;
+    }
+
+    @Override
+    protected void update() {
+      sum = value;
+      if (left() != null) {
+        sum += left().sum;
+      }
+      if (right() != null) {
+        sum += right().sum;
+      }
+    }
+  }
+}
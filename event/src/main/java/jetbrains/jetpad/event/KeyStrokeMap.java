@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.event;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bindings of key strokes to values (usually handlers or commands) which are looked up with a single hash lookup
+ * instead of matching an event against every spec. Specs are expanded into their key strokes when they are added,
+ * and a key stroke bound twice is reported right away.
+ */
+public final class KeyStrokeMap<ValueT> {
+  private final Map<KeyStroke, ValueT> myBindings = new HashMap<>();
+
+  public KeyStrokeMap<ValueT> put(KeyStrokeSpec spec, ValueT value) {
+    if (value == null) {
+      throw new IllegalArgumentException("Null value for " + spec);
+    }
+    //nothing is bound if any of the key strokes is already taken
+    for (KeyStroke keyStroke : spec.getKeyStrokes()) {
+      ValueT old = myBindings.get(keyStroke);
+      if (old != null) {
+        throw new IllegalArgumentException("Key stroke " + keyStroke + " is bound to both " + old + " and " + value);
+      }
+    }
+    for (KeyStroke keyStroke : spec.getKeyStrokes()) {
+      myBindings.put(keyStroke, value);
+    }
+    return this;
+  }
+
+  public ValueT get(KeyStroke keyStroke) {
+    return myBindings.get(keyStroke);
+  }
+
+  public ValueT get(KeyEvent event) {
+    return myBindings.get(event.getKeyStroke());
+  }
+}
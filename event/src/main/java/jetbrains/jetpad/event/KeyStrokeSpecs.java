@@ -72,6 +72,9 @@ public class KeyStrokeSpecs {
 
   public static final KeyStrokeSpec NAVIGATE = ctrlOrMeta(Key.B);
 
+  public static final KeyStrokeSpec NEXT_MESSAGE = new KeyStroke(Key.F2);
+  public static final KeyStrokeSpec PREV_MESSAGE = new KeyStroke(Key.F2, ModifierKey.SHIFT);
+
   public static KeyStrokeSpec ctrlOrMeta(Key key, ModifierKey... modifiers) {
     return composite(new KeyStroke(key, add(ModifierKey.CONTROL, modifiers)), new KeyStroke(key, add(ModifierKey.META, modifiers)));
   }
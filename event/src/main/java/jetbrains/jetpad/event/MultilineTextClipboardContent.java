@@ -17,11 +17,18 @@ package jetbrains.jetpad.event;
 
 import static jetbrains.jetpad.event.ContentKinds.*;
 
+/**
+ * Lines are split from the copied text lazily on every iteration, and the text is joined back at most once.
+ */
 class MultilineTextClipboardContent implements ClipboardContent {
-  private Iterable<String> myLines;
+  private final Iterable<String> myLines;
+  private String myText;
 
-  MultilineTextClipboardContent(Iterable<String> text) {
-    myLines = text;
+  MultilineTextClipboardContent(String text) {
+    myLines = TextContentHelper.splitByNewline(text);
+    if (TextContentHelper.isJoined(text)) {
+      myText = text;
+    }
   }
 
   @Override
@@ -35,4 +42,11 @@ class MultilineTextClipboardContent implements ClipboardContent {
 
     throw new IllegalArgumentException();
   }
+
+  String getText() {
+    if (myText == null) {
+      myText = TextContentHelper.joinLines(myLines);
+    }
+    return myText;
+  }
 }
@@ -27,7 +27,7 @@ public class TextContentHelper {
 
   public static ClipboardContent createClipboardContent(String string) {
     if (string.indexOf(NEWLINE) != -1 || string.indexOf(CARRIAGE_RETURN) != -1) {
-      return new MultilineTextClipboardContent(splitByNewline(string));
+      return new MultilineTextClipboardContent(string);
     }
     return new SingleLineTextClipboardContent(string);
   }
@@ -40,6 +40,9 @@ public class TextContentHelper {
     if (content.isSupported(SINGLE_LINE_TEXT)) {
       return content.get(SINGLE_LINE_TEXT);
     }
+    if (content instanceof MultilineTextClipboardContent) {
+      return ((MultilineTextClipboardContent) content).getText();
+    }
     if (content.isSupported(MULTILINE_TEXT)) {
       return joinLines(content.get(MULTILINE_TEXT));
     }
@@ -63,10 +66,20 @@ public class TextContentHelper {
     return multiline.toString();
   }
 
+  /**
+   * @return whether the text is equal to the result of {@link #joinLines} of its lines
+   */
+  static boolean isJoined(String multiline) {
+    return multiline.indexOf(CARRIAGE_RETURN) == -1
+        && (multiline.isEmpty() || multiline.charAt(multiline.length() - 1) == NEWLINE);
+  }
+
   // Recognized EOL sequences: \r, \n, \r\n, \n\r
   private static class LinesIterator implements Iterator<String> {
     private final String myMultiline;
     private int myCurrentPos;
+    private int myNextCarriageReturn = -1;
+    private int myNextNewline = -1;
 
     private LinesIterator(String multiline) {
       this.myMultiline = multiline;
@@ -97,9 +110,19 @@ public class TextContentHelper {
     }
 
     private void advancePastStringBody() {
-      while (lookingAtStringBody()) {
-        advance();
+      //positions of separators are kept, so that each of them is searched for once per separator, not once per line
+      if (myNextCarriageReturn != myMultiline.length() && myNextCarriageReturn < myCurrentPos) {
+        myNextCarriageReturn = indexOf(CARRIAGE_RETURN);
+      }
+      if (myNextNewline != myMultiline.length() && myNextNewline < myCurrentPos) {
+        myNextNewline = indexOf(NEWLINE);
       }
+      myCurrentPos = Math.min(myNextCarriageReturn, myNextNewline);
+    }
+
+    private int indexOf(char ch) {
+      int result = myMultiline.indexOf(ch, myCurrentPos);
+      return result == -1 ? myMultiline.length() : result;
     }
 
     private void advancePastNewline() {
@@ -129,10 +152,6 @@ public class TextContentHelper {
       myCurrentPos++;
     }
 
-    private boolean lookingAtStringBody() {
-      return !lookingAtEOF() && current() != CARRIAGE_RETURN && current() != NEWLINE;
-    }
-
     private boolean lookingAtEOF() {
       return myCurrentPos == myMultiline.length();
     }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.event;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class KeyStrokeMapTest {
+  private KeyStrokeMap<String> myMap = new KeyStrokeMap<>();
+
+  @Test
+  public void singleKeyStroke() {
+    myMap.put(new KeyStroke(Key.ENTER), "enter");
+
+    assertEquals("enter", myMap.get(new KeyStroke(Key.ENTER)));
+    assertNull(myMap.get(new KeyStroke(Key.ENTER, ModifierKey.SHIFT)));
+  }
+
+  @Test
+  public void compositeSpecIsExpanded() {
+    myMap.put(KeyStrokeSpecs.SELECT_AFTER, "selectAfter");
+
+    assertEquals("selectAfter", myMap.get(new KeyStroke(Key.DOWN, ModifierKey.SHIFT)));
+    assertEquals("selectAfter", myMap.get(new KeyStroke(Key.RIGHT, ModifierKey.SHIFT)));
+    assertNull(myMap.get(new KeyStroke(Key.RIGHT)));
+  }
+
+  @Test
+  public void lookupByEvent() {
+    myMap.put(KeyStrokeSpecs.COPY, "copy");
+
+    assertEquals("copy", myMap.get(new KeyEvent(Key.C, 'c', Collections.singleton(ModifierKey.CONTROL))));
+    assertNull(myMap.get(new KeyEvent(Key.C, 'c', Collections.<ModifierKey>emptySet())));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void duplicateBindingRejected() {
+    myMap.put(new KeyStroke(Key.RIGHT, ModifierKey.SHIFT), "right");
+    myMap.put(KeyStrokeSpecs.SELECT_AFTER, "selectAfter");
+  }
+
+  @Test
+  public void rejectedSpecBindsNothing() {
+    myMap.put(new KeyStroke(Key.RIGHT, ModifierKey.SHIFT), "right");
+    try {
+      myMap.put(KeyStrokeSpecs.SELECT_AFTER, "selectAfter");
+      fail();
+    } catch (IllegalArgumentException e) {
+      //expected
+    }
+
+    assertNull(myMap.get(new KeyStroke(Key.DOWN, ModifierKey.SHIFT)));
+    assertEquals("right", myMap.get(new KeyStroke(Key.RIGHT, ModifierKey.SHIFT)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nullValueRejected() {
+    myMap.put(new KeyStroke(Key.ENTER), null);
+  }
+}
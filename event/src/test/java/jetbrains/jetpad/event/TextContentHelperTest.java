@@ -0,0 +1,121 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.event;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TextContentHelperTest {
+  @Test
+  public void newline() {
+    assertLines("a\nb", "a", "b");
+  }
+
+  @Test
+  public void carriageReturnNewline() {
+    assertLines("a\r\nb", "a", "b");
+  }
+
+  @Test
+  public void carriageReturn() {
+    assertLines("a\rb", "a", "b");
+  }
+
+  @Test
+  public void newlineCarriageReturn() {
+    assertLines("a\n\rb", "a", "b");
+  }
+
+  @Test
+  public void mixedSeparators() {
+    assertLines("a\nb\r\nc\rd\n\re", "a", "b", "c", "d", "e");
+  }
+
+  @Test
+  public void emptyLines() {
+    assertLines("a\n\nb", "a", "", "b");
+    assertLines("a\r\n\r\nb", "a", "", "b");
+    assertLines("\n", "");
+    assertLines("\n\n", "", "");
+  }
+
+  @Test
+  public void trailingNewline() {
+    assertLines("a\n", "a");
+    assertLines("a\r\n", "a");
+    assertLines("a\r", "a");
+    assertLines("a\n\r", "a");
+  }
+
+  @Test
+  public void noNewline() {
+    assertLines("a", "a");
+  }
+
+  @Test
+  public void emptyInput() {
+    assertLines("");
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void nextAfterLastLine() {
+    Iterator<String> lines = TextContentHelper.splitByNewline("a").iterator();
+    lines.next();
+    lines.next();
+  }
+
+  @Test
+  public void joinLines() {
+    assertEquals("a\nb\n", TextContentHelper.joinLines(Arrays.asList("a", "b")));
+    assertEquals("", TextContentHelper.joinLines(Collections.<String>emptyList()));
+  }
+
+  @Test
+  public void isJoined() {
+    assertTrue(TextContentHelper.isJoined(""));
+    assertTrue(TextContentHelper.isJoined("a\n"));
+    assertTrue(TextContentHelper.isJoined("a\n\nb\n"));
+    assertFalse(TextContentHelper.isJoined("a"));
+    assertFalse(TextContentHelper.isJoined("a\nb"));
+    assertFalse(TextContentHelper.isJoined("a\r\n"));
+    assertFalse(TextContentHelper.isJoined("a\r"));
+  }
+
+  @Test
+  public void joinedTextIsJoinOfItsLines() {
+    for (String text : Arrays.asList("", "a\n", "a\n\nb\n", "\n")) {
+      assertEquals(text, TextContentHelper.joinLines(TextContentHelper.splitByNewline(text)));
+    }
+  }
+
+  private void assertLines(String text, String... expected) {
+    List<String> actual = new ArrayList<>();
+    for (String line : TextContentHelper.splitByNewline(text)) {
+      actual.add(line);
+    }
+    assertEquals(Arrays.asList(expected), actual);
+  }
+}
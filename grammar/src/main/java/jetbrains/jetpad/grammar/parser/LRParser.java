@@ -57,55 +57,166 @@ public class LRParser {
   }
 
   public Object parse(List<Lexeme> input, Function<Rule, RuleHandler> handlerProvider) {
-    Stack<ParseStackItem> stack = new Stack<>();
-    stack.push(new ParseStackItem(myTable.getInitialState(), -1, -1, null, null));
+    return parse(input, handlerProvider, null);
+  }
+
+  /**
+   * Parses the input and recovers from errors instead of failing. When there's no action for the current lexeme,
+   * the parser replaces the shortest invalid part of the input with a value of some non terminal, so that
+   * parsing can continue. The value is created by a handler from errorHandlerProvider. The context of this handler
+   * contains values of the popped stack items, which are valid parts of the input, and its range covers these items
+   * together with the skipped lexemes. Non terminals for which errorHandlerProvider returns null aren't used
+   * for recovery.
+   *
+   * Recoveries which skip fewer lexemes are preferred, and then the ones which pop fewer stack items.
+   * If errorHandlerProvider is null, or the parser can't recover, null is returned.
+   */
+  public Object parse(List<Lexeme> input, Function<Rule, RuleHandler> handlerProvider,
+                      Function<NonTerminal, RuleHandler> errorHandlerProvider) {
+    ParseStackItem stack = new ParseStackItem(null, myTable.getInitialState(), -1, -1, null, null);
     int pos = 0;
+    int inputEnd = -1;
+    int errorPos = -1;
+    int errorCount = 0;
     while (true) {
       Lexeme lexeme = pos < input.size() ? input.get(pos) : null;
       Terminal current = lexeme != null ? lexeme.getTerminal() : myTable.getGrammar().getEnd();
-      LRParserState state = stack.peek().state;
-      LRParserAction<LRParserState> action = state.getAction(current);
+      LRParserAction<LRParserState> action = stack.state.getAction(current);
       if (action instanceof LRParserAction.Shift) {
         LRParserAction.Shift<LRParserState> shift = (LRParserAction.Shift<LRParserState>) action;
-        stack.push(new ParseStackItem(shift.getState(), pos, pos + 1, current, lexeme));
+        stack = new ParseStackItem(stack, shift.getState(), pos, pos + 1, current, lexeme);
         pos++;
       } else if (action instanceof LRParserAction.Reduce) {
-        LRParserAction.Reduce<LRParserState> reduce = (LRParserAction.Reduce<LRParserState>) action;
+        Rule rule = ((LRParserAction.Reduce<LRParserState>) action).getRule();
 
-        List<Object> handlerInput = new ArrayList<>();
+        Object[] values = new Object[rule.getSymbols().size()];
         int startOffset = pos;
-        List<Symbol> symbols = reduce.getRule().getSymbols();
-        for (int i = 0; i < symbols.size(); i++) {
-          ParseStackItem top = stack.pop();
-          if (i == symbols.size() - 1) {
-            startOffset = top.start;
-          }
-          handlerInput.add(top.result);
+        for (int i = values.length - 1; i >= 0; i--) {
+          values[i] = stack.result;
+          startOffset = stack.start;
+          stack = stack.prev;
         }
-        Collections.reverse(handlerInput);
+        List<Object> handlerInput = Arrays.asList(values);
 
-        LRParserState nextState = stack.peek().state.getNextState(reduce.getRule().getHead());
+        LRParserState nextState = stack.state.getNextState(rule.getHead());
         RuleContext ruleContext = new MyRuleContext(Range.closed(startOffset, pos), handlerInput, input);
-        RuleHandler handler = handlerProvider.apply(reduce.getRule());
+        RuleHandler handler = handlerProvider.apply(rule);
         Object result = handler != null ? handler.handle(ruleContext) : handlerInput;
 
-        stack.push(new ParseStackItem(nextState, startOffset, pos, reduce.getRule().getHead(), result));
+        stack = new ParseStackItem(stack, nextState, startOffset, pos, rule.getHead(), result);
       } else if (action instanceof LRParserAction.Accept) {
-        return stack.peek().result;
+        return stack.result;
       } else {
-        return null;
+        if (errorHandlerProvider == null) return null;
+        if (inputEnd == -1) {
+          inputEnd = inputEnd(input);
+        }
+
+        if (pos == errorPos) {
+          errorCount++;
+        } else {
+          errorPos = pos;
+          errorCount = 0;
+        }
+
+        //the second error at the same position means that the previous recovery wasn't enough, so more input has to
+        //be consumed: some lexemes are skipped or, at the end of the input, the whole stack is popped
+        ParseStackItem recovered;
+        if (errorCount == 0) {
+          recovered = recover(stack, pos, 0, 0, input, inputEnd, errorHandlerProvider);
+        } else if (errorCount == 1) {
+          if (pos < inputEnd) {
+            recovered = recover(stack, pos, 1, 0, input, inputEnd, errorHandlerProvider);
+          } else {
+            recovered = recover(stack, pos, 0, depth(stack), input, inputEnd, errorHandlerProvider);
+          }
+        } else {
+          recovered = null;
+        }
+        if (recovered == null) return null;
+
+        stack = recovered;
+        pos = recovered.end;
+      }
+    }
+  }
+
+  private ParseStackItem recover(ParseStackItem stack, int pos, int minSkip, int minPop, List<Lexeme> input,
+                                 int end, Function<NonTerminal, RuleHandler> errorHandlerProvider) {
+    List<NonTerminal> nonTerminals = new ArrayList<>();
+    for (NonTerminal nt : myTable.getGrammar().getNonTerminals()) {
+      if (nt != myTable.getGrammar().getStart() && errorHandlerProvider.apply(nt) != null) {
+        nonTerminals.add(nt);
       }
     }
+    if (nonTerminals.isEmpty()) return null;
+
+    for (int skip = minSkip; pos + skip <= end; skip++) {
+      Terminal lookahead = pos + skip < input.size()
+          ? input.get(pos + skip).getTerminal() : myTable.getGrammar().getEnd();
+      ParseStackItem item = stack;
+      int popped = 0;
+      while (popped < minPop && item.prev != null) {
+        item = item.prev;
+        popped++;
+      }
+      while (true) {
+        for (NonTerminal nt : nonTerminals) {
+          LRParserState nextState = item.state.findNextState(nt);
+          if (nextState == null || nextState.getAction(lookahead) instanceof LRParserAction.Error) continue;
+          return errorItem(stack, popped, item, nextState, nt, pos, pos + skip, input, errorHandlerProvider.apply(nt));
+        }
+        if (item.prev == null) break;
+        item = item.prev;
+        popped++;
+      }
+    }
+    return null;
+  }
+
+  private ParseStackItem errorItem(ParseStackItem stack, int popped, ParseStackItem base, LRParserState nextState,
+                                   NonTerminal nonTerminal, int pos, int end, List<Lexeme> input, RuleHandler handler) {
+    Object[] values = new Object[popped];
+    int startOffset = pos;
+    for (int i = popped - 1; i >= 0; i--) {
+      values[i] = stack.result;
+      startOffset = stack.start;
+      stack = stack.prev;
+    }
+    RuleContext ruleContext = new MyRuleContext(Range.closed(startOffset, end), Arrays.asList(values), input);
+    return new ParseStackItem(base, nextState, startOffset, end, nonTerminal, handler.handle(ruleContext));
+  }
+
+  private int inputEnd(List<Lexeme> input) {
+    for (int i = 0; i < input.size(); i++) {
+      if (input.get(i).getTerminal() == myTable.getGrammar().getEnd()) return i;
+    }
+    return input.size();
+  }
+
+  private int depth(ParseStackItem stack) {
+    int result = 0;
+    for (ParseStackItem item = stack; item.prev != null; item = item.prev) {
+      result++;
+    }
+    return result;
   }
 
-  private class ParseStackItem {
+  /**
+   * Immutable node of the parse stack which links to the item below it. Reductions only drop items from the top
+   * and push new ones, so an item, once created, is a snapshot of the whole stack under it and can be shared
+   * between parser configurations.
+   */
+  private static class ParseStackItem {
+    final ParseStackItem prev;
     final LRParserState state;
     final int start;
     final int end;
     final Symbol symbol;
     final Object result;
 
-    ParseStackItem(LRParserState state, int start, int end, Symbol symbol, Object result) {
+    ParseStackItem(ParseStackItem prev, LRParserState state, int start, int end, Symbol symbol, Object result) {
+      this.prev = prev;
       this.state = state;
       this.start = start;
       this.end = end;
@@ -37,13 +37,17 @@ public class LRParserState {
   }
 
   public LRParserState getNextState(NonTerminal nonTerminal) {
-    LRParserState result = myNextStates.get(nonTerminal);
+    LRParserState result = findNextState(nonTerminal);
     if (result == null) {
       throw new IllegalStateException();
     }
     return result;
   }
 
+  LRParserState findNextState(NonTerminal nonTerminal) {
+    return myNextStates.get(nonTerminal);
+  }
+
   public void addAction(Terminal terminal, LRParserAction<LRParserState> action) {
     if (myActions.containsKey(terminal)) {
       throw new IllegalStateException();
@@ -15,12 +15,15 @@
  */
 package jetbrains.jetpad.grammar;
 
+import com.google.common.base.Function;
 import com.google.common.collect.Range;
 import jetbrains.jetpad.grammar.parser.LRParser;
 import jetbrains.jetpad.grammar.parser.LRParserTable;
 import jetbrains.jetpad.grammar.parser.Lexeme;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.google.common.collect.ImmutableList.of;
@@ -162,6 +165,98 @@ public abstract class BaseParserGenerationTest {
     assertEquals(of("id"), parse.right.getLexemesValues());
   }
 
+  @Test
+  public void recoveryFromMissingOperand() {
+    SimplePrecedenceGrammar g = new SimplePrecedenceGrammar();
+    g.plusRule.setAssociativity(Associativity.LEFT).setPriority(0);
+
+    Object parse = parseWithRecovery(g, g.id, g.plus, g.plus, g.id);
+
+    assertEquals("((id + error) + id)", parse.toString());
+  }
+
+  @Test
+  public void recoveryAtInputEnd() {
+    SimplePrecedenceGrammar g = new SimplePrecedenceGrammar();
+    g.plusRule.setAssociativity(Associativity.LEFT).setPriority(0);
+
+    BinExpr parse = (BinExpr) parseWithRecovery(g, g.id, g.plus);
+
+    assertEquals("(id + error)", parse.toString());
+    assertEquals(Range.closed(2, 2), parse.right.getRange());
+  }
+
+  @Test
+  public void recoveryFromUnexpectedLexeme() {
+    SimplePrecedenceGrammar g = new SimplePrecedenceGrammar();
+    g.plusRule.setAssociativity(Associativity.LEFT).setPriority(0);
+
+    BinExpr parse = (BinExpr) parseWithRecovery(g, g.id, g.plus, g.id, g.id);
+
+    assertEquals("(id + error)", parse.toString());
+    ErrorExpr error = (ErrorExpr) parse.right;
+    assertEquals(Range.closed(2, 4), error.getRange());
+    assertEquals(of("id", "id"), error.getLexemesValues());
+    assertEquals(1, error.parts.size());
+  }
+
+  @Test
+  public void recoveryFromUnexpectedLexemeAtStart() {
+    SimplePrecedenceGrammar g = new SimplePrecedenceGrammar();
+    g.plusRule.setAssociativity(Associativity.LEFT).setPriority(0);
+
+    Object parse = parseWithRecovery(g, g.plus, g.id, g.plus, g.id);
+
+    assertEquals("((error + id) + id)", parse.toString());
+  }
+
+  @Test
+  public void noRecoveryWithoutErrorHandlers() {
+    SimplePrecedenceGrammar g = new SimplePrecedenceGrammar();
+    g.plusRule.setAssociativity(Associativity.LEFT).setPriority(0);
+
+    LRParser parser = new LRParser(generateTable(g.grammar));
+    List<Lexeme> input = Arrays.asList(asLexemes(g.id, g.plus, g.plus, g.id));
+    Object parse = parser.parse(input, new Function<Rule, RuleHandler>() {
+      @Override
+      public RuleHandler apply(Rule rule) {
+        return rule.getHandler();
+      }
+    }, new Function<NonTerminal, RuleHandler>() {
+      @Override
+      public RuleHandler apply(NonTerminal nonTerminal) {
+        return null;
+      }
+    });
+
+    assertNull(parse);
+  }
+
+  private Object parseWithRecovery(final SimplePrecedenceGrammar g, Terminal... input) {
+    LRParser parser = new LRParser(generateTable(g.grammar));
+    return parser.parse(Arrays.asList(asLexemes(input)), new Function<Rule, RuleHandler>() {
+      @Override
+      public RuleHandler apply(Rule rule) {
+        return rule.getHandler();
+      }
+    }, new Function<NonTerminal, RuleHandler>() {
+      @Override
+      public RuleHandler apply(NonTerminal nonTerminal) {
+        if (nonTerminal != g.expr) return null;
+        return new RuleHandler() {
+          @Override
+          public Object handle(RuleContext ctx) {
+            List<Object> parts = new ArrayList<>();
+            for (int i = 0; i < ctx.getValueCount(); i++) {
+              parts.add(ctx.get(i));
+            }
+            return new ErrorExpr(parts, ctx.getRange(), ctx.getLexemeValues());
+          }
+        };
+      }
+    });
+  }
+
   private class SimplePrecedenceGrammar {
     final Grammar grammar = new Grammar();
 
@@ -242,6 +337,20 @@ public abstract class BaseParserGenerationTest {
     }
   }
 
+  private class ErrorExpr extends Expr {
+    final List<Object> parts;
+
+    private ErrorExpr(List<Object> parts, Range<Integer> range, List<Object> lexemesValues) {
+      super(range, lexemesValues);
+      this.parts = parts;
+    }
+
+    @Override
+    public String toString() {
+      return "error";
+    }
+  }
+
   private class BinExpr extends Expr {
     final Expr left;
     final Expr right;
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.grammar.parser;
+
+import jetbrains.jetpad.grammar.Grammar;
+import jetbrains.jetpad.grammar.NonTerminal;
+import jetbrains.jetpad.grammar.Terminal;
+import jetbrains.jetpad.grammar.lr1.LR1TableGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures throughput of {@link LRParser} on a long arithmetic expression with nested parentheses.
+ * Rules have no handlers, so the time is spent in the parse engine itself.
+ */
+public class LRParserBenchmark {
+  private static final int LEXEMES = 100000;
+  private static final int ROUNDS = 10;
+  private static final int PARSES = 20;
+
+  public static void main(String[] args) {
+    Grammar g = new Grammar();
+
+    NonTerminal start = g.getStart();
+    NonTerminal expr = g.newNonTerminal("E");
+    NonTerminal term = g.newNonTerminal("T");
+    NonTerminal fact = g.newNonTerminal("F");
+
+    Terminal id = g.newTerminal("id");
+    Terminal plus = g.newTerminal("+");
+    Terminal star = g.newTerminal("*");
+    Terminal lp = g.newTerminal("(");
+    Terminal rp = g.newTerminal(")");
+
+    g.newRule(start, expr);
+    g.newRule(expr, expr, plus, term);
+    g.newRule(expr, term);
+    g.newRule(term, term, star, fact);
+    g.newRule(term, fact);
+    g.newRule(fact, id);
+    g.newRule(fact, lp, expr, rp);
+
+    LRParser parser = new LRParser(new LR1TableGenerator(g).generateTable());
+
+    List<Lexeme> input = new ArrayList<>();
+    input.add(new Lexeme(id, "id"));
+    while (input.size() < LEXEMES) {
+      input.add(new Lexeme(plus, "+"));
+      input.add(new Lexeme(lp, "("));
+      input.add(new Lexeme(id, "id"));
+      input.add(new Lexeme(star, "*"));
+      input.add(new Lexeme(id, "id"));
+      input.add(new Lexeme(rp, ")"));
+    }
+
+    for (int i = 0; i < ROUNDS; i++) {
+      long begin = System.nanoTime();
+      for (int j = 0; j < PARSES; j++) {
+        if (parser.parse(input) == null) {
+          throw new IllegalStateException();
+        }
+      }
+      long elapsed = System.nanoTime() - begin;
+      System.out.println("parsing " + input.size() + " lexemes: " + elapsed / PARSES / 1000 + " us, "
+          + (long) input.size() * PARSES * 1000000000L / elapsed + " lexemes/s");
+    }
+  }
+}
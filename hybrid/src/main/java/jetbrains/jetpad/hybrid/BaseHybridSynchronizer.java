@@ -36,12 +36,13 @@ import jetbrains.jetpad.cell.util.CellFactory;
 import jetbrains.jetpad.cell.util.CellLists;
 import jetbrains.jetpad.cell.util.CellState;
 import jetbrains.jetpad.cell.util.CellStateHandler;
+import jetbrains.jetpad.cell.util.SeparatedCellList;
 import jetbrains.jetpad.event.*;
 import jetbrains.jetpad.hybrid.parser.Token;
 import jetbrains.jetpad.hybrid.parser.TokenUtil;
 import jetbrains.jetpad.hybrid.parser.ValueToken;
 import jetbrains.jetpad.hybrid.parser.prettyprint.ParseNode;
-import jetbrains.jetpad.hybrid.parser.prettyprint.ParseNodes;
+import jetbrains.jetpad.hybrid.parser.prettyprint.ParseNodeIndex;
 import jetbrains.jetpad.mapper.Mapper;
 import jetbrains.jetpad.mapper.MapperFactory;
 import jetbrains.jetpad.mapper.Synchronizer;
@@ -57,6 +58,7 @@ import jetbrains.jetpad.model.property.Property;
 import jetbrains.jetpad.model.property.PropertyChangeEvent;
 import jetbrains.jetpad.model.property.ReadableProperty;
 import jetbrains.jetpad.model.util.ListMap;
+import jetbrains.jetpad.projectional.selection.SelectionRange;
 import jetbrains.jetpad.projectional.selection.SelectionSupport;
 import jetbrains.jetpad.projectional.cell.mapping.ToCellMapping;
 
@@ -81,13 +83,15 @@ public abstract class BaseHybridSynchronizer<SourceT, SpecT extends SimpleHybrid
   private Mapper<?, ?> myContextMapper;
   private ReadableProperty<SourceT> mySource;
   private Cell myTarget;
-  private List<Cell> myTargetList;
+  private SeparatedCellList myTargetList;
   private Set<Mapper<?, ? extends Cell>> myValueMappers;
   private ListMap<Cell, Mapper<?, ? extends Cell>> myValueCellToMapper;
   private TextCell myPlaceholder;
   private MapperFactory<Object, ? extends Cell> myMapperFactory;
 
   private SelectionSupport<Cell> mySelectionSupport;
+  private Cell myHighlightStart;
+  private Cell myHighlightEnd;
   private String myPlaceHolderText = "empty";
 
   private boolean myHideTokensInMenu = false;
@@ -95,6 +99,7 @@ public abstract class BaseHybridSynchronizer<SourceT, SpecT extends SimpleHybrid
 
   private TokensEditPostProcessor<SourceT> myTokensEditPostProcessor = new EmptyTokensEditPostProcessor<>();
   private CellTrait myTokenTextEditPostProcessorTrait = CellTrait.EMPTY;
+  private final TokenCellPool myTokenCellPool = new TokenCellPool(this);
 
   BaseHybridSynchronizer(Mapper<?, ?> contextMapper, ReadableProperty<SourceT> source, Cell target,
                          ReadableProperty<? extends SpecT> spec, TokenListEditor<SourceT> editor) {
@@ -139,40 +144,60 @@ public abstract class BaseHybridSynchronizer<SourceT, SpecT extends SimpleHybrid
         );
       }
     };
-    final ObservableList<Cell> selection = mySelectionSupport.selection();
-    selection.addListener(new CollectionAdapter<Cell>() {
+    mySelectionSupport.selectionRange().addHandler(new EventHandler<PropertyChangeEvent<SelectionRange<Cell>>>() {
       @Override
-      public void onItemAdded(CollectionItemEvent<? extends Cell> event) {
-        event.getNewItem().selected().set(true);
-
-        int index = myTargetList.indexOf(event.getNewItem());
-        if (selection.size() > 1) {
-          if (event.getIndex() == 0) {
-            myTarget.children().get(index * 2 + 1).selected().set(true);
-          } else { //last
-            myTarget.children().get(index * 2 - 1).selected().set(true);
-          }
+      public void onEvent(PropertyChangeEvent<SelectionRange<Cell>> event) {
+        SelectionRange<Cell> range = event.getNewValue();
+        if (range == null) {
+          highlight(-1, -1);
+        } else {
+          highlight(myTargetList.indexOf(range.getStart()), myTargetList.indexOf(range.getEnd()));
         }
       }
+    });
+  }
 
-      @Override
-      public void onItemRemoved(CollectionItemEvent<? extends Cell> event) {
-        event.getOldItem().selected().set(false);
+  /**
+   * Updates selected state of token cells and the spaces between them only where the new range differs from
+   * the highlighted one. Only cells which are attached and visible get highlighted.
+   */
+  private void highlight(int start, int end) {
+    List<Cell> children = myTarget.children();
+    int from = 0;
+    int to = -1;
+    if (start != -1 && end != -1) {
+      //token cells of the range together with the spaces between them
+      from = start * 2;
+      to = end * 2;
+    }
+    int oldFrom = 0;
+    int oldTo = -1;
+    if (myHighlightStart != null) {
+      oldFrom = children.indexOf(myHighlightStart);
+      oldTo = children.indexOf(myHighlightEnd);
+    }
 
-        int index = myTargetList.indexOf(event.getOldItem());
-        if (index == -1) {
-          throw new IllegalStateException();
-        }
+    for (int i = oldFrom; i <= Math.min(oldTo, from - 1); i++) {
+      children.get(i).selected().set(false);
+    }
+    for (int i = Math.max(oldFrom, to + 1); i <= oldTo; i++) {
+      children.get(i).selected().set(false);
+    }
+    for (int i = from; i <= Math.min(to, oldFrom - 1); i++) {
+      highlight(children.get(i));
+    }
+    for (int i = Math.max(from, oldTo + 1); i <= to; i++) {
+      highlight(children.get(i));
+    }
 
-        if (!selection.isEmpty()) {
-          if (event.getIndex() == 0) {
-            myTarget.children().get(index * 2 + 1).selected().set(false);
-          } else {
-            myTarget.children().get(index * 2 - 1).selected().set(false);
-          }
-        }
-      }
-    });
+    myHighlightStart = from <= to ? children.get(from) : null;
+    myHighlightEnd = from <= to ? children.get(to) : null;
+  }
+
+  private void highlight(Cell cell) {
+    if (cell.getContainer() != null && cell.visible().get()) {
+      cell.selected().set(true);
+    }
   }
 
   protected ReadableProperty<SourceT> getSource() {
@@ -214,11 +239,11 @@ public abstract class BaseHybridSynchronizer<SourceT, SpecT extends SimpleHybrid
           } else {
             Range<Integer> currentRange = selection();
             if (event.is(KeyStrokeSpecs.SELECT_UP)) {
-              ParseNode parseNode = myTokenListEditor.getParseNode();
-              if (parseNode != null) {
-                if (!currentRange.equals(parseNode.getRange())) {
-                  ParseNode node = ParseNodes.findForRange(parseNode, currentRange);
-                  ParseNode parentNode = ParseNodes.nonSameRangeParent(node);
+              ParseNodeIndex parseNodes = myTokenListEditor.getParseNodeIndex();
+              if (parseNodes != null) {
+                if (!currentRange.equals(parseNodes.root().getRange())) {
+                  ParseNode node = parseNodes.findForRange(currentRange);
+                  ParseNode parentNode = parseNodes.nonSameRangeParent(node);
                   if (parentNode != null) {
                     select(parentNode.getRange());
                     event.consume();
@@ -233,10 +258,10 @@ public abstract class BaseHybridSynchronizer<SourceT, SpecT extends SimpleHybrid
             }
 
             if (event.is(KeyStrokeSpecs.SELECT_DOWN)) {
-              ParseNode parseNode = myTokenListEditor.getParseNode();
-              if (parseNode != null) {
-                ParseNode node = ParseNodes.findForRange(parseNode, currentRange);
-                ParseNode childNode = ParseNodes.nonSameRangeChild(node, myTargetList.indexOf(mySelectionSupport.currentCell()));
+              ParseNodeIndex parseNodes = myTokenListEditor.getParseNodeIndex();
+              if (parseNodes != null) {
+                ParseNode node = parseNodes.findForRange(currentRange);
+                ParseNode childNode = parseNodes.nonSameRangeChild(node, myTargetList.indexOf(mySelectionSupport.currentCell()));
                 if (childNode != null) {
                   select(childNode.getRange());
                   event.consume();
@@ -314,7 +339,7 @@ public abstract class BaseHybridSynchronizer<SourceT, SpecT extends SimpleHybrid
           targetIndex = 0;
         }
 
-        myTokenListEditor.tokens.addAll(targetIndex, tokens);
+        myTokenListEditor.replaceTokens(targetIndex, targetIndex, tokens);
         myTokenListEditor.updateToPrintedTokens();
         tokenOperations().select(targetIndex + tokens.size() - 1, LAST).run();
       }
@@ -383,28 +408,19 @@ public abstract class BaseHybridSynchronizer<SourceT, SpecT extends SimpleHybrid
         final Token token = event.getNewItem();
         Cell tokenCell = createTokenCell(token);
 
+        //separators around the new cell are created when it's added, so neighbors' spacing is updated before that
         int index = event.getIndex();
         if (index == 0) {
           if (tokenCell instanceof TextTokenCell) {
             ((TextTokenCell) tokenCell).setFirst(true);
           }
-          if (!myTargetList.isEmpty()) {
-            updateTokenCell(0, new Handler<TextTokenCell>() {
-              @Override
-              public void handle(TextTokenCell item) {
-                item.setFirst(false);
-              }
-            });
+          if (!myTargetList.isEmpty() && myTargetList.get(0) instanceof TextTokenCell) {
+            ((TextTokenCell) myTargetList.get(0)).setFirst(false);
           }
         }
 
-        if (index > 0) {
-          updateTokenCell(index - 1, new Handler<TextTokenCell>() {
-            @Override
-            public void handle(TextTokenCell item) {
-              item.setNextToken(token);
-            }
-          });
+        if (index > 0 && myTargetList.get(index - 1) instanceof TextTokenCell) {
+          ((TextTokenCell) myTargetList.get(index - 1)).setNextToken(token);
         }
         if (index + 1 < tokens().size() && tokenCell instanceof TextTokenCell) {
           ((TextTokenCell) tokenCell).setNextToken(tokens().get(index + 1));
@@ -418,6 +434,17 @@ public abstract class BaseHybridSynchronizer<SourceT, SpecT extends SimpleHybrid
         final int index = event.getIndex();
         Cell removedCell = myTargetList.remove(index);
 
+        if (removedCell == myHighlightStart && removedCell == myHighlightEnd) {
+          myHighlightStart = null;
+          myHighlightEnd = null;
+        } else if (removedCell == myHighlightStart) {
+          myHighlightStart = myTargetList.get(index);
+        } else if (removedCell == myHighlightEnd) {
+          myHighlightEnd = myTargetList.get(index - 1);
+        }
+        removedCell.selected().set(false);
+        mySelectionSupport.itemRemoved(index, removedCell);
+
         if (myValueCellToMapper != null && myValueCellToMapper.containsKey(removedCell)) {
           Mapper<?, ? extends Cell> valueMapper = myValueCellToMapper.get(removedCell);
           myValueMappers.remove(valueMapper);
@@ -426,6 +453,7 @@ public abstract class BaseHybridSynchronizer<SourceT, SpecT extends SimpleHybrid
             myValueCellToMapper = null;
           }
         }
+        myTokenCellPool.release(removedCell);
 
         if (myTargetList.isEmpty()) {
           addPlaceholder();
@@ -466,9 +494,11 @@ public abstract class BaseHybridSynchronizer<SourceT, SpecT extends SimpleHybrid
 
           handler.handle(textTokenCell);
 
-          if ((textTokenCell.noSpaceToLeft() != wasNoSpaceToLeft) || (textTokenCell.noSpaceToRight() != wasNoSpaceToRight)) {
-            myTargetList.remove(index);
-            myTargetList.add(index, cell);
+          if (textTokenCell.noSpaceToLeft() != wasNoSpaceToLeft && index > 0) {
+            myTargetList.refreshSeparator(index - 1);
+          }
+          if (textTokenCell.noSpaceToRight() != wasNoSpaceToRight && index + 1 < myTargetList.size()) {
+            myTargetList.refreshSeparator(index);
           }
         }
       }
@@ -515,7 +545,7 @@ public abstract class BaseHybridSynchronizer<SourceT, SpecT extends SimpleHybrid
       return target;
     }
 
-    return new TextTokenCell(this, token, myTokenTextEditPostProcessorTrait);
+    return myTokenCellPool.get(token, myTokenTextEditPostProcessorTrait);
   }
 
   private void addPlaceholder() {
@@ -567,8 +597,7 @@ public abstract class BaseHybridSynchronizer<SourceT, SpecT extends SimpleHybrid
   }
 
   void setTokens(List<Token> tokens) {
-    myTokenListEditor.tokens.clear();
-    myTokenListEditor.tokens.addAll(tokens);
+    myTokenListEditor.replaceTokens(0, myTokenListEditor.tokens.size(), tokens);
     myTokenListEditor.updateToPrintedTokens();
   }
 
@@ -581,7 +610,7 @@ public abstract class BaseHybridSynchronizer<SourceT, SpecT extends SimpleHybrid
   }
 
   public Range<Integer> selection() {
-    ObservableList<Cell> selection = mySelectionSupport.selection();
+    List<Cell> selection = mySelectionSupport.selection();
     if (selection.isEmpty()) {
       throw new IllegalStateException();
     }
@@ -593,11 +622,11 @@ public abstract class BaseHybridSynchronizer<SourceT, SpecT extends SimpleHybrid
   }
 
   public Range<Integer> rangeFor(Object object) {
-    ParseNode parseNode = tokenListEditor().getParseNode();
-    if (parseNode == null) {
+    ParseNodeIndex parseNodes = tokenListEditor().getParseNodeIndex();
+    if (parseNodes == null) {
       throw new IllegalStateException("Hybrid Synchronizer is in invalid state");
     }
-    ParseNode result = ParseNodes.findNodeFor(parseNode, object);
+    ParseNode result = parseNodes.findNodeFor(object);
     if (result == null) {
       throw new IllegalStateException("Can't find parse node for " + object);
     }
@@ -629,7 +658,7 @@ public abstract class BaseHybridSynchronizer<SourceT, SpecT extends SimpleHybrid
   }
 
   void clearSelection() {
-    ObservableList<Cell> selection = mySelectionSupport.selection();
+    List<Cell> selection = mySelectionSupport.selection();
     if (selection.isEmpty()) {
       throw new IllegalStateException();
     }
@@ -639,7 +668,7 @@ public abstract class BaseHybridSynchronizer<SourceT, SpecT extends SimpleHybrid
 
     mySelectionSupport.clearSelection();
 
-    myTokenListEditor.tokens.subList(firstIndex, lastIndex).clear();
+    myTokenListEditor.replaceTokens(firstIndex, lastIndex, Collections.<Token>emptyList());
 
     if (tokens().isEmpty()) {
       lastItemDeleted().run();
@@ -793,6 +822,11 @@ public abstract class BaseHybridSynchronizer<SourceT, SpecT extends SimpleHybrid
     myTokenListEditor.dispose();
     myAttachRegistration.remove();
     myAttachRegistration = null;
+    myTokenCellPool.clear();
+  }
+
+  TokenCellPool tokenCellPool() {
+    return myTokenCellPool;
   }
 
   public int getCurrentCellIndex() {
@@ -51,7 +51,7 @@ public class CompletionTokenizer {
   private class TokensCollector {
     private final TextMatcher textMatcher = new TextMatcher();
     private final StringBuilder currentTokenCandidate = new StringBuilder();
-    private TextMatchResult currentMatchResult = pending("");
+    private TextMatchResult currentMatchResult = PENDING;
     private final List<Token> tokens = new ArrayList<>();
 
     private void append(char ch) {
@@ -60,7 +60,7 @@ public class CompletionTokenizer {
            return;
         }
         if (currentMatchResult.noWayToComplete) {
-          tokens.add(currentMatchResult.pendingToken);
+          tokens.add(new ErrorToken(currentTokenCandidate.toString()));
           clear();
           return;
         }
@@ -79,24 +79,32 @@ public class CompletionTokenizer {
     private void collectLastToken() {
       if (currentMatchResult.matchesSingleToken) {
         tokens.add(currentMatchResult.singleMatchedToken);
-      } else if (currentMatchResult.isPendingTokenNonEmpty()) {
-        tokens.add(currentMatchResult.pendingToken);
+      } else if (currentTokenCandidate.length() > 0) {
+        tokens.add(new ErrorToken(currentTokenCandidate.toString()));
       }
     }
 
     private void clear() {
       currentTokenCandidate.setLength(0);
-      currentMatchResult = pending("");
+      currentMatchResult = PENDING;
+      textMatcher.reset();
     }
 
     private void updateMatchResult() {
+      //if no item can complete the text, no item can complete its continuation, so there's nothing to rematch
+      if (currentMatchResult.noWayToComplete) return;
       currentMatchResult = textMatcher.match(currentTokenCandidate.toString());
     }
   }
 
+  /**
+   * Matches a growing token text. Items for which the text isn't a match prefix can't match any of its
+   * continuations either, so they are dropped until the next token and each character is checked only against
+   * the items which are still alive.
+   */
   private class TextMatcher {
     private final Value<Token> tokenHolder = new Value<>();
-    private final CompletionItems completionItems = new CompletionItems(
+    private final List<CompletionItem> allItems = new CompletionItems(
         mySpec.getTokenCompletion(new Function<Token, Runnable>() {
           @Nullable
           @Override
@@ -108,49 +116,50 @@ public class CompletionTokenizer {
               }
             };
           }
-        }).get(CompletionParameters.EMPTY));
+        }).get(CompletionParameters.EMPTY)).getItems();
+    private List<CompletionItem> liveItems = allItems;
+
+    private void reset() {
+      liveItems = allItems;
+    }
 
     private TextMatchResult match(String text) {
-      List<CompletionItem> basicMatches = completionItems.matches(text);
+      List<CompletionItem> prefixed = new ArrayList<>();
+      for (CompletionItem item : liveItems) {
+        if (item.isMatchPrefix(text)) {
+          prefixed.add(item);
+        }
+      }
+      liveItems = prefixed;
+      if (prefixed.isEmpty()) {
+        return ERROR;
+      }
+
+      List<CompletionItem> basicMatches = new CompletionItems(prefixed).matches(text);
       if (basicMatches.size() == 1) {
         basicMatches.iterator().next().complete(text).run();
         return singleMatched(tokenHolder.get());
       } else {
-        boolean noWayToComplete = basicMatches.isEmpty() && completionItems.prefixedBy(text).isEmpty();
-        if (noWayToComplete) {
-          return error(text);
-        } else {
-          return pending(text);
-        }
+        return PENDING;
       }
     }
   }
 
-  private static TextMatchResult singleMatched(Token token) {
-    return new TextMatchResult(true, token, false, null);
-  }
-
-  private static TextMatchResult error(String text) {
-    return new TextMatchResult(false, null, true, new ErrorToken(text));
-  }
+  private static final TextMatchResult ERROR = new TextMatchResult(false, null, true);
+  private static final TextMatchResult PENDING = new TextMatchResult(false, null, false);
 
-  private static TextMatchResult pending(String text) {
-    return new TextMatchResult(false, null, false, new ErrorToken(text));
+  private static TextMatchResult singleMatched(Token token) {
+    return new TextMatchResult(true, token, false);
   }
 
   private static class TextMatchResult {
     private final boolean matchesSingleToken;
     private final Token singleMatchedToken;
     private final boolean noWayToComplete;
-    private final ErrorToken pendingToken;
-    private TextMatchResult(boolean matchesSingleToken, Token singleMatchedToken, boolean noWayToComplete, ErrorToken pendingToken) {
+    private TextMatchResult(boolean matchesSingleToken, Token singleMatchedToken, boolean noWayToComplete) {
       this.matchesSingleToken = matchesSingleToken;
       this.singleMatchedToken = singleMatchedToken;
       this.noWayToComplete = noWayToComplete;
-      this.pendingToken = pendingToken;
-    }
-    private boolean isPendingTokenNonEmpty() {
-      return pendingToken != null && !pendingToken.text().isEmpty();
     }
   }
 }
@@ -31,7 +31,10 @@ import jetbrains.jetpad.model.event.ListenerCaller;
 import jetbrains.jetpad.model.event.Listeners;
 import jetbrains.jetpad.model.property.PropertyChangeEvent;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -40,14 +43,27 @@ import java.util.Objects;
  *
  * Note that this class sets a never-disposing listener on
  * the {@code tokens} collection so their lifetimes are always aligned.
+ *
+ * Recent failed parses are kept, so returning to an unparseable token sequence
+ * (typing and deleting in the middle of an expression) doesn't run the parser again.
+ * Successful parses aren't kept: parsed models are mutable and are handed out to
+ * the property's clients, and there's no generic way to copy them.
  */
 public class ParsingHybridProperty<ModelT> implements HybridProperty<ModelT> {
+  static final int FAILED_PARSES_CACHE_SIZE = 16;
 
   private final Parser<? extends ModelT> myParser;
   private final PrettyPrinter<? super ModelT> myPrinter;
   private final ObservableList<Token> mySourceTokens;
   private final ParsingContextFactory myParsingContextFactory;
   private final ObservableList<Token> myPrettyTokens = new MyList();
+  private final TokenListFingerprint myFingerprint;
+  private final Map<Long, List<Token>> myFailedParses = new LinkedHashMap<Long, List<Token>>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, List<Token>> eldest) {
+      return size() > FAILED_PARSES_CACHE_SIZE;
+    }
+  };
 
   private Listeners<EventHandler<? super PropertyChangeEvent<ModelT>>> myHandlers;
   private ModelT myValue;
@@ -61,8 +77,9 @@ public class ParsingHybridProperty<ModelT> implements HybridProperty<ModelT> {
     myPrinter = printer;
     mySourceTokens = tokens;
     myParsingContextFactory = parsingContextFactory;
+    myFingerprint = TokenListFingerprint.track(mySourceTokens);
     initUpdate();
-    myValue = parse();
+    myValue = parseResult().value;
     updateFromSource(null);
     mySourceTokens.addListener(new CollectionListener<Token>() {
       @Override
@@ -125,8 +142,21 @@ public class ParsingHybridProperty<ModelT> implements HybridProperty<ModelT> {
     return myValue;
   }
 
-  private ModelT parse() {
-    return myParser.parse(myParsingContextFactory.getParsingContext(mySourceTokens));
+  private ParseResult<ModelT> parseResult() {
+    Long key = myFingerprint.get();
+    List<Token> failed = myFailedParses.get(key);
+    if (failed != null && failed.equals(mySourceTokens)) {
+      return new ParseResult<>(null, null);
+    }
+
+    ModelT value = myParser.parse(myParsingContextFactory.getParsingContext(mySourceTokens));
+    if (value == null) {
+      myFailedParses.put(key, new ArrayList<>(mySourceTokens));
+      return new ParseResult<>(null, null);
+    }
+    PrettyPrinterContext<? super ModelT> printCtx = new PrettyPrinterContext<>(myPrinter);
+    printCtx.print(value);
+    return new ParseResult<>(value, printCtx.tokens());
   }
 
   @Override
@@ -194,13 +224,11 @@ public class ParsingHybridProperty<ModelT> implements HybridProperty<ModelT> {
   }
 
   private ModelT tryPrettyPrint() {
-    ModelT newValue = parse();
-    if (newValue != null) {
-      PrettyPrinterContext<? super ModelT> printCtx = new PrettyPrinterContext<>(myPrinter);
-      printCtx.print(newValue);
-      updatePrettyTokens(printCtx.tokens());
+    ParseResult<ModelT> result = parseResult();
+    if (result.value != null) {
+      updatePrettyTokens(result.printed);
     }
-    return newValue;
+    return result.value;
   }
 
   private void updateValue(ModelT newValue) {
@@ -282,6 +310,16 @@ public class ParsingHybridProperty<ModelT> implements HybridProperty<ModelT> {
     }
   }
 
+  private static class ParseResult<ModelT> {
+    private final ModelT value;
+    private final List<Token> printed;
+
+    private ParseResult(ModelT value, List<Token> printed) {
+      this.value = value;
+      this.printed = printed;
+    }
+  }
+
   private void executeInUpdate(Runnable body) {
     if (!myInUpdate) {
       myInUpdate = true;
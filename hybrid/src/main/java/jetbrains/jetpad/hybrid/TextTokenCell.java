@@ -16,7 +16,9 @@
 package jetbrains.jetpad.hybrid;
 
 import com.google.common.base.Supplier;
+import jetbrains.jetpad.base.Registration;
 import jetbrains.jetpad.cell.Cell;
+import jetbrains.jetpad.cell.CellListener;
 import jetbrains.jetpad.cell.TextCell;
 import jetbrains.jetpad.cell.text.TextEditing;
 import jetbrains.jetpad.cell.trait.CellTrait;
@@ -34,31 +36,85 @@ class TextTokenCell extends TextCell {
   private boolean myFirst;
   private Token myToken;
   private Token myNextToken;
-  private final CellTrait myPostProcessorTrait;
+  private CellTrait myPostProcessorTrait;
+  private Registration myTraitReg;
+  private int myForeignRegistrations;
 
   TextTokenCell(BaseHybridSynchronizer<?, ?> sync, Token token, CellTrait postProcessorTrait) {
     mySync = sync;
-    myToken = token;
     myPostProcessorTrait = postProcessorTrait;
+    init(token);
+  }
+
+  Token getToken() {
+    return myToken;
+  }
+
+  /**
+   * Prepares a cell released with {@link #canBeReused()} to show another token, as if it was created for it.
+   * All properties are reset, so nothing set on the cell for the previous token remains.
+   */
+  void reuse(Token token, CellTrait postProcessorTrait) {
+    if (!canBeReused()) {
+      throw new IllegalStateException();
+    }
+
+    myTraitReg.remove();
+    resetProperties();
+    myFirst = false;
+    myNextToken = null;
+    myPostProcessorTrait = postProcessorTrait;
+    init(token);
+  }
+
+  /**
+   * A removed cell can be reused if nothing references it any more: it's detached and all traits and listeners
+   * added from outside are removed.
+   */
+  boolean canBeReused() {
+    return parent().get() == null && cellContainer().get() == null && myForeignRegistrations == 0;
+  }
+
+  @Override
+  public Registration addTrait(CellTrait trait) {
+    return foreign(super.addTrait(trait));
+  }
+
+  @Override
+  public Registration addListener(CellListener l) {
+    return foreign(super.addListener(l));
+  }
+
+  private Registration foreign(final Registration reg) {
+    myForeignRegistrations++;
+    return new Registration() {
+      @Override
+      protected void doRemove() {
+        myForeignRegistrations--;
+        reg.remove();
+      }
+    };
+  }
+
+  private void init(Token token) {
+    myToken = token;
 
     textColor().set(tokenTextColor());
     bold().set(token instanceof SimpleToken && ((SimpleToken) token).isBold());
     text().set(token.text());
 
-    addTrait(new CompositeCellTrait() {
+    //base traits are created once per token, not on every dispatch
+    final CellTrait[] baseTraits = new CellTrait[] { createTrait(), myPostProcessorTrait };
+    myTraitReg = super.addTrait(new CompositeCellTrait() {
       @Override
       protected CellTrait[] getBaseTraits(Cell cell) {
-        return new CellTrait[] { createTrait(), myPostProcessorTrait };
+        return baseTraits;
       }
     });
 
     updateFocusability();
   }
 
-  Token getToken() {
-    return myToken;
-  }
-
   private Color tokenTextColor() {
     return myToken instanceof SimpleToken ? ((SimpleToken) myToken).getColor() : Color.BLACK;
   }
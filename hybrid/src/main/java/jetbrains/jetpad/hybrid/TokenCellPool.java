@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.hybrid;
+
+import jetbrains.jetpad.cell.Cell;
+import jetbrains.jetpad.cell.trait.CellTrait;
+import jetbrains.jetpad.hybrid.parser.Token;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Text token cells removed from a hybrid editor which can be given to new tokens instead of allocating new cells
+ * together with their traits. Only cells which nothing references any more are kept, see
+ * {@link TextTokenCell#canBeReused()}, and a reused cell has all its properties reset.
+ */
+class TokenCellPool {
+  static final int DEFAULT_CAPACITY = 64;
+
+  private final BaseHybridSynchronizer<?, ?> mySync;
+  private final int myCapacity;
+  private final List<TextTokenCell> myFree = new ArrayList<>();
+
+  private long myCreated;
+  private long myReused;
+
+  TokenCellPool(BaseHybridSynchronizer<?, ?> sync) {
+    this(sync, DEFAULT_CAPACITY);
+  }
+
+  TokenCellPool(BaseHybridSynchronizer<?, ?> sync, int capacity) {
+    mySync = sync;
+    myCapacity = capacity;
+  }
+
+  TextTokenCell get(Token token, CellTrait postProcessorTrait) {
+    while (!myFree.isEmpty()) {
+      TextTokenCell cell = myFree.remove(myFree.size() - 1);
+      if (cell.canBeReused()) {
+        cell.reuse(token, postProcessorTrait);
+        myReused++;
+        return cell;
+      }
+    }
+    myCreated++;
+    return new TextTokenCell(mySync, token, postProcessorTrait);
+  }
+
+  void release(Cell cell) {
+    if (!(cell instanceof TextTokenCell) || myFree.size() >= myCapacity) return;
+    TextTokenCell tokenCell = (TextTokenCell) cell;
+    if (tokenCell.canBeReused()) {
+      myFree.add(tokenCell);
+    }
+  }
+
+  void clear() {
+    myFree.clear();
+  }
+
+  long created() {
+    return myCreated;
+  }
+
+  long reused() {
+    return myReused;
+  }
+
+  @Override
+  public String toString() {
+    return "TokenCellPool[created = " + myCreated + ", reused = " + myReused + ", free = " + myFree.size() + "]";
+  }
+}
@@ -86,8 +86,9 @@ class TokenCompleter {
         CompletionController controller = placeholder.get(Completion.COMPLETION_CONTROLLER);
         boolean wasActive = controller.isActive();
 
-        getTokenListEditor().tokens.addAll(Arrays.asList(tokens));
-        getTokenListEditor().updateToPrintedTokens();
+        TokenListEditor<?> tokenListEditor = getTokenListEditor();
+        tokenListEditor.replaceTokens(tokenListEditor.tokens.size(), tokenListEditor.tokens.size(), Arrays.asList(tokens));
+        tokenListEditor.updateToPrintedTokens();
 
         Runnable result = getTokenOperations().selectOnCreation(selectionIndex, LAST);
         if (wasActive) {
@@ -127,16 +128,7 @@ class TokenCompleter {
 
         TokenListEditor<?> tokenListEditor = getTokenListEditor();
 
-        if (tokens.length == 0) {
-          tokenListEditor.tokens.remove(index);
-        } else {
-          int sourceIndex = 0;
-          int targetIndex = index;
-          tokenListEditor.tokens.set(targetIndex++, tokens[sourceIndex++]);
-          while (sourceIndex < tokens.length) {
-            tokenListEditor.tokens.add(targetIndex++, tokens[sourceIndex++]);
-          }
-        }
+        tokenListEditor.replaceTokens(index, index + 1, Arrays.asList(tokens));
 
         tokenListEditor.processComments();
         tokenListEditor.updateToPrintedTokens();
@@ -18,10 +18,13 @@ package jetbrains.jetpad.hybrid;
 import jetbrains.jetpad.base.Objects;
 import jetbrains.jetpad.base.Registration;
 import jetbrains.jetpad.hybrid.parser.CommentToken;
+import jetbrains.jetpad.hybrid.parser.ErrorRecoveringParser;
+import jetbrains.jetpad.hybrid.parser.Parser;
 import jetbrains.jetpad.hybrid.parser.ParsingContext;
 import jetbrains.jetpad.hybrid.parser.Token;
 import jetbrains.jetpad.hybrid.parser.TokenUtil;
 import jetbrains.jetpad.hybrid.parser.prettyprint.ParseNode;
+import jetbrains.jetpad.hybrid.parser.prettyprint.ParseNodeIndex;
 import jetbrains.jetpad.hybrid.parser.prettyprint.PrettyPrinter;
 import jetbrains.jetpad.hybrid.parser.prettyprint.PrettyPrinterContext;
 import jetbrains.jetpad.model.collections.CollectionItemEvent;
@@ -37,6 +40,7 @@ class TokenListEditor<SourceT> {
 
   private Property<Boolean> myValid = new ValueProperty<>(true);
   private ParseNode myParseNode;
+  private ParseNodeIndex myParseNodeIndex;
   private ReadableProperty<HybridEditorSpec<SourceT>> mySpec;
   private boolean myUpdateModel;
   private boolean mySyncing;
@@ -106,6 +110,15 @@ class TokenListEditor<SourceT> {
     }
   }
 
+  ParseNodeIndex getParseNodeIndex() {
+    ParseNode node = getParseNode();
+    if (node == null) return null;
+    if (myParseNodeIndex == null || myParseNodeIndex.root() != node) {
+      myParseNodeIndex = new ParseNodeIndex(node);
+    }
+    return myParseNodeIndex;
+  }
+
   List<Object> getObjects() {
     ParseNode node = getParseNode();
     if (node == null) return Collections.emptyList();
@@ -157,10 +170,17 @@ class TokenListEditor<SourceT> {
       myChangeReg.remove();
       myChangeReg = Registration.EMPTY;
     } else {
-      SourceT result = hybridEditorSpec.getParser().parse(parsingContext);
+      Parser<SourceT> parser = hybridEditorSpec.getParser();
+      List<Object> errors = new ArrayList<>();
+      SourceT result;
+      if (parser instanceof ErrorRecoveringParser) {
+        result = ((ErrorRecoveringParser<SourceT>) parser).parse(parsingContext, errors);
+      } else {
+        result = parser.parse(parsingContext);
+      }
       if (result != null) {
         value.set(result);
-        myValid.set(true);
+        myValid.set(errors.isEmpty());
         reprint();
         if (myPrintedTokens.size() != parsingContext.getTokens().size()) {
           throw new IllegalStateException();
@@ -176,8 +196,60 @@ class TokenListEditor<SourceT> {
   void reprintToTokens() {
     PrettyPrinterContext<? super SourceT> ctx = reprint();
     myValid.set(true);
-    tokens.clear();
-    tokens.addAll(ctx.tokens());
+    replaceTokens(0, tokens.size(), ctx.tokens());
+  }
+
+  /**
+   * Replaces tokens in [from, to) with newTokens as a single edit. Tokens at the borders of the range which are
+   * equal to the new ones are kept, so only the tokens in between are changed, and the list is reparsed once
+   * after all the changes instead of on every one of them.
+   */
+  void replaceTokens(int from, int to, List<? extends Token> newTokens) {
+    if (from < 0 || to > tokens.size() || from > to) {
+      throw new IndexOutOfBoundsException("from = " + from + ", to = " + to + ", size = " + tokens.size());
+    }
+
+    int prefix = 0;
+    while (from + prefix < to && prefix < newTokens.size()
+        && Objects.equal(tokens.get(from + prefix), newTokens.get(prefix))) {
+      prefix++;
+    }
+    int suffix = 0;
+    while (to - suffix > from + prefix && newTokens.size() - suffix > prefix
+        && Objects.equal(tokens.get(to - 1 - suffix), newTokens.get(newTokens.size() - 1 - suffix))) {
+      suffix++;
+    }
+
+    int start = from + prefix;
+    int removed = to - suffix - start;
+    List<? extends Token> added = newTokens.subList(prefix, newTokens.size() - suffix);
+    if (removed == 0 && added.isEmpty()) return;
+
+    boolean wasSyncing = mySyncing;
+    mySyncing = true;
+    try {
+      int common = Math.min(removed, added.size());
+      for (int i = 0; i < common; i++) {
+        tokens.set(start + i, added.get(i));
+      }
+      for (int i = removed - 1; i >= common; i--) {
+        tokens.remove(start + i);
+      }
+      for (int i = common; i < added.size(); i++) {
+        tokens.add(start + i, added.get(i));
+      }
+    } finally {
+      mySyncing = wasSyncing;
+    }
+
+    if (myUpdateModel) {
+      sync(new Runnable() {
+        @Override
+        public void run() {
+          reparse();
+        }
+      });
+    }
   }
 
   private PrettyPrinterContext<? super SourceT> reprint() {
@@ -230,9 +302,9 @@ class TokenListEditor<SourceT> {
     myRestoringState = true;
     try {
       if (state != null) {
-        tokens.clear();
-        tokens.addAll(state);
-      } else if (!myValid.get()) {
+        replaceTokens(0, tokens.size(), state);
+      } else if (!myValid.get() && myPrintedTokens == null) {
+        //a tree with errors is already printed to the tokens, so only a failed parse has to be reverted
         reprintToTokens();
       }
     } finally {
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.hybrid;
+
+import jetbrains.jetpad.hybrid.parser.Token;
+import jetbrains.jetpad.model.collections.CollectionItemEvent;
+import jetbrains.jetpad.model.collections.CollectionListener;
+import jetbrains.jetpad.model.collections.list.ObservableList;
+
+/**
+ * Hash of a token list which is updated in O(1) on every change of the list. It's the sum of hashes of all pairs
+ * of adjacent tokens (with start and end sentinels), so an edit only replaces pairs around the changed position.
+ * Different lists can have equal fingerprints, so a match should be confirmed by comparing the lists.
+ */
+class TokenListFingerprint implements CollectionListener<Token> {
+  private static final int START = 0x2f8a6c1b;
+  private static final int END = 0x7d14b3e5;
+
+  static TokenListFingerprint track(ObservableList<Token> tokens) {
+    TokenListFingerprint result = new TokenListFingerprint(tokens);
+    tokens.addListener(result);
+    return result;
+  }
+
+  private final ObservableList<Token> myTokens;
+  private long myValue;
+
+  private TokenListFingerprint(ObservableList<Token> tokens) {
+    myTokens = tokens;
+    int prev = START;
+    for (Token token : tokens) {
+      myValue += pair(prev, token.hashCode());
+      prev = token.hashCode();
+    }
+    myValue += pair(prev, END);
+  }
+
+  long get() {
+    return myValue;
+  }
+
+  @Override
+  public void onItemAdded(CollectionItemEvent<? extends Token> event) {
+    int index = event.getIndex();
+    int prev = prev(index);
+    int next = next(index + 1);
+    int added = event.getNewItem().hashCode();
+    myValue += pair(prev, added) + pair(added, next) - pair(prev, next);
+  }
+
+  @Override
+  public void onItemSet(CollectionItemEvent<? extends Token> event) {
+    int index = event.getIndex();
+    int prev = prev(index);
+    int next = next(index + 1);
+    int removed = event.getOldItem().hashCode();
+    int added = event.getNewItem().hashCode();
+    myValue += pair(prev, added) + pair(added, next) - pair(prev, removed) - pair(removed, next);
+  }
+
+  @Override
+  public void onItemRemoved(CollectionItemEvent<? extends Token> event) {
+    int index = event.getIndex();
+    int prev = prev(index);
+    int next = next(index);
+    int removed = event.getOldItem().hashCode();
+    myValue += pair(prev, next) - pair(prev, removed) - pair(removed, next);
+  }
+
+  private int prev(int index) {
+    return index > 0 ? myTokens.get(index - 1).hashCode() : START;
+  }
+
+  private int next(int index) {
+    return index < myTokens.size() ? myTokens.get(index).hashCode() : END;
+  }
+
+  private static long pair(int first, int second) {
+    long h = ((long) first << 32) ^ (second & 0xFFFFFFFFL);
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
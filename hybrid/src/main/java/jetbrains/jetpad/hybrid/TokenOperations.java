@@ -141,8 +141,7 @@ class TokenOperations<SourceT> {
 
   Runnable replaceCommentToken(Cell contextCell, TextCell textCell) {
     int index = tokenViews().indexOf(contextCell);
-    tokens().remove(index);
-    tokens().addAll(index, toTokenList(textCell));
+    mySync.tokenListEditor().replaceTokens(index, index + 1, toTokenList(textCell));
     return select(index, FIRST);
   }
 
@@ -286,11 +285,11 @@ class TokenOperations<SourceT> {
     int index;
     if (!tokens().isEmpty()) {
       index = tokenViews().indexOf(textCell);
-      tokens().remove(index);
+      mySync.tokenListEditor().replaceTokens(index, index + 1, newTokens);
     } else {
       index = 0;
+      mySync.tokenListEditor().replaceTokens(index, index, newTokens);
     }
-    tokens().addAll(index, newTokens);
     mySync.tokenListEditor().updateToPrintedTokens();
     select(index + newTokens.size() - 1, LAST).run();
     return true;
@@ -13,21 +13,18 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package jetbrains.jetpad.cell.mappersUtil;
+package jetbrains.jetpad.hybrid.parser;
 
-import jetbrains.jetpad.cell.Cell;
-import jetbrains.jetpad.values.Color;
+import java.util.List;
 
-public class AncestorUtil {
-  public static Color getAncestorBackground(Cell container, Cell leaf) {
-    Cell current = leaf;
-    do {
-      current = current.getParent();
-      Color background = current.get(Cell.BACKGROUND);
-      if (background != null) {
-        return background;
-      }
-    } while (current != container);
-    return null;
-  }
-}
\ No newline at end of file
+/**
+ * Parser which replaces invalid parts of the input with error expressions instead of failing.
+ * A tree with error expressions isn't a valid parse result, so the errors are reported separately.
+ */
+public interface ErrorRecoveringParser<ResultT> extends Parser<ResultT> {
+  /**
+   * Parses like {@link #parse(ParsingContext)} and adds the error expressions which were created to errors.
+   * The result is valid only if nothing was added.
+   */
+  ResultT parse(ParsingContext ctx, List<? super ResultT> errors);
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.hybrid.parser.prettyprint;
+
+import com.google.common.collect.BoundType;
+import com.google.common.collect.Range;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index over an immutable parse tree which answers the queries of {@link ParseNodes} without traversing the tree:
+ * lookup by value is a hash map lookup, lookups by token range use per-token leaves and ancestor jump tables,
+ * so they take O(log n) steps.
+ * The parts of the index are built on the first query which needs them.
+ */
+public final class ParseNodeIndex {
+  private final ParseNode myRoot;
+
+  private Map<Object, ParseNode> myByValue;
+
+  private List<ParseNode> myNodes;
+  private Map<ParseNode, Integer> myIds;
+  private int[] myStart;
+  private int[] myEnd;
+  private int[] myDepth;
+  private int[][] myAncestors;
+  private int[] myTokenLeaves;
+
+  public ParseNodeIndex(ParseNode root) {
+    if (root == null) {
+      throw new NullPointerException();
+    }
+    myRoot = root;
+  }
+
+  public ParseNode root() {
+    return myRoot;
+  }
+
+  public ParseNode findNodeFor(Object value) {
+    if (myByValue == null) {
+      myByValue = new IdentityHashMap<>();
+      indexValues(myRoot);
+    }
+    return myByValue.get(value);
+  }
+
+  public ParseNode findForRange(Range<Integer> range) {
+    Range<Integer> rootRange = myRoot.getRange();
+    if (!range.hasLowerBound() || !range.hasUpperBound()
+        || range.lowerBoundType() != BoundType.CLOSED || range.upperBoundType() != BoundType.CLOSED
+        || range.lowerEndpoint() >= range.upperEndpoint() || !rootRange.encloses(range)) {
+      return ParseNodes.findForRange(myRoot, range);
+    }
+
+    ensureRangeIndex();
+    int first = myTokenLeaves[range.lowerEndpoint() - rootRange.lowerEndpoint()];
+    int last = myTokenLeaves[range.upperEndpoint() - 1 - rootRange.lowerEndpoint()];
+    return myNodes.get(commonAncestor(first, last));
+  }
+
+  public ParseNode nonSameRangeParent(ParseNode node) {
+    ensureRangeIndex();
+    int id = idOf(node);
+    int current = id;
+    for (int k = myAncestors.length - 1; k >= 0; k--) {
+      int ancestor = myAncestors[k][current];
+      if (ancestor != -1 && sameRange(ancestor, id)) {
+        current = ancestor;
+      }
+    }
+    int parent = myAncestors[0][current];
+    return parent == -1 ? null : myNodes.get(parent);
+  }
+
+  public ParseNode nonSameRangeChild(ParseNode node, int offset) {
+    ensureRangeIndex();
+    int id = idOf(node);
+    if (offset < myStart[id] || offset + 1 > myEnd[id]) {
+      throw new IllegalArgumentException();
+    }
+
+    int current = myTokenLeaves[offset - myStart[0]];
+    if (sameRange(current, id)) return null;
+    for (int k = myAncestors.length - 1; k >= 0; k--) {
+      int ancestor = myAncestors[k][current];
+      if (ancestor != -1 && myDepth[ancestor] > myDepth[id] && !sameRange(ancestor, id)) {
+        current = ancestor;
+      }
+    }
+    return myNodes.get(current);
+  }
+
+  private void indexValues(ParseNode node) {
+    if (!myByValue.containsKey(node.getValue())) {
+      myByValue.put(node.getValue(), node);
+    }
+    for (ParseNode child : node.getChildren()) {
+      indexValues(child);
+    }
+  }
+
+  private void ensureRangeIndex() {
+    if (myNodes != null) return;
+
+    List<ParseNode> nodes = new ArrayList<>();
+    collect(myRoot, nodes);
+    int size = nodes.size();
+
+    myIds = new IdentityHashMap<>();
+    myStart = new int[size];
+    myEnd = new int[size];
+    myDepth = new int[size];
+    int levels = 1;
+    while ((1 << levels) < size) {
+      levels++;
+    }
+    myAncestors = new int[levels][size];
+
+    for (int id = 0; id < size; id++) {
+      ParseNode node = nodes.get(id);
+      myIds.put(node, id);
+      Integer parent = node.getParent() == null ? null : myIds.get(node.getParent());
+      myAncestors[0][id] = parent == null ? -1 : parent;
+      myDepth[id] = parent == null ? 0 : myDepth[parent] + 1;
+    }
+
+    //composite nodes compute their ranges from their children, so ranges are collected bottom-up
+    Range<Integer> rootRange = myRoot.getRange();
+    myTokenLeaves = new int[rootRange.upperEndpoint() - rootRange.lowerEndpoint()];
+    for (int id = size - 1; id >= 0; id--) {
+      List<ParseNode> children = nodes.get(id).getChildren();
+      if (children.isEmpty()) {
+        Range<Integer> range = nodes.get(id).getRange();
+        myStart[id] = range.lowerEndpoint();
+        myEnd[id] = range.upperEndpoint();
+        if (myEnd[id] - myStart[id] == 1) {
+          myTokenLeaves[myStart[id] - rootRange.lowerEndpoint()] = id;
+        }
+      } else {
+        myStart[id] = myStart[id + 1];
+        myEnd[id] = myEnd[myIds.get(children.get(children.size() - 1))];
+      }
+    }
+    for (int k = 1; k < levels; k++) {
+      for (int id = 0; id < size; id++) {
+        int half = myAncestors[k - 1][id];
+        myAncestors[k][id] = half == -1 ? -1 : myAncestors[k - 1][half];
+      }
+    }
+    myNodes = nodes;
+  }
+
+  private void collect(ParseNode node, List<ParseNode> result) {
+    result.add(node);
+    for (ParseNode child : node.getChildren()) {
+      collect(child, result);
+    }
+  }
+
+  private int commonAncestor(int a, int b) {
+    if (myDepth[a] < myDepth[b]) {
+      int t = a;
+      a = b;
+      b = t;
+    }
+    for (int k = myAncestors.length - 1; k >= 0; k--) {
+      int ancestor = myAncestors[k][a];
+      if (ancestor != -1 && myDepth[ancestor] >= myDepth[b]) {
+        a = ancestor;
+      }
+    }
+    if (a == b) return a;
+    for (int k = myAncestors.length - 1; k >= 0; k--) {
+      if (myAncestors[k][a] != myAncestors[k][b]) {
+        a = myAncestors[k][a];
+        b = myAncestors[k][b];
+      }
+    }
+    return myAncestors[0][a];
+  }
+
+  private boolean sameRange(int a, int b) {
+    return myStart[a] == myStart[b] && myEnd[a] == myEnd[b];
+  }
+
+  private int idOf(ParseNode node) {
+    Integer id = myIds.get(node);
+    if (id == null) {
+      throw new IllegalArgumentException("Node isn't in this tree: " + node);
+    }
+    return id;
+  }
+}
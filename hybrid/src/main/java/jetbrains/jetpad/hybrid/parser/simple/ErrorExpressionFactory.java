@@ -0,0 +1,34 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.hybrid.parser.simple;
+
+import jetbrains.jetpad.grammar.ParserParameters;
+import jetbrains.jetpad.hybrid.parser.Token;
+
+import java.util.List;
+
+/**
+ * Creates expressions which replace invalid parts of the input when a parser recovers from errors.
+ * Parts are the values which were parsed before the error was found, e.g. operands of an incomplete expression.
+ * Tokens are all the tokens covered by the error expression, including the ones in parts.
+ *
+ * Hybrid editors print parsed trees to get the tokens they show, and a printed tree has to have exactly the tokens
+ * it was parsed from. So the pretty printer has to print an error expression as exactly the given tokens, in the
+ * same order, and it may be none of them. Otherwise the editor fails with an {@link IllegalStateException}.
+ */
+public interface ErrorExpressionFactory<ExprT> {
+  ExprT create(ParserParameters params, List<Object> parts, List<Token> tokens);
+}
@@ -28,11 +28,29 @@ import jetbrains.jetpad.grammar.slr.SLRTableGenerator;
 import jetbrains.jetpad.hybrid.parser.*;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class SimpleParserSpecification<ExprT> {
+  static final int TABLES_CACHE_SIZE = 32;
+
+  private static final Map<String, LRParserTable> ourTables = new LinkedHashMap<String, LRParserTable>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, LRParserTable> eldest) {
+      return size() > TABLES_CACHE_SIZE;
+    }
+  };
+
+  public static void clearTables() {
+    synchronized (ourTables) {
+      ourTables.clear();
+    }
+  }
+
   private Grammar myGrammar =  new Grammar();
   private NonTerminal myExpr = myGrammar.newNonTerminal("E");
   private Map<Token, Terminal> myTokenToTerminal = new HashMap<>();
@@ -41,9 +59,11 @@ public class SimpleParserSpecification<ExprT> {
   private Terminal myIntNumber =  myGrammar.newTerminal("int");
   private Terminal myBool = myGrammar.newTerminal("bool");
   private Terminal myError = myGrammar.newTerminal("error");
-  private Map<Predicate<Token>, Terminal> myCustomTokens = new HashMap<>();
+  private Map<Predicate<Token>, Terminal> myCustomTokens = new LinkedHashMap<>();
+  private Map<Predicate<Token>, Terminal> myValueTokens = new LinkedHashMap<>();
 
   private boolean myUserFullLR;
+  private ErrorExpressionFactory<ExprT> myErrorFactory;
 
   public SimpleParserSpecification() {
     this(false);
@@ -87,6 +107,16 @@ public class SimpleParserSpecification<ExprT> {
     return this;
   }
 
+  /**
+   * Makes parsers recover from errors: invalid parts of the input are replaced with expressions created
+   * by the factory instead of failing the whole parse. Built parsers are {@link ErrorRecoveringParser}s,
+   * so editors can tell a tree with errors from a valid one.
+   */
+  public SimpleParserSpecification<ExprT> setErrorFactory(ErrorExpressionFactory<ExprT> factory) {
+    myErrorFactory = factory;
+    return this;
+  }
+
   public SimpleParserSpecification<ExprT> changeGrammar(Handler<SimpleGrammarContext> handler) {
     handler.handle(new SimpleGrammarContext() {
       @Override
@@ -126,15 +156,14 @@ public class SimpleParserSpecification<ExprT> {
 
       @Override
       public Terminal value(String name, final Predicate<Object> predicate) {
-        return customToken(name, new Predicate<Token>() {
+        Terminal terminal = myGrammar.newTerminal(name);
+        myValueTokens.put(new Predicate<Token>() {
           @Override
           public boolean apply(Token input) {
-            if (input instanceof ValueToken) {
-              return predicate.apply(((ValueToken) input).value());
-            }
-            return false;
+            return predicate.apply(((ValueToken) input).value());
           }
-        });
+        }, terminal);
+        return terminal;
       }
 
       @Override
@@ -159,81 +188,247 @@ public class SimpleParserSpecification<ExprT> {
     return result;
   }
 
-  private Lexeme getLexeme(Token token) {
-    Terminal terminal;
-    if (token instanceof IdentifierToken) {
-      terminal = myId;
-    } else if (token instanceof IntValueToken) {
-      terminal = myIntNumber;
-    } else if (token instanceof BoolValueToken) {
-      terminal = myBool;
-    } else {
-      terminal = myTokenToTerminal.get(token);
-      if (terminal == null) {
-        for (Map.Entry<Predicate<Token>, Terminal> e : myCustomTokens.entrySet()) {
-          if (e.getKey().apply(token)) {
-            terminal = e.getValue();
-            break;
-          }
-        }
+  /**
+   * Tables are shared by all specifications with equivalent grammars, and the most recently used ones are kept.
+   * A shared table is generated for a copy of the grammar without handlers, which can't be changed afterwards,
+   * so its symbols and rules have to be translated to the ones of this specification.
+   */
+  private LRParserTable buildTable() {
+    String fingerprint = (myUserFullLR ? "LR1" : "SLR") + fingerprint(myGrammar);
+    synchronized (ourTables) {
+      LRParserTable result = ourTables.get(fingerprint);
+      if (result == null) {
+        result = createGenerator(copyWithoutHandlers(myGrammar)).generateTable();
+        ourTables.put(fingerprint, result);
       }
+      return result;
     }
+  }
 
-    if (terminal == null) {
-      terminal = myError;
+  private static Grammar copyWithoutHandlers(Grammar grammar) {
+    Grammar result = new Grammar();
+    Map<Symbol, Symbol> symbols = new HashMap<>();
+    symbols.put(grammar.getStart(), result.getStart());
+    symbols.put(grammar.getEnd(), result.getEnd());
+    for (NonTerminal nonTerminal : grammar.getNonTerminals()) {
+      if (nonTerminal != grammar.getStart()) {
+        symbols.put(nonTerminal, result.newNonTerminal(nonTerminal.toString()));
+      }
     }
+    for (Terminal terminal : grammar.getTerminals()) {
+      if (terminal != grammar.getEnd()) {
+        symbols.put(terminal, result.newTerminal(terminal.toString()));
+      }
+    }
+    for (Rule rule : grammar.getRules()) {
+      Symbol[] ruleSymbols = new Symbol[rule.getSymbols().size()];
+      for (int i = 0; i < ruleSymbols.length; i++) {
+        ruleSymbols[i] = symbols.get(rule.getSymbols().get(i));
+      }
+      result.newRule((NonTerminal) symbols.get(rule.getHead()), ruleSymbols)
+          .setPriority(rule.getPriority())
+          .setAssociativity(rule.getAssociativity());
+    }
+    return result;
+  }
+
+  private static String fingerprint(Grammar grammar) {
+    StringBuilder result = new StringBuilder();
+    for (NonTerminal nonTerminal : grammar.getNonTerminals()) {
+      appendName(result.append('N'), nonTerminal);
+    }
+    for (Terminal terminal : grammar.getTerminals()) {
+      appendName(result.append('T'), terminal);
+    }
+    for (Rule rule : grammar.getRules()) {
+      appendName(result.append('R'), rule.getHead());
+      for (Symbol symbol : rule.getSymbols()) {
+        appendName(result.append(' '), symbol);
+      }
+      result.append(' ').append(rule.getPriority()).append(' ').append(rule.getAssociativity());
+    }
+    return result.toString();
+  }
 
-    return new Lexeme(terminal, token);
+  private static void appendName(StringBuilder result, Symbol symbol) {
+    String name = symbol.toString();
+    result.append(name.length()).append(':').append(name);
   }
 
-  private LRParserTable buildTable() {
-    return createGenerator().generateTable();
+  private static <ValueT> Map<ValueT, ValueT> zip(Collection<ValueT> keys, Collection<ValueT> values) {
+    if (keys.size() != values.size()) {
+      throw new IllegalStateException("Grammar doesn't match the parser table: " + keys + " vs " + values);
+    }
+    Map<ValueT, ValueT> result = new HashMap<>();
+    Iterator<ValueT> valuesIterator = values.iterator();
+    for (ValueT key : keys) {
+      result.put(key, valuesIterator.next());
+    }
+    return result;
   }
 
-  private BaseLRTableGenerator<?> createGenerator() {
+  private BaseLRTableGenerator<?> createGenerator(Grammar grammar) {
     BaseLRTableGenerator<?> generator;
     if (myUserFullLR) {
-      generator = new LR1TableGenerator(myGrammar);
+      generator = new LR1TableGenerator(grammar);
     } else {
-      generator = new SLRTableGenerator(myGrammar);
+      generator = new SLRTableGenerator(grammar);
     }
     return generator;
   }
 
   public void dumpTable() {
-    createGenerator().dumpTable();
+    createGenerator(myGrammar).dumpTable();
   }
 
   public Function<ParserParameters, Parser<ExprT>> buildParameterizedParser() {
     final LRParserTable table = buildTable();
+    Grammar tableGrammar = table.getGrammar();
+    final Lexer lexer = new Lexer(zip(myGrammar.getTerminals(), tableGrammar.getTerminals()));
+    final Map<Rule, Rule> rules = zip(tableGrammar.getRules(), myGrammar.getRules());
+    final Function<Rule, RuleHandler> handlerProvider = new Function<Rule, RuleHandler>() {
+      @Override
+      public RuleHandler apply(Rule rule) {
+        return rules.get(rule).getHandler();
+      }
+    };
+    final NonTerminal tableExpr = zip(myGrammar.getNonTerminals(), tableGrammar.getNonTerminals()).get(myExpr);
+    final ErrorExpressionFactory<ExprT> errorFactory = myErrorFactory;
     return new Function<ParserParameters, Parser<ExprT>>() {
       @Override
       public Parser<ExprT> apply(final ParserParameters parserParameters) {
-        return new Parser<ExprT>() {
+        return new ErrorRecoveringParser<ExprT>() {
           @Override
           public ExprT parse(ParsingContext ctx) {
+            return parse(ctx, new ArrayList<ExprT>());
+          }
+
+          @Override
+          public ExprT parse(ParsingContext ctx, List<? super ExprT> errors) {
             LRParser parser = new LRParser(table, parserParameters);
-            return (ExprT) parser.parse(toLexemes(ctx));
+            if (errorFactory == null) {
+              return (ExprT) parser.parse(lexer.toLexemes(ctx), handlerProvider);
+            }
+            return (ExprT) parser.parse(lexer.toLexemes(ctx), handlerProvider,
+                errorHandlerProvider(tableExpr, errorFactory, errors));
           }
         };
       }
     };
   }
 
-  private List<Lexeme> toLexemes(ParsingContext ctx) {
-    List<Lexeme> lexemes = new ArrayList<>();
-    while (ctx.current() != null) {
-      lexemes.add(getLexeme(ctx.current()));
-      ctx.advance();
-    }
-    lexemes.add(new Lexeme(myGrammar.getEnd(), null));
-    return lexemes;
+  private Function<NonTerminal, RuleHandler> errorHandlerProvider(final NonTerminal expr,
+                                                                  final ErrorExpressionFactory<ExprT> factory,
+                                                                  final List<? super ExprT> errors) {
+    final RuleHandler handler = new RuleHandler() {
+      @Override
+      public Object handle(RuleContext ctx) {
+        List<Object> parts = new ArrayList<>();
+        for (int i = 0; i < ctx.getValueCount(); i++) {
+          Object value = ctx.get(i);
+          if (!(value instanceof Lexeme)) {
+            parts.add(value);
+          }
+        }
+        ExprT error = factory.create(ctx.getParams(), parts, (List<Token>) ctx.getLexemeValues());
+        errors.add(error);
+        return error;
+      }
+    };
+    return new Function<NonTerminal, RuleHandler>() {
+      @Override
+      public RuleHandler apply(NonTerminal nonTerminal) {
+        return nonTerminal == expr ? handler : null;
+      }
+    };
   }
 
   public Parser<ExprT> buildParser() {
     return buildParameterizedParser().apply(ParserParameters.EMPTY);
   }
 
+  /**
+   * Terminal dispatch which is compiled when a parser is built. Tokens declared with a terminal are looked up
+   * in a hash table. Value predicates are checked only for value tokens, and custom predicates are checked in
+   * declaration order only for tokens which weren't resolved otherwise. Lexemes refer to the terminals of the
+   * parser table's grammar.
+   */
+  private class Lexer {
+    private final Map<Token, Terminal> myTerminals = new HashMap<>();
+    private final List<Predicate<Token>> myPredicates = new ArrayList<>();
+    private final List<Terminal> myPredicateTerminals = new ArrayList<>();
+    private final List<Predicate<Token>> myValuePredicates = new ArrayList<>();
+    private final List<Terminal> myValuePredicateTerminals = new ArrayList<>();
+    private final Terminal myIdTerminal;
+    private final Terminal myIntTerminal;
+    private final Terminal myBoolTerminal;
+    private final Terminal myErrorTerminal;
+    private final Terminal myEndTerminal;
+
+    private Lexer(Map<Terminal, Terminal> tableTerminals) {
+      for (Map.Entry<Token, Terminal> e : myTokenToTerminal.entrySet()) {
+        myTerminals.put(e.getKey(), tableTerminals.get(e.getValue()));
+      }
+      for (Map.Entry<Predicate<Token>, Terminal> e : myCustomTokens.entrySet()) {
+        myPredicates.add(e.getKey());
+        myPredicateTerminals.add(tableTerminals.get(e.getValue()));
+      }
+      for (Map.Entry<Predicate<Token>, Terminal> e : myValueTokens.entrySet()) {
+        myValuePredicates.add(e.getKey());
+        myValuePredicateTerminals.add(tableTerminals.get(e.getValue()));
+      }
+      myIdTerminal = tableTerminals.get(myId);
+      myIntTerminal = tableTerminals.get(myIntNumber);
+      myBoolTerminal = tableTerminals.get(myBool);
+      myErrorTerminal = tableTerminals.get(myError);
+      myEndTerminal = tableTerminals.get(myGrammar.getEnd());
+    }
+
+    private List<Lexeme> toLexemes(ParsingContext ctx) {
+      List<Lexeme> lexemes = new ArrayList<>();
+      while (ctx.current() != null) {
+        lexemes.add(getLexeme(ctx.current()));
+        ctx.advance();
+      }
+      lexemes.add(new Lexeme(myEndTerminal, null));
+      return lexemes;
+    }
+
+    private Lexeme getLexeme(Token token) {
+      Terminal terminal;
+      if (token instanceof IdentifierToken) {
+        terminal = myIdTerminal;
+      } else if (token instanceof IntValueToken) {
+        terminal = myIntTerminal;
+      } else if (token instanceof BoolValueToken) {
+        terminal = myBoolTerminal;
+      } else {
+        terminal = myTerminals.get(token);
+        if (terminal == null && token instanceof ValueToken) {
+          terminal = find(token, myValuePredicates, myValuePredicateTerminals);
+        }
+        if (terminal == null) {
+          terminal = find(token, myPredicates, myPredicateTerminals);
+        }
+      }
+
+      if (terminal == null) {
+        terminal = myErrorTerminal;
+      }
+
+      return new Lexeme(terminal, token);
+    }
+
+    private Terminal find(Token token, List<Predicate<Token>> predicates, List<Terminal> terminals) {
+      for (int i = 0; i < predicates.size(); i++) {
+        if (predicates.get(i).apply(token)) {
+          return terminals.get(i);
+        }
+      }
+      return null;
+    }
+  }
+
   public interface SimpleGrammarContext {
     Grammar grammar();
 
@@ -297,6 +297,15 @@ abstract class BaseHybridEditorEditingTest<ContainerT, MapperT extends Mapper<Co
     assertTokens(Tokens.ID, Tokens.ID);
   }
 
+  @Test
+  public void respacingAfterTokenRemoval() {
+    setTokens(Tokens.DOT, Tokens.RP, Tokens.ID);
+
+    sync.tokens().remove(1);
+
+    assertTrue(targetCell.children().get(1) instanceof HorizontalCell);
+  }
+
   @Test
   public void deleteDotWithDel() {
     setTokens(Tokens.ID, Tokens.DOT, Tokens.ID);
@@ -767,6 +776,37 @@ abstract class BaseHybridEditorEditingTest<ContainerT, MapperT extends Mapper<Co
     assertSelected(0);
   }
 
+  @Test
+  public void selectionHighlightFollowsRange() {
+    setTokens(Tokens.ID, Tokens.PLUS, Tokens.ID, Tokens.PLUS, Tokens.ID);
+    select(0, true);
+
+    sync.select(Range.closed(0, 3));
+    assertTrue(sync.tokenCells().get(0).selected().get());
+    assertTrue(sync.tokenCells().get(2).selected().get());
+    assertFalse(sync.tokenCells().get(3).selected().get());
+
+    sync.select(Range.closed(0, 1));
+    assertTrue(sync.tokenCells().get(0).selected().get());
+    assertFalse(sync.tokenCells().get(1).selected().get());
+    assertFalse(sync.tokenCells().get(2).selected().get());
+  }
+
+  @Test
+  public void removingSelectedTokenClearsHighlight() {
+    setTokens(Tokens.ID, Tokens.PLUS, Tokens.ID);
+    select(0, true);
+    sync.select(Range.closed(0, 3));
+
+    sync.tokens().remove(0);
+    sync.tokens().add(Tokens.ID);
+
+    assertNoSelection();
+    for (Cell cell : sync.tokenCells()) {
+      assertFalse(cell.selected().get());
+    }
+  }
+
   @Test
   public void selectDownNoParse() {
     setTokens(Tokens.ID, Tokens.ID);
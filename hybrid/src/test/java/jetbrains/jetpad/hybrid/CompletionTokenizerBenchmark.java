@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.hybrid;
+
+import jetbrains.jetpad.hybrid.testapp.mapper.ExprHybridEditorSpec;
+
+/**
+ * Measures tokenizing texts of growing length, so that it can be seen that the time per character stays the same.
+ * One text is a valid expression, the other one has long runs of characters which can't be completed.
+ */
+public class CompletionTokenizerBenchmark {
+  private static final int[] LENGTHS = { 25000, 50000, 100000 };
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) {
+    CompletionTokenizer tokenizer = new CompletionTokenizer(new ExprHybridEditorSpec());
+    for (int i = 0; i < ROUNDS; i++) {
+      for (int length : LENGTHS) {
+        measure(tokenizer, "valid", repeat("(id + 12) * value ! + 'text' . ", length));
+        measure(tokenizer, "invalid", repeat("^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^ + ", length));
+      }
+    }
+  }
+
+  private static void measure(CompletionTokenizer tokenizer, String name, String text) {
+    long start = System.nanoTime();
+    int tokens = tokenizer.tokenize(text).size();
+    long elapsed = System.nanoTime() - start;
+    System.out.println(name + ", " + text.length() + " chars, " + tokens + " tokens: " + elapsed / 1000000 + " ms, "
+        + elapsed / text.length() + " ns/char");
+  }
+
+  private static String repeat(String fragment, int length) {
+    StringBuilder result = new StringBuilder(length + fragment.length());
+    while (result.length() < length) {
+      result.append(fragment);
+    }
+    return result.toString();
+  }
+}
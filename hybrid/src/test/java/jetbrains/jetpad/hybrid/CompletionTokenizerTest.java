@@ -146,6 +146,18 @@ public class CompletionTokenizerTest {
     assertTokensEqual(of(error("bad+"), error("bad"), PLUS), tokens);
   }
 
+  @Test
+  public void incorrectPrefixNotCompletedLater() {
+    List<Token> tokens = tokenizer.tokenize("^1+2 3");
+    assertTokensEqual(of(error("^1+2"), integer(3)), tokens);
+  }
+
+  @Test
+  public void tokenAfterIncorrect() {
+    List<Token> tokens = tokenizer.tokenize("bad value");
+    assertTokensEqual(of(error("bad"), value()), tokens);
+  }
+
   @Test
   public void oneComment() {
     List<Token> tokens = tokenizer.tokenize("#comment");
@@ -16,14 +16,19 @@
 package jetbrains.jetpad.hybrid;
 
 import jetbrains.jetpad.cell.Cell;
+import jetbrains.jetpad.cell.CellPropertySpec;
+import jetbrains.jetpad.cell.TextCell;
+import jetbrains.jetpad.cell.trait.CellTrait;
 import jetbrains.jetpad.hybrid.parser.IdentifierToken;
 import jetbrains.jetpad.hybrid.testapp.mapper.ExprContainerMapper;
 import jetbrains.jetpad.hybrid.testapp.mapper.Tokens;
 import jetbrains.jetpad.hybrid.testapp.model.Expr;
 import jetbrains.jetpad.hybrid.testapp.model.ExprContainer;
+import jetbrains.jetpad.hybrid.testapp.model.MulExpr;
 import jetbrains.jetpad.hybrid.testapp.model.PlusExpr;
 import jetbrains.jetpad.hybrid.testapp.model.VarExpr;
 import jetbrains.jetpad.projectional.cell.mapping.ToCellMapping;
+import jetbrains.jetpad.values.Color;
 import org.junit.Test;
 
 import java.util.Arrays;
@@ -79,4 +84,45 @@ public class HybridEditorTest extends BaseHybridEditorTest<ExprContainer, ExprCo
       assertNotNull(mapping.getSource(c));
     }
   }
+
+  @Test
+  public void replacedTokenCellReused() {
+    initEditor();
+    sync.tokens().addAll(Arrays.asList(Tokens.ID, Tokens.PLUS, Tokens.ID));
+    Cell cell = sync.tokenCells().get(1);
+
+    sync.tokens().set(1, Tokens.MUL);
+
+    assertSame(cell, sync.tokenCells().get(1));
+    assertEquals("*", ((TextCell) cell).text().get());
+    assertTrue(getExpr() instanceof MulExpr);
+  }
+
+  @Test
+  public void tokenCellWithForeignTraitNotReused() {
+    initEditor();
+    sync.tokens().addAll(Arrays.asList(Tokens.ID, Tokens.PLUS, Tokens.ID));
+    Cell cell = sync.tokenCells().get(1);
+    cell.addTrait(CellTrait.EMPTY);
+
+    sync.tokens().set(1, Tokens.MUL);
+
+    assertNotSame(cell, sync.tokenCells().get(1));
+  }
+
+  @Test
+  public void reusedTokenCellPropertiesReset() {
+    CellPropertySpec<String> custom = new CellPropertySpec<>("custom");
+    initEditor();
+    sync.tokens().addAll(Arrays.asList(Tokens.ID, Tokens.PLUS, Tokens.ID));
+    Cell cell = sync.tokenCells().get(1);
+    cell.set(custom, "value");
+    cell.background().set(Color.RED);
+
+    sync.tokens().set(1, Tokens.MUL);
+
+    assertSame(cell, sync.tokenCells().get(1));
+    assertNull(cell.get(custom));
+    assertNull(cell.background().get());
+  }
 }
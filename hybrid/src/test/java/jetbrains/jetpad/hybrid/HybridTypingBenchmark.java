@@ -0,0 +1,103 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.hybrid;
+
+import jetbrains.jetpad.base.Registration;
+import jetbrains.jetpad.cell.CellContainer;
+import jetbrains.jetpad.cell.EditableCellContainer;
+import jetbrains.jetpad.cell.action.CellActions;
+import jetbrains.jetpad.hybrid.parser.IdentifierToken;
+import jetbrains.jetpad.hybrid.parser.Token;
+import jetbrains.jetpad.hybrid.testapp.mapper.ExprContainerMapper;
+import jetbrains.jetpad.hybrid.testapp.mapper.Tokens;
+import jetbrains.jetpad.hybrid.testapp.model.ExprContainer;
+import jetbrains.jetpad.projectional.util.RootController;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures typing an expression of 1000 tokens into a hybrid editor. Dots are typed between identifiers,
+ * so that every new token changes spacing of its neighbor. Then all identifiers of the expression are renamed
+ * a number of times, which replaces their cells. Allocated bytes are reported where the JVM can measure them.
+ */
+public class HybridTypingBenchmark {
+  private static final int TOKENS = 1000;
+  private static final int ROUNDS = 5;
+  private static final int RENAMES = 20;
+
+  public static void main(String[] args) {
+    for (int i = 0; i < ROUNDS; i++) {
+      CellContainer cellContainer = new CellContainer();
+      EditableCellContainer editable = new EditableCellContainer(cellContainer);
+      Registration registration = RootController.install(cellContainer);
+
+      ExprContainerMapper mapper = new ExprContainerMapper(new ExprContainer());
+      mapper.attachRoot();
+      cellContainer.root.children().add(mapper.getTarget());
+      CellActions.toFirstFocusable(mapper.getTarget()).run();
+
+      long start = System.nanoTime();
+      long allocated = allocatedBytes();
+      editable.type("id");
+      while (mapper.hybridSync.tokens().size() < TOKENS) {
+        editable.type(".id");
+      }
+      long end = System.nanoTime();
+
+      System.out.println("typing " + mapper.hybridSync.tokens().size() + " tokens: " + (end - start) / 1000000 + " ms"
+          + allocatedSince(allocated));
+
+      start = System.nanoTime();
+      allocated = allocatedBytes();
+      for (int j = 0; j < RENAMES; j++) {
+        mapper.hybridSync.setTokens(renamed(mapper.hybridSync.tokens(), "x" + j % 2));
+      }
+      end = System.nanoTime();
+
+      System.out.println("renaming " + RENAMES + " times: " + (end - start) / 1000000 + " ms"
+          + allocatedSince(allocated) + ", " + mapper.hybridSync.tokenCellPool());
+
+      cellContainer.root.children().remove(mapper.getTarget());
+      mapper.detachRoot();
+      registration.remove();
+      editable.mapper.detachRoot();
+    }
+  }
+
+  private static List<Token> renamed(List<Token> tokens, String name) {
+    List<Token> result = new ArrayList<>(tokens.size());
+    for (Token token : tokens) {
+      result.add(token == Tokens.ID || token instanceof IdentifierToken ? new IdentifierToken(name) : token);
+    }
+    return result;
+  }
+
+  private static long allocatedBytes() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  private static String allocatedSince(long allocated) {
+    if (allocated < 0) return "";
+    return ", allocated " + (allocatedBytes() - allocated) / (1024 * 1024) + " MB";
+  }
+}
@@ -141,15 +141,50 @@ public class ParsingHybridPropertyTest extends BaseTestCase {
     mySourceTokens.add(new IdentifierToken("a"));
     mySourceTokens.add(Tokens.PLUS);
     mySourceTokens.add(new IdentifierToken("b"));
-    assertEquals(5 /* Initial refresh + on add listener + 3 changes */,
+    assertEquals(4 /* Initial parse, reused by refresh + 3 changes */,
       parser.invocations);
 
     mySourceTokens.set(2, Tokens.MUL);
-    assertEquals(6, parser.invocations);
+    assertEquals(5, parser.invocations);
 
     r.remove();
   }
 
+  @Test
+  public void failedParseResultsReused() {
+    mySourceTokens.add(new IdentifierToken("a"));
+    mySourceTokens.add(Tokens.PLUS);
+    mySourceTokens.add(new IdentifierToken("b"));
+    int invocations = parser.invocations;
+
+    mySourceTokens.remove(2);
+    assertNull(myProp.get());
+    mySourceTokens.add(new IdentifierToken("b"));
+    assertEquals(invocations + 1, parser.invocations);
+
+    mySourceTokens.remove(2);
+    assertNull(myProp.get());
+    assertEquals(mySourceTokens, myProp.getTokens());
+    assertEquals(invocations + 1, parser.invocations);
+  }
+
+  @Test
+  public void successfulParseResultsNotReused() {
+    mySourceTokens.add(new IdentifierToken("a"));
+    mySourceTokens.add(Tokens.PLUS);
+    mySourceTokens.add(new IdentifierToken("b"));
+    Expr value = myProp.get();
+    int invocations = parser.invocations;
+
+    mySourceTokens.remove(2);
+    assertNull(myProp.get());
+    mySourceTokens.add(new IdentifierToken("b"));
+
+    assertNotSame(value, myProp.get());
+    assertEquals(mySourceTokens, myProp.getTokens());
+    assertEquals(invocations + 1, parser.invocations);
+  }
+
   @Test
   public void reprint() {
     mySourceTokens.add(Tokens.ID);
@@ -15,17 +15,32 @@
  */
 package jetbrains.jetpad.hybrid;
 
+import jetbrains.jetpad.base.Handler;
+import jetbrains.jetpad.grammar.ParserParameters;
+import jetbrains.jetpad.grammar.RuleContext;
+import jetbrains.jetpad.grammar.RuleHandler;
+import jetbrains.jetpad.grammar.parser.Lexeme;
 import jetbrains.jetpad.hybrid.parser.CommentToken;
+import jetbrains.jetpad.hybrid.parser.Parser;
 import jetbrains.jetpad.hybrid.parser.Token;
+import jetbrains.jetpad.hybrid.parser.prettyprint.PrettyPrinter;
+import jetbrains.jetpad.hybrid.parser.prettyprint.PrettyPrinterContext;
+import jetbrains.jetpad.hybrid.parser.simple.BinaryExpressionFactory;
+import jetbrains.jetpad.hybrid.parser.simple.ErrorExpressionFactory;
+import jetbrains.jetpad.hybrid.parser.simple.SimpleParserSpecification;
 import jetbrains.jetpad.hybrid.testapp.mapper.ExprHybridEditorSpec;
 import jetbrains.jetpad.hybrid.testapp.mapper.Tokens;
 import jetbrains.jetpad.hybrid.testapp.model.Expr;
 import jetbrains.jetpad.hybrid.testapp.model.NumberExpr;
 import jetbrains.jetpad.hybrid.testapp.model.PlusExpr;
 import jetbrains.jetpad.hybrid.parser.IntValueToken;
+import jetbrains.jetpad.model.collections.CollectionItemEvent;
 import jetbrains.jetpad.model.collections.list.ObservableArrayList;
+import jetbrains.jetpad.model.event.EventHandler;
+import jetbrains.jetpad.model.property.PropertyChangeEvent;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -47,6 +62,10 @@ public class TokenListEditorTest {
     return new TokenListEditor<>(new ExprHybridEditorSpec(), new ObservableArrayList<Token>(), updateModel);
   }
 
+  private static TokenListEditor<Expr> newErrorRecoveringEditor() {
+    return new TokenListEditor<>(new ErrorRecoveringSpec(), new ObservableArrayList<Token>(), true);
+  }
+
   private TokenListEditor<Expr> editor;
 
   @Test
@@ -101,6 +120,33 @@ public class TokenListEditorTest {
     assertFalse(editor.valid.get());
   }
 
+  @Test
+  public void recoveredTreeInvalid() {
+    editor = newErrorRecoveringEditor();
+    editor.tokens.addAll(Arrays.asList(new IntValueToken(1), Tokens.PLUS, Tokens.PLUS, new IntValueToken(2)));
+
+    assertTrue(editor.value.get() instanceof PlusExpr);
+    assertFalse(editor.valid.get());
+    assertEquals(4, editor.tokens.size());
+
+    editor.tokens.remove(2);
+
+    assertTrue(editor.value.get() instanceof PlusExpr);
+    assertTrue(editor.valid.get());
+  }
+
+  @Test
+  public void restoreStateKeepsRecoveredTree() {
+    editor = newErrorRecoveringEditor();
+    editor.tokens.addAll(Arrays.asList(new IntValueToken(1), Tokens.PLUS));
+    List<Token> tokens = new ArrayList<>(editor.tokens);
+
+    editor.restoreState(null);
+
+    assertEquals(tokens, editor.tokens);
+    assertFalse(editor.valid.get());
+  }
+
   @Test
   public void updateToPrintedDisable() {
     editor = newTokenListEditor(false);
@@ -132,4 +178,127 @@ public class TokenListEditorTest {
     assertNull(editor.value.get());
     assertTrue(editor.valid.get());
   }
+
+  @Test
+  public void replaceTokensReparsesOnce() {
+    editor = newTokenListEditor(true);
+    editor.tokens.add(new IntValueToken(2));
+
+    final List<Expr> values = new ArrayList<>();
+    editor.value.addHandler(new EventHandler<PropertyChangeEvent<Expr>>() {
+      @Override
+      public void onEvent(PropertyChangeEvent<Expr> event) {
+        values.add(event.getNewValue());
+      }
+    });
+    editor.replaceTokens(0, 1, simpleTokenList());
+
+    assertEquals(simpleTokenList(), editor.tokens);
+    assertEquals(1, values.size());
+    assertTrue(values.get(0) instanceof PlusExpr);
+    assertTrue(editor.valid.get());
+  }
+
+  @Test
+  public void replaceTokensKeepsEqualTokens() {
+    editor = newTokenListEditor(true);
+    editor.tokens.addAll(simpleTokenList());
+    Token first = editor.tokens.get(0);
+    Token last = editor.tokens.get(2);
+
+    final List<CollectionItemEvent<? extends Token>> events = new ArrayList<>();
+    editor.tokens.addHandler(new EventHandler<CollectionItemEvent<? extends Token>>() {
+      @Override
+      public void onEvent(CollectionItemEvent<? extends Token> event) {
+        events.add(event);
+      }
+    });
+    editor.replaceTokens(0, 3, Arrays.asList(new IntValueToken(0), Tokens.MUL, new IntValueToken(0)));
+
+    assertSame(first, editor.tokens.get(0));
+    assertSame(Tokens.MUL, editor.tokens.get(1));
+    assertSame(last, editor.tokens.get(2));
+    for (CollectionItemEvent<? extends Token> event : events) {
+      assertEquals(1, event.getIndex());
+    }
+    assertTrue(editor.valid.get());
+  }
+
+  @Test
+  public void replaceTokensWithoutChanges() {
+    editor = newTokenListEditor(true);
+    editor.tokens.addAll(simpleTokenList());
+    Expr value = editor.value.get();
+
+    editor.replaceTokens(0, 3, simpleTokenList());
+
+    assertSame(value, editor.value.get());
+  }
+
+  private static class ErrorExpr extends Expr {
+    private final List<Token> tokens;
+
+    private ErrorExpr(List<Token> tokens) {
+      this.tokens = new ArrayList<>(tokens);
+    }
+  }
+
+  private static class ErrorRecoveringSpec extends ExprHybridEditorSpec {
+    private final Parser<Expr> myParser;
+
+    private ErrorRecoveringSpec() {
+      SimpleParserSpecification<Expr> spec = new SimpleParserSpecification<>();
+      spec.addBinaryOperator(Tokens.PLUS, new BinaryExpressionFactory<Expr>() {
+        @Override
+        public Expr create(ParserParameters params, Expr left, Expr right) {
+          PlusExpr result = new PlusExpr();
+          result.left.set(left);
+          result.right.set(right);
+          return result;
+        }
+      }, 0, true);
+      spec.changeGrammar(new Handler<SimpleParserSpecification.SimpleGrammarContext>() {
+        @Override
+        public void handle(SimpleParserSpecification.SimpleGrammarContext ctx) {
+          ctx.grammar().newRule(ctx.expr(), ctx.number()).setHandler(new RuleHandler() {
+            @Override
+            public Object handle(RuleContext ctx) {
+              NumberExpr result = new NumberExpr();
+              result.value.set(((IntValueToken) ((Lexeme) ctx.get(0)).getValue()).getValue());
+              return result;
+            }
+          });
+        }
+      });
+      spec.setErrorFactory(new ErrorExpressionFactory<Expr>() {
+        @Override
+        public Expr create(ParserParameters params, List<Object> parts, List<Token> tokens) {
+          return new ErrorExpr(tokens);
+        }
+      });
+      myParser = spec.buildParser();
+    }
+
+    @Override
+    public Parser<Expr> getParser() {
+      return myParser;
+    }
+
+    @Override
+    public PrettyPrinter<Expr> getPrettyPrinter() {
+      final PrettyPrinter<Expr> printer = super.getPrettyPrinter();
+      return new PrettyPrinter<Expr>() {
+        @Override
+        public void print(Expr value, PrettyPrinterContext<Expr> ctx) {
+          if (value instanceof ErrorExpr) {
+            for (Token token : ((ErrorExpr) value).tokens) {
+              ctx.append(token);
+            }
+            return;
+          }
+          printer.print(value, ctx);
+        }
+      };
+    }
+  }
 }
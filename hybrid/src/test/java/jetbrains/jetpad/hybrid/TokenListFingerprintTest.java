@@ -0,0 +1,76 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.hybrid;
+
+import jetbrains.jetpad.hybrid.parser.IdentifierToken;
+import jetbrains.jetpad.hybrid.parser.Token;
+import jetbrains.jetpad.hybrid.testapp.mapper.Tokens;
+import jetbrains.jetpad.model.collections.list.ObservableArrayList;
+import jetbrains.jetpad.model.collections.list.ObservableList;
+import jetbrains.jetpad.test.BaseTestCase;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TokenListFingerprintTest extends BaseTestCase {
+  private static final List<Token> ALPHABET = Arrays.asList(
+      Tokens.ID, Tokens.PLUS, Tokens.MUL, Tokens.LP, Tokens.RP, new IdentifierToken("a"), new IdentifierToken("b"));
+
+  @Test
+  public void equalListsHaveEqualFingerprints() {
+    assertEquals(fingerprint(Tokens.ID, Tokens.PLUS, Tokens.ID), fingerprint(Tokens.ID, Tokens.PLUS, Tokens.ID));
+    assertEquals(fingerprint(), fingerprint());
+  }
+
+  @Test
+  public void orderMatters() {
+    assertNotEquals(fingerprint(Tokens.ID, Tokens.PLUS, Tokens.MUL), fingerprint(Tokens.ID, Tokens.MUL, Tokens.PLUS));
+    assertNotEquals(fingerprint(Tokens.ID), fingerprint(Tokens.ID, Tokens.ID));
+  }
+
+  @Test
+  public void incrementalUpdates() {
+    Random random = new Random(42);
+    ObservableList<Token> tokens = new ObservableArrayList<>();
+    TokenListFingerprint fingerprint = TokenListFingerprint.track(tokens);
+
+    for (int i = 0; i < 1000; i++) {
+      int op = tokens.isEmpty() ? 0 : random.nextInt(3);
+      if (op == 0) {
+        tokens.add(random.nextInt(tokens.size() + 1), randomToken(random));
+      } else if (op == 1) {
+        tokens.set(random.nextInt(tokens.size()), randomToken(random));
+      } else {
+        tokens.remove(random.nextInt(tokens.size()));
+      }
+      assertEquals(fingerprint(tokens.toArray(new Token[tokens.size()])), fingerprint.get());
+    }
+  }
+
+  private Token randomToken(Random random) {
+    return ALPHABET.get(random.nextInt(ALPHABET.size()));
+  }
+
+  private long fingerprint(Token... tokens) {
+    ObservableList<Token> list = new ObservableArrayList<>();
+    list.addAll(Arrays.asList(tokens));
+    return TokenListFingerprint.track(list).get();
+  }
+}
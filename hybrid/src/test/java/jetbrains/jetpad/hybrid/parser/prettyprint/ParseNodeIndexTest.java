@@ -0,0 +1,132 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.hybrid.parser.prettyprint;
+
+import com.google.common.collect.Range;
+import jetbrains.jetpad.hybrid.testapp.mapper.ExprHybridEditorSpec;
+import jetbrains.jetpad.hybrid.testapp.model.*;
+import jetbrains.jetpad.test.BaseTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ParseNodeIndexTest extends BaseTestCase {
+  @Test
+  public void singleToken() {
+    Expr expr = var("a");
+    ParseNode root = print(expr);
+    ParseNodeIndex index = new ParseNodeIndex(root);
+
+    assertSame(root, index.findNodeFor(expr));
+    assertSame(root, index.findForRange(Range.closed(0, 1)));
+    assertNull(index.nonSameRangeParent(root));
+    assertNull(index.nonSameRangeChild(root, 0));
+  }
+
+  @Test
+  public void nestedExpression() {
+    PlusExpr inner = plus(var("a"), var("b"));
+    MulExpr mul = mul(paren(inner), var("c"));
+    FactorialExpr fact = new FactorialExpr();
+    fact.expr.set(paren(var("d")));
+    PlusExpr expr = plus(mul, fact);
+
+    ParseNode root = print(expr);
+    ParseNodeIndex index = new ParseNodeIndex(root);
+
+    assertSame(expr, index.findNodeFor(expr).getValue());
+    assertEquals(Range.closed(1, 4), index.findNodeFor(inner).getRange());
+    assertSame(inner, index.findForRange(Range.closed(1, 3)).getValue());
+    assertSame(mul, index.nonSameRangeParent(index.findNodeFor(inner.left.get())).getParent().getParent().getValue());
+    assertNull(index.findNodeFor(new VarExpr()));
+
+    assertSameAsTraversal(root, index);
+  }
+
+  @Test
+  public void longChain() {
+    Expr expr = var("x0");
+    for (int i = 1; i < 100; i++) {
+      expr = i % 3 == 0 ? paren(plus(expr, var("x" + i))) : plus(expr, var("x" + i));
+    }
+
+    ParseNode root = print(expr);
+    assertSameAsTraversal(root, new ParseNodeIndex(root));
+  }
+
+  private void assertSameAsTraversal(ParseNode root, ParseNodeIndex index) {
+    int tokenCount = root.getRange().upperEndpoint();
+    for (int start = 0; start < tokenCount; start++) {
+      for (int end = start + 1; end <= tokenCount; end++) {
+        Range<Integer> range = Range.closed(start, end);
+        assertSame(ParseNodes.findForRange(root, range), index.findForRange(range));
+      }
+    }
+
+    List<ParseNode> nodes = new ArrayList<>();
+    collect(root, nodes);
+    for (ParseNode node : nodes) {
+      assertSame(ParseNodes.findNodeFor(root, node.getValue()), index.findNodeFor(node.getValue()));
+      assertSame(ParseNodes.nonSameRangeParent(node), index.nonSameRangeParent(node));
+      Range<Integer> range = node.getRange();
+      for (int offset = range.lowerEndpoint(); offset < range.upperEndpoint(); offset++) {
+        assertSame(ParseNodes.nonSameRangeChild(node, offset), index.nonSameRangeChild(node, offset));
+      }
+    }
+  }
+
+  private void collect(ParseNode node, List<ParseNode> result) {
+    result.add(node);
+    for (ParseNode child : node.getChildren()) {
+      collect(child, result);
+    }
+  }
+
+  private ParseNode print(Expr expr) {
+    PrettyPrinterContext<Expr> ctx = new PrettyPrinterContext<>(new ExprHybridEditorSpec().getPrettyPrinter());
+    ctx.print(expr);
+    return ctx.result();
+  }
+
+  private VarExpr var(String name) {
+    VarExpr result = new VarExpr();
+    result.name.set(name);
+    return result;
+  }
+
+  private ParenExpr paren(Expr expr) {
+    ParenExpr result = new ParenExpr();
+    result.expr.set(expr);
+    return result;
+  }
+
+  private PlusExpr plus(Expr left, Expr right) {
+    PlusExpr result = new PlusExpr();
+    result.left.set(left);
+    result.right.set(right);
+    return result;
+  }
+
+  private MulExpr mul(Expr left, Expr right) {
+    MulExpr result = new MulExpr();
+    result.left.set(left);
+    result.right.set(right);
+    return result;
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.hybrid.parser.simple;
+
+import jetbrains.jetpad.base.Handler;
+import jetbrains.jetpad.grammar.ParserParameters;
+import jetbrains.jetpad.grammar.RuleContext;
+import jetbrains.jetpad.grammar.RuleHandler;
+import jetbrains.jetpad.hybrid.parser.SimpleToken;
+import jetbrains.jetpad.hybrid.parser.Token;
+
+/**
+ * Measures startup of 100 editors, each of which builds its parser from its own specification of the same
+ * expression language. Only the first editor has to generate the parser table, the others share it.
+ */
+public class SimpleParserSpecificationBenchmark {
+  private static final int EDITORS = 100;
+  private static final String[] OPERATORS = { "||", "&&", "==", "!=", "<", ">", "<=", ">=", "+", "-", "*", "/", "%" };
+  private static final Token[] TOKENS = new Token[OPERATORS.length];
+  private static final Token NOT = new SimpleToken("!");
+  private static final Token LP = new SimpleToken("(");
+  private static final Token RP = new SimpleToken(")");
+
+  static {
+    for (int i = 0; i < OPERATORS.length; i++) {
+      TOKENS[i] = new SimpleToken(OPERATORS[i]);
+    }
+  }
+
+  public static void main(String[] args) {
+    for (boolean fullLR : new boolean[] { false, true }) {
+      long start = System.nanoTime();
+      long first = 0;
+      for (int i = 0; i < EDITORS; i++) {
+        createSpecification(fullLR).buildParser();
+        if (i == 0) {
+          first = System.nanoTime() - start;
+        }
+      }
+      long elapsed = System.nanoTime() - start;
+      System.out.println((fullLR ? "LR(1)" : "SLR") + ", " + EDITORS + " editors: " + elapsed / 1000000 + " ms, "
+          + "first: " + first / 1000000 + " ms, others: " + (elapsed - first) / (EDITORS - 1) / 1000 + " us each");
+    }
+  }
+
+  private static SimpleParserSpecification<Object> createSpecification(boolean fullLR) {
+    SimpleParserSpecification<Object> spec = new SimpleParserSpecification<>(fullLR);
+    BinaryExpressionFactory<Object> binary = new BinaryExpressionFactory<Object>() {
+      @Override
+      public Object create(ParserParameters params, Object left, Object right) {
+        return left;
+      }
+    };
+    UnaryExpressionFactory<Object> unary = new UnaryExpressionFactory<Object>() {
+      @Override
+      public Object create(ParserParameters params, Object expr) {
+        return expr;
+      }
+    };
+    for (int i = 0; i < TOKENS.length; i++) {
+      spec.addBinaryOperator(TOKENS[i], binary, i, true);
+    }
+    spec.addPrefix(NOT, unary, TOKENS.length);
+    spec.changeGrammar(new Handler<SimpleParserSpecification.SimpleGrammarContext>() {
+      @Override
+      public void handle(final SimpleParserSpecification.SimpleGrammarContext ctx) {
+        RuleHandler value = new RuleHandler() {
+          @Override
+          public Object handle(RuleContext ctx) {
+            return ctx.get(0);
+          }
+        };
+        ctx.grammar().newRule(ctx.expr(), ctx.id()).setHandler(value);
+        ctx.grammar().newRule(ctx.expr(), ctx.number()).setHandler(value);
+        ctx.grammar().newRule(ctx.expr(), ctx.bool()).setHandler(value);
+        ctx.grammar().newRule(ctx.expr(), ctx.terminal(LP), ctx.expr(), ctx.terminal(RP)).setHandler(
+            new RuleHandler() {
+              @Override
+              public Object handle(RuleContext ctx) {
+                return ctx.get(1);
+              }
+            });
+      }
+    });
+    return spec;
+  }
+}
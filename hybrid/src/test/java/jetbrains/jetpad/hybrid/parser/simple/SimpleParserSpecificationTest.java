@@ -0,0 +1,148 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.hybrid.parser.simple;
+
+import com.google.common.collect.ImmutableList;
+import jetbrains.jetpad.base.Handler;
+import jetbrains.jetpad.grammar.ParserParameters;
+import jetbrains.jetpad.grammar.RuleContext;
+import jetbrains.jetpad.grammar.RuleHandler;
+import jetbrains.jetpad.grammar.parser.Lexeme;
+import jetbrains.jetpad.hybrid.parser.ErrorRecoveringParser;
+import jetbrains.jetpad.hybrid.parser.IdentifierToken;
+import jetbrains.jetpad.hybrid.parser.Parser;
+import jetbrains.jetpad.hybrid.parser.SimpleParsingContext;
+import jetbrains.jetpad.hybrid.parser.SimpleToken;
+import jetbrains.jetpad.hybrid.parser.Token;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SimpleParserSpecificationTest {
+  private static final Token PLUS = new SimpleToken("+");
+  private static final Token MUL = new SimpleToken("*");
+  private static final Token FACTORIAL = new SimpleToken("!");
+
+  @Test
+  public void equivalentSpecificationsUseOwnHandlers() {
+    Parser<String> first = createSpecification("a").buildParser();
+    Parser<String> second = createSpecification("b").buildParser();
+
+    List<Token> tokens = ImmutableList.<Token>of(id("x"), PLUS, id("y"), MUL, id("z"));
+    assertEquals("a(x + a(y * z))", parse(first, tokens));
+    assertEquals("b(x + b(y * z))", parse(second, tokens));
+  }
+
+  @Test
+  public void differentPrioritiesNotShared() {
+    Parser<String> parser = createSpecification("a").buildParser();
+    Parser<String> reversed = createSpecification("a", 1, 0).buildParser();
+
+    List<Token> tokens = ImmutableList.<Token>of(id("x"), PLUS, id("y"), MUL, id("z"));
+    assertEquals("a(x + a(y * z))", parse(parser, tokens));
+    assertEquals("a(a(x + y) * z)", parse(reversed, tokens));
+  }
+
+  @Test
+  public void sharedTableNotChangedWithGrammar() {
+    SimpleParserSpecification.clearTables();
+    SimpleParserSpecification<String> changed = createSpecification("a");
+    changed.buildParser();
+    changed.addSuffix(FACTORIAL, new UnaryExpressionFactory<String>() {
+      @Override
+      public String create(ParserParameters params, String expr) {
+        return "a(" + expr + "!)";
+      }
+    }, 2);
+
+    Parser<String> parser = createSpecification("b").buildParser();
+    assertEquals("b(x + y)", parse(parser, ImmutableList.<Token>of(id("x"), PLUS, id("y"))));
+    assertEquals("a(x + a(y!))", parse(changed.buildParser(), ImmutableList.<Token>of(id("x"), PLUS, id("y"), FACTORIAL)));
+  }
+
+  @Test
+  public void invalidInput() {
+    Parser<String> parser = createSpecification("a").buildParser();
+
+    assertNull(parse(parser, ImmutableList.<Token>of(id("x"), PLUS, PLUS, id("y"))));
+  }
+
+  @Test
+  public void errorRecovery() {
+    SimpleParserSpecification<String> spec = createSpecification("a");
+    spec.setErrorFactory(new ErrorExpressionFactory<String>() {
+      @Override
+      public String create(ParserParameters params, List<Object> parts, List<Token> tokens) {
+        return "error" + parts;
+      }
+    });
+    ErrorRecoveringParser<String> parser = (ErrorRecoveringParser<String>) spec.buildParser();
+
+    List<String> errors = new ArrayList<>();
+    List<Token> tokens = ImmutableList.<Token>of(id("x"), PLUS, PLUS, id("y"));
+    assertEquals("a(a(x + error[]) + y)", parser.parse(new SimpleParsingContext(tokens), errors));
+    assertEquals(ImmutableList.of("error[]"), errors);
+
+    errors.clear();
+    parser.parse(new SimpleParsingContext(ImmutableList.<Token>of(id("x"), PLUS, id("y"))), errors);
+    assertTrue(errors.isEmpty());
+  }
+
+  private SimpleParserSpecification<String> createSpecification(String name) {
+    return createSpecification(name, 0, 1);
+  }
+
+  private SimpleParserSpecification<String> createSpecification(
+      final String name, int plusPriority, int mulPriority) {
+    SimpleParserSpecification<String> spec = new SimpleParserSpecification<>();
+    spec.addBinaryOperator(PLUS, binaryFactory(name, "+"), plusPriority, true);
+    spec.addBinaryOperator(MUL, binaryFactory(name, "*"), mulPriority, true);
+    spec.changeGrammar(new Handler<SimpleParserSpecification.SimpleGrammarContext>() {
+      @Override
+      public void handle(SimpleParserSpecification.SimpleGrammarContext ctx) {
+        ctx.grammar().newRule(ctx.expr(), ctx.id()).setHandler(new RuleHandler() {
+          @Override
+          public Object handle(RuleContext ctx) {
+            return ((Token) ((Lexeme) ctx.get(0)).getValue()).text();
+          }
+        });
+      }
+    });
+    return spec;
+  }
+
+  private BinaryExpressionFactory<String> binaryFactory(final String name, final String sign) {
+    return new BinaryExpressionFactory<String>() {
+      @Override
+      public String create(ParserParameters params, String left, String right) {
+        return name + "(" + left + " " + sign + " " + right + ")";
+      }
+    };
+  }
+
+  private String parse(Parser<String> parser, List<Token> tokens) {
+    return parser.parse(new SimpleParsingContext(tokens));
+  }
+
+  private Token id(String name) {
+    return new IdentifierToken(name);
+  }
+}
@@ -38,10 +38,6 @@ import jetbrains.jetpad.cell.util.CellFactory;
 import jetbrains.jetpad.completion.CompletionSupplier;
 import jetbrains.jetpad.event.*;
 import jetbrains.jetpad.mapper.*;
-import jetbrains.jetpad.model.collections.CollectionAdapter;
-import jetbrains.jetpad.model.collections.CollectionItemEvent;
-import jetbrains.jetpad.model.collections.list.ObservableArrayList;
-import jetbrains.jetpad.model.collections.list.ObservableList;
 import jetbrains.jetpad.model.event.CompositeRegistration;
 import jetbrains.jetpad.model.event.EventHandler;
 import jetbrains.jetpad.model.property.Property;
@@ -51,6 +47,7 @@ import jetbrains.jetpad.model.util.ListMap;
 import jetbrains.jetpad.projectional.generic.EmptyRoleCompletion;
 import jetbrains.jetpad.projectional.generic.Role;
 import jetbrains.jetpad.projectional.generic.RoleCompletion;
+import jetbrains.jetpad.projectional.selection.SelectionRange;
 import jetbrains.jetpad.projectional.selection.SelectionSupport;
 import jetbrains.jetpad.values.Color;
 
@@ -61,7 +58,10 @@ import static jetbrains.jetpad.event.ContentKinds.listOf;
 abstract class BaseProjectionalSynchronizer<SourceT, ContextT, SourceItemT> implements ProjectionalRoleSynchronizer<ContextT, SourceItemT> {
   private RoleSynchronizer<SourceItemT, Cell> myRoleSynchronizer;
   private SelectionSupport<SourceItemT> mySelectionSupport;
-  private ObservableList<SourceItemT> mySelectedItems = new ObservableArrayList<>();
+  private List<SourceItemT> mySelectedItems;
+  private Cell myHighlightStart;
+  private Cell myHighlightEnd;
+  private int myBulkEditDepth;
   private Mapper<? extends ContextT, ? extends Cell> myMapper;
   private Cell myTarget;
   private String myPlaceholderText;
@@ -80,6 +80,8 @@ abstract class BaseProjectionalSynchronizer<SourceT, ContextT, SourceItemT> impl
   private List<Cell> myTargetList;
   private List<Registration> myRegistrations;
   private Character mySeparatorChar;
+  private PositionIndex<SourceItemT> myItemPositions = new PositionIndex<>();
+  private PositionIndex<Cell> myCellPositions = new PositionIndex<>();
   private boolean myEagerCompletion = false;
 
   private Property<SourceItemT> myForDeletion = new ValueProperty<>();
@@ -100,20 +102,18 @@ abstract class BaseProjectionalSynchronizer<SourceT, ContextT, SourceItemT> impl
     myTargetCellList = new TargetCellList();
     myRoleSynchronizer = createSubSynchronizer(myMapper, source, myTargetCellList, factory);
 
-    mySelectionSupport = new SelectionSupport<>(new SourceList(), myTarget, myTargetList);
+    mySelectionSupport = new SelectionSupport<>(new SourceList(), myTarget, new IndexedTargetList());
     mySelectedItems = mySelectionSupport.selection();
 
-    mySelectedItems.addListener(new CollectionAdapter<SourceItemT>() {
+    mySelectionSupport.selectionRange().addHandler(new EventHandler<PropertyChangeEvent<SelectionRange<SourceItemT>>>() {
       @Override
-      public void onItemAdded(CollectionItemEvent<? extends SourceItemT> event) {
-        getChildCells().get(BaseProjectionalSynchronizer.this.indexOf(event.getNewItem())).selected().set(true);
-      }
-
-      @Override
-      public void onItemRemoved(CollectionItemEvent<? extends SourceItemT> event) {
-        int itemIndex = BaseProjectionalSynchronizer.this.indexOf(event.getOldItem());
-        if (itemIndex == -1) return;
-        getChildCells().get(itemIndex).selected().set(false);
+      public void onEvent(PropertyChangeEvent<SelectionRange<SourceItemT>> event) {
+        SelectionRange<SourceItemT> range = event.getNewValue();
+        if (range == null) {
+          highlight(-1, -1);
+        } else {
+          highlight(indexOf(range.getStart()), indexOf(range.getEnd()));
+        }
       }
     });
 
@@ -158,6 +158,27 @@ abstract class BaseProjectionalSynchronizer<SourceT, ContextT, SourceItemT> impl
     return insertItems(Collections.singletonList(item));
   }
 
+  /**
+   * Runs a multi-item edit of the source. Cells of items added at consecutive positions are collected while the
+   * child mappers for them are created and are inserted into the target with one operation, so the mappers
+   * are attached before their cells reach the container. The placeholder isn't shown in the middle of the edit,
+   * even if all items are removed at some point, and is added back once at the end of it.
+   */
+  protected void runBulkEdit(Runnable edit) {
+    myBulkEditDepth++;
+    try {
+      edit.run();
+    } finally {
+      myBulkEditDepth--;
+      if (myBulkEditDepth == 0) {
+        myTargetCellList.flushPending();
+        if (myTargetList.isEmpty()) {
+          myTargetCellList.addPlaceholderIfEnabled();
+        }
+      }
+    }
+  }
+
   private Registration registerChild(SourceItemT child, Cell childCell) {
     return new CompositeRegistration(
       CellTraits.captureTo(childCell, new CellTrait() {
@@ -245,13 +266,40 @@ abstract class BaseProjectionalSynchronizer<SourceT, ContextT, SourceItemT> impl
     return myRoleSynchronizer.getMappers();
   }
 
-  private int indexOf(SourceItemT item) {
-    List<Mapper<? extends SourceItemT, ? extends Cell>> subMappers = getSubMappers();
-    for (int i = 0; i < subMappers.size(); i++) {
-      Mapper<? extends SourceItemT, ? extends Cell> m = subMappers.get(i);
-      if (m.getSource() == item) return i;
+  protected int indexOf(SourceItemT item) {
+    return myItemPositions.indexOf(item);
+  }
+
+  /**
+   * Updates selected state of child cells only where the new range differs from the highlighted one
+   */
+  private void highlight(int start, int end) {
+    if (start == -1 || end == -1) {
+      start = 0;
+      end = -1;
+    }
+    int oldStart = 0;
+    int oldEnd = -1;
+    if (myHighlightStart != null) {
+      oldStart = myCellPositions.indexOf(myHighlightStart);
+      oldEnd = myCellPositions.indexOf(myHighlightEnd);
     }
-    return -1;
+
+    for (int i = oldStart; i <= Math.min(oldEnd, start - 1); i++) {
+      myTargetList.get(i).selected().set(false);
+    }
+    for (int i = Math.max(oldStart, end + 1); i <= oldEnd; i++) {
+      myTargetList.get(i).selected().set(false);
+    }
+    for (int i = start; i <= Math.min(end, oldStart - 1); i++) {
+      myTargetList.get(i).selected().set(true);
+    }
+    for (int i = Math.max(start, oldEnd + 1); i <= end; i++) {
+      myTargetList.get(i).selected().set(true);
+    }
+
+    myHighlightStart = start <= end ? myTargetList.get(start) : null;
+    myHighlightEnd = start <= end ? myTargetList.get(end) : null;
   }
 
   private void initChildViews() {
@@ -335,7 +383,7 @@ abstract class BaseProjectionalSynchronizer<SourceT, ContextT, SourceItemT> impl
     Cell focused = myTarget.getContainer().focusedCell.get();
     if (focused == null) return null;
     if (focused.getParent() == myTarget && !myTargetCellList.myHasPlaceholder) {
-      int index = myTargetList.indexOf(focused);
+      int index = myCellPositions.indexOf(focused);
       return myRoleSynchronizer.getMappers().get(index).getSource();
     } else {
       return null;
@@ -651,6 +699,8 @@ abstract class BaseProjectionalSynchronizer<SourceT, ContextT, SourceItemT> impl
 
   private class TargetCellList extends AbstractList<Cell> {
     private boolean myHasPlaceholder;
+    private int myPendingIndex;
+    private List<Cell> myPendingCells;
 
     private TargetCellList() {
     }
@@ -725,6 +775,13 @@ abstract class BaseProjectionalSynchronizer<SourceT, ContextT, SourceItemT> impl
       return result;
     }
 
+    private void flushPending() {
+      if (myPendingCells == null) return;
+      List<Cell> cells = myPendingCells;
+      myPendingCells = null;
+      myTargetList.addAll(myPendingIndex, cells);
+    }
+
     private TextCell getPlaceHolder() {
       if (!myHasPlaceholder) return null;
       return (TextCell) myTargetList.get(0).children().get(0);
@@ -735,13 +792,16 @@ abstract class BaseProjectionalSynchronizer<SourceT, ContextT, SourceItemT> impl
       if (myHasPlaceholder) {
         throw new IndexOutOfBoundsException();
       }
+      if (myPendingCells != null) {
+        return myCellPositions.get(index);
+      }
       return myTargetList.get(index);
     }
 
     @Override
     public int size() {
       if (myHasPlaceholder) return 0;
-      return myTargetList.size();
+      return myCellPositions.size();
     }
 
     @Override
@@ -750,15 +810,48 @@ abstract class BaseProjectionalSynchronizer<SourceT, ContextT, SourceItemT> impl
         myTargetList.remove(0);
         myHasPlaceholder = false;
       }
-      myTargetList.add(index, element);
-      myRegistrations.add(index, registerChild(getSubMappers().get(index).getSource(), element));
+      if (myBulkEditDepth > 0) {
+        if (myPendingCells != null && index != myPendingIndex + myPendingCells.size()) {
+          flushPending();
+        }
+        if (myPendingCells == null) {
+          myPendingCells = new ArrayList<>();
+          myPendingIndex = index;
+        }
+        myPendingCells.add(element);
+      } else {
+        myTargetList.add(index, element);
+      }
+      SourceItemT item = getSubMappers().get(index).getSource();
+      myItemPositions.add(index, item);
+      myCellPositions.add(index, element);
+      myRegistrations.add(index, registerChild(item, element));
+
+      if (myHighlightStart != null
+          && index > myCellPositions.indexOf(myHighlightStart) && index < myCellPositions.indexOf(myHighlightEnd)) {
+        element.selected().set(true);
+      }
     }
 
     @Override
     public Cell remove(int index) {
+      flushPending();
       Cell result = myTargetList.remove(index);
+      SourceItemT item = myItemPositions.get(index);
+      myItemPositions.remove(index);
+      myCellPositions.remove(index);
       myRegistrations.remove(index).remove();
-      if (myTargetList.isEmpty()) {
+
+      if (result == myHighlightStart && result == myHighlightEnd) {
+        myHighlightStart = null;
+        myHighlightEnd = null;
+      } else if (result == myHighlightStart) {
+        myHighlightStart = myTargetList.get(index);
+      } else if (result == myHighlightEnd) {
+        myHighlightEnd = myTargetList.get(index - 1);
+      }
+      mySelectionSupport.itemRemoved(index, item);
+      if (myTargetList.isEmpty() && myBulkEditDepth == 0) {
         addPlaceholderIfEnabled();
       }
       return result;
@@ -770,17 +863,72 @@ abstract class BaseProjectionalSynchronizer<SourceT, ContextT, SourceItemT> impl
       add(index, element);
       return result;
     }
+
+    @Override
+    public int indexOf(Object o) {
+      if (myHasPlaceholder) return -1;
+      return myCellPositions.indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return indexOf(o) != -1;
+    }
+  }
+
+  /**
+   * The target list as seen by selection support, with position lookups served by the index.
+   */
+  private class IndexedTargetList extends AbstractList<Cell> {
+    @Override
+    public Cell get(int index) {
+      if (myTargetCellList.myHasPlaceholder) {
+        return myTargetList.get(index);
+      }
+      return myTargetCellList.get(index);
+    }
+
+    @Override
+    public int size() {
+      if (myTargetCellList.myHasPlaceholder) {
+        return myTargetList.size();
+      }
+      return myTargetCellList.size();
+    }
+
+    @Override
+    public int indexOf(Object o) {
+      if (myTargetCellList.myHasPlaceholder) {
+        return myTargetList.indexOf(o);
+      }
+      return myCellPositions.indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return indexOf(o) != -1;
+    }
   }
 
   private class SourceList extends AbstractList<SourceItemT> {
     @Override
     public SourceItemT get(int index) {
-      return myRoleSynchronizer.getMappers().get(index).getSource();
+      return myItemPositions.get(index);
     }
 
     @Override
     public int size() {
-      return myRoleSynchronizer.getMappers().size();
+      return myItemPositions.size();
+    }
+
+    @Override
+    public int indexOf(Object o) {
+      return myItemPositions.indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return indexOf(o) != -1;
     }
   }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.projectional.cell;
+
+import jetbrains.jetpad.cell.util.ImplicitTreap;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Identity-keyed index of element positions which mirrors a list through {@link #add(int, Object)} and
+ * {@link #remove(int)}. Elements are kept in an {@link ImplicitTreap}, so edits anywhere in the list
+ * and position lookups cost O(log n). An element which occurs several times costs O(log n) per occurrence.
+ */
+class PositionIndex<ElementT> {
+  private final ImplicitTreap<Node<ElementT>> myTree = new ImplicitTreap<>();
+  private final Map<ElementT, Node<ElementT>> myFirstNodes = new IdentityHashMap<>();
+
+  void add(int index, ElementT element) {
+    Node<ElementT> node = new Node<>(element);
+    myTree.insert(index, node);
+    node.same = myFirstNodes.put(element, node);
+  }
+
+  void remove(int index) {
+    Node<ElementT> node = myTree.remove(index);
+
+    Node<ElementT> first = myFirstNodes.get(node.element);
+    if (first == node) {
+      if (node.same == null) {
+        myFirstNodes.remove(node.element);
+      } else {
+        myFirstNodes.put(node.element, node.same);
+      }
+    } else {
+      while (first.same != node) {
+        first = first.same;
+      }
+      first.same = node.same;
+    }
+  }
+
+  ElementT get(int index) {
+    return myTree.get(index).element;
+  }
+
+  int indexOf(Object element) {
+    Node<ElementT> node = myFirstNodes.get(element);
+    if (node == null) return -1;
+
+    int result = myTree.indexOf(node);
+    for (node = node.same; node != null; node = node.same) {
+      result = Math.min(result, myTree.indexOf(node));
+    }
+    return result;
+  }
+
+  int size() {
+    return myTree.size();
+  }
+
+  private static class Node<ElementT> extends ImplicitTreap.Node<Node<ElementT>> {
+    private final ElementT element;
+    private Node<ElementT> same;
+
+    private Node(ElementT element) {
+      this.element = element;
+    }
+  }
+}
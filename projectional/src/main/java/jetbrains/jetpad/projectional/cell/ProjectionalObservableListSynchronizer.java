@@ -43,7 +43,7 @@ import jetbrains.jetpad.projectional.generic.CollectionEditor;
 import jetbrains.jetpad.projectional.generic.SplitJoinHandler;
 import jetbrains.jetpad.projectional.generic.Role;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 class ProjectionalObservableListSynchronizer<ContextT, SourceItemT> extends BaseProjectionalSynchronizer<ObservableList<SourceItemT>, ContextT, SourceItemT> {
@@ -111,7 +111,7 @@ class ProjectionalObservableListSynchronizer<ContextT, SourceItemT> extends Base
           return new ItemHandler() {
             @Override
             public Runnable addEmptyAfter() {
-              int index = mySource.indexOf(child);
+              int index = indexOf(child);
               final SourceItemT newItem = newItem();
               mySource.add(index + 1, newItem);
               return selectOnCreation(index + 1);
@@ -259,28 +259,51 @@ class ProjectionalObservableListSynchronizer<ContextT, SourceItemT> extends Base
   protected Runnable insertItems(List<SourceItemT> items) {
     int index = getChildCells().indexOf(currentCell());
     if (index == -1) {
-      mySource.addAll(items);
+      addAll(mySource.size(), items);
       return selectOnCreation(items.size() - 1);
     }
 
     if (Positions.isHomePosition(currentCell())) {
-      mySource.addAll(index, items);
+      addAll(index, items);
       if (!isEmpty(index)) {
         return selectOnCreation(index);
       }
       return Runnables.EMPTY;
     } else {
-      mySource.addAll(index + 1, items);
+      addAll(index + 1, items);
       return selectOnCreation(index + items.size());
     }
   }
 
+  private void addAll(final int index, final List<SourceItemT> items) {
+    runBulkEdit(new Runnable() {
+      @Override
+      public void run() {
+        mySource.addAll(index, items);
+      }
+    });
+  }
+
   @Override
   protected void clear(List<SourceItemT> items) {
-    int firstIndex = mySource.indexOf(items.get(0));
-    for (SourceItemT item : new ArrayList<>(items)) {
-      mySource.remove(item);
+    int firstIndex = indexOf(items.get(0));
+    final int[] indices = new int[items.size()];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = indexOf(items.get(i));
     }
+    Arrays.sort(indices);
+
+    //removal from the end doesn't shift positions of the items which are still to be removed
+    runBulkEdit(new Runnable() {
+      @Override
+      public void run() {
+        for (int i = indices.length - 1; i >= 0 && indices[i] != -1; i--) {
+          if (i == indices.length - 1 || indices[i] != indices[i + 1]) {
+            mySource.remove(indices[i]);
+          }
+        }
+      }
+    });
     selectAfterClear(firstIndex);
   }
 
@@ -24,10 +24,16 @@ import jetbrains.jetpad.mapper.MappingContext;
 import jetbrains.jetpad.mapper.Synchronizer;
 import jetbrains.jetpad.model.composite.HasParent;
 import jetbrains.jetpad.model.composite.TreePath;
-import jetbrains.jetpad.projectional.cell.ProjectionalRoleSynchronizer;
 
 import java.util.*;
 
+/**
+ * Finds cells of sources and sources of cells in a mapper tree. Lookups walk up the cell tree or the source tree
+ * and consult {@link ToCellMapping} synchronizers only of the mappers met on the way, so they cost time
+ * proportional to the depth of the tree. Consequently a {@link ToCellMapping} is used only for cells inside
+ * its mapper's target and for sources under its mapper's source: mappings of cells outside of the target
+ * aren't found, even if the mapper is a descendant of a mapper which owns these cells.
+ */
 public final class CellProvider {
 
   public static CellProvider fromMapper(Mapper<?, ?> mapper) {
@@ -116,26 +122,10 @@ public final class CellProvider {
       return mapper.getSource();
     }
     for (Synchronizer sync : mapper.synchronizers()) {
-      Object source = getSource(sync, actualTarget);
-      if (source != null) return source;
-    }
-    return null;
-  }
-
-  private Object getSource(Synchronizer sync, Cell target) {
-    if (sync instanceof ToCellMapping) {
-      return ((ToCellMapping) sync).getSource(target);
-    }
-    if (sync instanceof ProjectionalRoleSynchronizer) {
-      return getSourceFromProjectionalSynchronizer((ProjectionalRoleSynchronizer<?, ?>) sync, target);
-    }
-    return null;
-  }
-
-  private Object getSourceFromProjectionalSynchronizer(ProjectionalRoleSynchronizer<?, ?> sync, Cell cell) {
-    for (Mapper<?, ? extends Cell> mapper : sync.getMappers()) {
-      Object source = doGetSource(mapper, cell);
-      if (source != null) return source;
+      if (sync instanceof ToCellMapping) {
+        Object source = ((ToCellMapping) sync).getSource(actualTarget);
+        if (source != null) return source;
+      }
     }
     return null;
   }
@@ -166,7 +156,8 @@ public final class CellProvider {
     }
     List<Cell> result = null;
     for (Synchronizer sync : mapper.synchronizers()) {
-      List<Cell> cells = getCells(sync, actualSource);
+      if (!(sync instanceof ToCellMapping)) continue;
+      List<Cell> cells = ((ToCellMapping) sync).getCells(actualSource);
       if (cells != null && !cells.isEmpty()) {
         if (result == null) {
           result = new ArrayList<>(cells.size());
@@ -176,28 +167,4 @@ public final class CellProvider {
     }
     return result == null ? Collections.<Cell>emptyList() : result;
   }
-
-  private List<Cell> getCells(Synchronizer sync, Object source) {
-    if (sync instanceof ToCellMapping) {
-      return ((ToCellMapping) sync).getCells(source);
-    }
-    if (sync instanceof ProjectionalRoleSynchronizer) {
-      return getCellsFromProjectionalSynchronizer((ProjectionalRoleSynchronizer<?, ?>) sync, source);
-    }
-    return null;
-  }
-
-  private List<Cell> getCellsFromProjectionalSynchronizer(ProjectionalRoleSynchronizer<?, ?> sync, Object source) {
-    List<Cell> result = null;
-    for (Mapper<?, ? extends Cell> mapper : sync.getMappers()) {
-      List<Cell> cells = doGetCells(mapper, source);
-      if (!cells.isEmpty()) {
-        if (result == null) {
-          result = new ArrayList<>(cells.size());
-        }
-        result.addAll(cells);
-      }
-    }
-    return result;
-  }
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.projectional.selection;
+
+/**
+ * Contiguous selection of items in a list identified by its first and last items.
+ * Items between the anchors are selected implicitly, so a selection of any size is described in constant space.
+ */
+public final class SelectionRange<ItemT> {
+  private final ItemT myStart;
+  private final ItemT myEnd;
+  private final Direction myDirection;
+
+  public SelectionRange(ItemT start, ItemT end, Direction direction) {
+    if (start == null || end == null) {
+      throw new IllegalArgumentException();
+    }
+    myStart = start;
+    myEnd = end;
+    myDirection = direction;
+  }
+
+  public ItemT getStart() {
+    return myStart;
+  }
+
+  public ItemT getEnd() {
+    return myEnd;
+  }
+
+  public Direction getDirection() {
+    return myDirection;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) return true;
+    if (!(obj instanceof SelectionRange)) return false;
+    SelectionRange<?> other = (SelectionRange<?>) obj;
+    return myStart == other.myStart && myEnd == other.myEnd && myDirection == other.myDirection;
+  }
+
+  @Override
+  public int hashCode() {
+    return (System.identityHashCode(myStart) * 31 + System.identityHashCode(myEnd)) * 31
+        + (myDirection == null ? 0 : myDirection.hashCode());
+  }
+
+  @Override
+  public String toString() {
+    return "[" + myStart + ", " + myEnd + "]";
+  }
+
+  public enum Direction {
+    FORWARD, BACKWARD
+  }
+}
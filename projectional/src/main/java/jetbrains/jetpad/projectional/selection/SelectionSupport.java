@@ -18,26 +18,38 @@ package jetbrains.jetpad.projectional.selection;
 import jetbrains.jetpad.base.Runnables;
 import jetbrains.jetpad.cell.Cell;
 import jetbrains.jetpad.cell.action.CellActions;
+import jetbrains.jetpad.cell.event.CellEventHandler;
 import jetbrains.jetpad.cell.event.FocusEvent;
 import jetbrains.jetpad.cell.position.Positions;
-import jetbrains.jetpad.cell.trait.CellTrait;
 import jetbrains.jetpad.cell.trait.CellTraitPropertySpec;
+import jetbrains.jetpad.cell.trait.KeyBindingTrait;
 import jetbrains.jetpad.cell.util.Cells;
 import jetbrains.jetpad.event.KeyEvent;
+import jetbrains.jetpad.event.KeyStrokeMap;
 import jetbrains.jetpad.event.KeyStrokeSpecs;
-import jetbrains.jetpad.model.collections.CollectionItemEvent;
-import jetbrains.jetpad.model.collections.list.ObservableArrayList;
-import jetbrains.jetpad.model.collections.list.ObservableList;
 import jetbrains.jetpad.model.composite.Composites;
 import jetbrains.jetpad.model.event.EventHandler;
+import jetbrains.jetpad.model.property.Property;
+import jetbrains.jetpad.model.property.PropertyChangeEvent;
+import jetbrains.jetpad.model.property.ReadableProperty;
+import jetbrains.jetpad.model.property.ValueProperty;
+import jetbrains.jetpad.projectional.selection.SelectionRange.Direction;
 
+import java.util.AbstractList;
 import java.util.List;
 
+/**
+ * Selection of a contiguous range of items. The range is kept as a pair of anchor items; observers are notified
+ * with one {@link #selectionRange()} change per selection action regardless of the number of items in the range.
+ */
 public class SelectionSupport<ItemT> {
   public static final CellTraitPropertySpec<Boolean> LOGICAL_SINGLE_CELL_CONTAINER = new CellTraitPropertySpec<>("logicalSingleCellContainer", false);
   static final CellTraitPropertySpec<SelectionSupport<?>> SELECTION_SUPPORT = new CellTraitPropertySpec<>("selectionSupport");
 
-  private ObservableList<ItemT> mySelectedItems = new ObservableArrayList<>();
+  private final Property<SelectionRange<ItemT>> myRange = new ValueProperty<>();
+  private final List<ItemT> mySelectedItems = new SelectedItems();
+  private ItemT myStart;
+  private ItemT myEnd;
   private Direction myDirection;
   private boolean myChangingSelection;
   private List<ItemT> mySource;
@@ -54,7 +66,7 @@ public class SelectionSupport<ItemT> {
     myTarget = target;
     myTargetList = targetList;
 
-    myTarget.addTrait(new CellTrait() {
+    myTarget.addTrait(new KeyBindingTrait(keyBindings()) {
       @Override
       public void onFocusGained(Cell cell, FocusEvent event) {
         super.onFocusGained(cell, event);
@@ -67,14 +79,6 @@ public class SelectionSupport<ItemT> {
         handleFocusLost(event);
       }
 
-      @Override
-      public void onKeyPressed(Cell cell, KeyEvent event) {
-        handleTargetKeyPress(event);
-        if (event.isConsumed()) return;
-
-        super.onKeyPressed(cell, event);
-      }
-
       @Override
       public Object get(Cell cell, CellTraitPropertySpec<?> spec) {
         if (spec == SELECTION_SUPPORT) return SelectionSupport.this;
@@ -87,22 +91,20 @@ public class SelectionSupport<ItemT> {
       setSelectionController(preinstalled);
     }
 
-    mySelectedItems.addHandler(new EventHandler<CollectionItemEvent<? extends ItemT>>() {
+    myRange.addHandler(new EventHandler<PropertyChangeEvent<SelectionRange<ItemT>>>() {
       @Override
-      public void onEvent(CollectionItemEvent<? extends ItemT> event) {
+      public void onEvent(PropertyChangeEvent<SelectionRange<ItemT>> event) {
         if (mySelectionController != null && !isLowerPrioritySelection()) {
-          if (!mySelectedItems.isEmpty()) {
-            int startIndex = mySource.indexOf(mySelectedItems.get(0));
-            int endIndex = mySource.indexOf(mySelectedItems.get(mySelectedItems.size() - 1));
+          if (event.getNewValue() != null) {
+            int startIndex = startIndex();
+            int endIndex = endIndex();
             /*
              * Because list clear may be implemented with iterate-remove, intermediate states
-             * are possible when selection (mySelectedItems) contains items already removed
-             * from the model (mySource). We bypass such cases.
+             * are possible when selection anchors are already removed from the model (mySource).
+             * We bypass such cases.
              */
             if (startIndex != -1 && endIndex != -1) {
               mySelectionController.updateLegacySelection(myTargetList.get(startIndex), myTargetList.get(endIndex));
-            } else if (!myChangingSelection) {
-              throw new IllegalStateException("Intermediate state outside changing selection encountered. Selected items: " + mySelectedItems);
             }
           } else {
             mySelectionController.closeLegacySelection();
@@ -112,10 +114,18 @@ public class SelectionSupport<ItemT> {
     });
   }
 
-  public ObservableList<ItemT> selection() {
+  /**
+   * Read-only view of the selected items. It isn't observable: listen to {@link #selectionRange()} instead,
+   * which changes once per selection action.
+   */
+  public List<ItemT> selection() {
     return mySelectedItems;
   }
 
+  public ReadableProperty<SelectionRange<ItemT>> selectionRange() {
+    return myRange;
+  }
+
   public Cell currentCell() {
     if (mySource.isEmpty()) return null;
 
@@ -158,10 +168,7 @@ public class SelectionSupport<ItemT> {
     runSelectionAction(new Runnable() {
       @Override
       public void run() {
-        mySelectedItems.clear();
-        for (int i = start; i <= end; i++) {
-          mySelectedItems.add(mySource.get(i));
-        }
+        setSelectedRange(start, end);
         myDirection = Direction.FORWARD;
       }
     });
@@ -171,12 +178,39 @@ public class SelectionSupport<ItemT> {
     changeSelection(new Runnable() {
       @Override
       public void run() {
-        mySelectedItems.clear();
+        setSelectedRange(-1, -1);
         myDirection = null;
       }
     });
   }
 
+  /**
+   * Should be called after an item was removed from the source list. If the item was the first or the last
+   * selected one, the selection is re-anchored to its neighbour inside the range instead of being lost.
+   */
+  public void itemRemoved(final int index, final ItemT item) {
+    if (myStart == null || (item != myStart && item != myEnd)) return;
+
+    Runnable reanchor = new Runnable() {
+      @Override
+      public void run() {
+        if (myStart == myEnd) {
+          setSelectedRange(-1, -1);
+          myDirection = null;
+        } else if (item == myStart) {
+          myStart = mySource.get(index);
+        } else {
+          myEnd = mySource.get(index - 1);
+        }
+      }
+    };
+    if (myChangingSelection) {
+      reanchor.run();
+    } else {
+      changeSelection(reanchor);
+    }
+  }
+
   public void setSelectionController(SelectionController selectionController) {
     mySelectionController = selectionController;
   }
@@ -205,146 +239,155 @@ public class SelectionSupport<ItemT> {
     }
   }
 
-  private void handleTargetKeyPress(final KeyEvent event) {
-    if (event.is(KeyStrokeSpecs.SELECT_AFTER)) {
-      runSelectionAction(new Runnable() {
-        @Override
-        public void run() {
-          if (isLowerPrioritySelection()) return;
+  private KeyStrokeMap<CellEventHandler<KeyEvent>> keyBindings() {
+    return new KeyStrokeMap<CellEventHandler<KeyEvent>>()
+        .put(KeyStrokeSpecs.SELECT_AFTER, new CellEventHandler<KeyEvent>() {
+          @Override
+          public void handle(Cell cell, KeyEvent event) {
+            selectAfter(event);
+          }
+        })
+        .put(KeyStrokeSpecs.SELECT_BEFORE, new CellEventHandler<KeyEvent>() {
+          @Override
+          public void handle(Cell cell, KeyEvent event) {
+            selectBefore(event);
+          }
+        });
+  }
 
-          Cell currentCell = currentCell();
-          if (currentCell == null) return;
+  private void selectAfter(final KeyEvent event) {
+    runSelectionAction(new Runnable() {
+      @Override
+      public void run() {
+        if (isLowerPrioritySelection()) return;
 
-          int currentIndex = myTargetList.indexOf(currentCell);
-          ItemT currentItem = mySource.get(currentIndex);
-          boolean consumed = false;
+        Cell currentCell = currentCell();
+        if (currentCell == null) return;
 
-          if (!Positions.isEndPosition(currentCell) && !isCurrentCompletelySelected()) {
-            if (!mySelectedItems.contains(currentItem)) {
-              mySelectedItems.add(currentItem);
+        int currentIndex = myTargetList.indexOf(currentCell);
+        boolean consumed = false;
+
+        if (!Positions.isEndPosition(currentCell) && !isCurrentCompletelySelected()) {
+          if (!isSelected(currentIndex)) {
+            include(currentIndex);
+            resetFocusAndScrollTo(currentIndex, false).run();
+          } else {
+            if (myDirection == Direction.FORWARD) {
               resetFocusAndScrollTo(currentIndex, false).run();
             } else {
-              if (myDirection == Direction.FORWARD) {
+              exclude(currentIndex);
+              if (currentIndex == myTargetList.size() - 1) {
                 resetFocusAndScrollTo(currentIndex, false).run();
               } else {
-                mySelectedItems.remove(currentItem);
-                if (currentIndex == myTargetList.size() - 1) {
-                  resetFocusAndScrollTo(currentIndex, false).run();
-                } else {
-                  resetFocusAndScrollTo(currentIndex + 1, true).run();
-                }
+                resetFocusAndScrollTo(currentIndex + 1, true).run();
               }
             }
+          }
 
+          consumed = true;
+        } else {
+          int focusIndex = -1;
+          boolean focusOnFirst = true;
+
+          if (!isSelected(currentIndex) && (Positions.isOnePosition(currentCell) || hasLowerPrioritySelection(currentCell))) {
+            include(currentIndex);
+            focusIndex = currentIndex;
+            focusOnFirst = false;
             consumed = true;
-          } else {
-            int focusIndex = -1;
-            boolean focusOnFirst = true;
+          }
 
-            if (!mySelectedItems.contains(currentItem) && (Positions.isOnePosition(currentCell) || hasLowerPrioritySelection(currentCell))) {
-              mySelectedItems.add(currentItem);
-              focusIndex = currentIndex;
+          if (currentIndex < myTargetList.size() - 1) {
+            if (isSelected(currentIndex + 1)) {
+              exclude(currentIndex);
+              focusIndex = currentIndex + 1;
+            } else {
+              include(currentIndex + 1);
+              focusIndex = currentIndex + 1;
               focusOnFirst = false;
-              consumed = true;
-            }
-
-            if (currentIndex < myTargetList.size() - 1) {
-              ItemT nextItem = mySource.get(currentIndex + 1);
-              if (mySelectedItems.contains(nextItem)) {
-                mySelectedItems.remove(currentItem);
-                focusIndex = currentIndex + 1;
-              } else {
-                mySelectedItems.add(nextItem);
-                focusIndex = currentIndex + 1;
-                focusOnFirst = false;
-              }
-              consumed = true;
             }
+            consumed = true;
+          }
 
-            if (focusIndex != -1) {
-              resetFocusAndScrollTo(focusIndex, focusOnFirst).run();
-            }
+          if (focusIndex != -1) {
+            resetFocusAndScrollTo(focusIndex, focusOnFirst).run();
           }
+        }
 
 
-          if (consumed) {
-            if (myDirection == null) {
-              myDirection = Direction.FORWARD;
-            }
-            event.consume();
+        if (consumed) {
+          if (myDirection == null) {
+            myDirection = Direction.FORWARD;
           }
+          event.consume();
         }
-      });
-    }
+      }
+    });
+  }
 
-    if (event.is(KeyStrokeSpecs.SELECT_BEFORE)) {
-      runSelectionAction(new Runnable() {
-        @Override
-        public void run() {
-          if (isLowerPrioritySelection()) return;
+  private void selectBefore(final KeyEvent event) {
+    runSelectionAction(new Runnable() {
+      @Override
+      public void run() {
+        if (isLowerPrioritySelection()) return;
 
-          Cell currentCell = currentCell();
-          if (currentCell == null) return;
+        Cell currentCell = currentCell();
+        if (currentCell == null) return;
 
-          int currentIndex = myTargetList.indexOf(currentCell);
-          ItemT currentItem = mySource.get(currentIndex);
-          boolean consumed = false;
+        int currentIndex = myTargetList.indexOf(currentCell);
+        boolean consumed = false;
 
-          if (!Positions.isHomePosition(currentCell) && !isCurrentCompletelySelected()) {
-            if (!mySelectedItems.contains(currentItem)) {
-              mySelectedItems.add(0, currentItem);
+        if (!Positions.isHomePosition(currentCell) && !isCurrentCompletelySelected()) {
+          if (!isSelected(currentIndex)) {
+            include(currentIndex);
+            resetFocusAndScrollTo(currentIndex, true).run();
+          } else {
+            if (myDirection == Direction.BACKWARD) {
               resetFocusAndScrollTo(currentIndex, true).run();
             } else {
-              if (myDirection == Direction.BACKWARD) {
+              exclude(currentIndex);
+              if (currentIndex == 0) {
                 resetFocusAndScrollTo(currentIndex, true).run();
               } else {
-                mySelectedItems.remove(currentItem);
-                if (currentIndex == 0) {
-                  resetFocusAndScrollTo(currentIndex, true).run();
-                } else {
-                  resetFocusAndScrollTo(currentIndex - 1, false).run();
-                }
+                resetFocusAndScrollTo(currentIndex - 1, false).run();
               }
             }
+          }
+          consumed = true;
+        } else {
+          int focusIndex = -1;
+          boolean focusOnFirst = true;
+
+          if (!isSelected(currentIndex) && (Positions.isOnePosition(currentCell) || hasLowerPrioritySelection(currentCell))) {
+            include(currentIndex);
+            focusIndex = currentIndex;
             consumed = true;
-          } else {
-            int focusIndex = -1;
-            boolean focusOnFirst = true;
-
-            if (!mySelectedItems.contains(currentItem) && (Positions.isOnePosition(currentCell) || hasLowerPrioritySelection(currentCell))) {
-              mySelectedItems.add(0, currentItem);
-              focusIndex = currentIndex;
-              consumed = true;
-            }
-
-            if (currentIndex > 0) {
-              ItemT prevItem = mySource.get(currentIndex - 1);
+          }
 
-              if (mySelectedItems.contains(prevItem)) {
-                mySelectedItems.remove(currentItem);
-                focusIndex = currentIndex - 1;
-                focusOnFirst = false;
-              } else {
-                mySelectedItems.add(0, prevItem);
-                focusIndex = currentIndex - 1;
-              }
-              consumed = true;
+          if (currentIndex > 0) {
+            if (isSelected(currentIndex - 1)) {
+              exclude(currentIndex);
+              focusIndex = currentIndex - 1;
+              focusOnFirst = false;
+            } else {
+              include(currentIndex - 1);
+              focusIndex = currentIndex - 1;
             }
+            consumed = true;
+          }
 
-            if (focusIndex != -1) {
-              resetFocusAndScrollTo(focusIndex, focusOnFirst).run();
-            }
+          if (focusIndex != -1) {
+            resetFocusAndScrollTo(focusIndex, focusOnFirst).run();
           }
+        }
 
-          if (consumed) {
-            if (myDirection == null) {
-              myDirection = Direction.BACKWARD;
-            }
-            event.consume();
+        if (consumed) {
+          if (myDirection == null) {
+            myDirection = Direction.BACKWARD;
           }
+          event.consume();
         }
-      });
-    }
+      }
+    });
   }
 
   private boolean hasLowerPrioritySelection(Cell cell) {
@@ -447,12 +490,82 @@ public class SelectionSupport<ItemT> {
     myChangingSelection = true;
     try {
       r.run();
+      myRange.set(myStart == null ? null : new SelectionRange<>(myStart, myEnd, myDirection));
     } finally {
       myChangingSelection = false;
     }
   }
 
-  private static enum Direction {
-    FORWARD, BACKWARD
+  private int startIndex() {
+    return myStart == null ? -1 : mySource.indexOf(myStart);
+  }
+
+  private int endIndex() {
+    return myEnd == null ? -1 : mySource.indexOf(myEnd);
+  }
+
+  private boolean isSelected(int index) {
+    int start = startIndex();
+    return start != -1 && index >= start && index <= endIndex();
+  }
+
+  private void include(int index) {
+    int start = startIndex();
+    int end = endIndex();
+    if (start == -1 || end == -1) {
+      setSelectedRange(index, index);
+    } else {
+      setSelectedRange(Math.min(start, index), Math.max(end, index));
+    }
+  }
+
+  private void exclude(int index) {
+    int start = startIndex();
+    int end = endIndex();
+    if (index == start) {
+      setSelectedRange(start + 1, end);
+    } else if (index == end) {
+      setSelectedRange(start, end - 1);
+    } else if (index > start && index < end) {
+      setSelectedRange(start, index - 1);
+    }
+  }
+
+  private void setSelectedRange(int start, int end) {
+    if (start == -1 || start > end) {
+      myStart = null;
+      myEnd = null;
+    } else {
+      myStart = mySource.get(start);
+      myEnd = mySource.get(end);
+    }
+  }
+
+  private class SelectedItems extends AbstractList<ItemT> {
+    @Override
+    public ItemT get(int index) {
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException("index = " + index + ", size = " + size());
+      }
+      return mySource.get(startIndex() + index);
+    }
+
+    @Override
+    public int size() {
+      int start = startIndex();
+      int end = endIndex();
+      return start == -1 || end == -1 || start > end ? 0 : end - start + 1;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+      int index = mySource.indexOf(o);
+      return index != -1 && isSelected(index) ? index - startIndex() : -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return indexOf(o) != -1;
+    }
   }
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.projectional.util;
+
+import jetbrains.jetpad.base.Registration;
+import jetbrains.jetpad.cell.Cell;
+import jetbrains.jetpad.cell.CellContainer;
+import jetbrains.jetpad.cell.CellContainerAdapter;
+import jetbrains.jetpad.cell.CellPropertySpec;
+import jetbrains.jetpad.cell.TextCell;
+import jetbrains.jetpad.geometry.Rectangle;
+import jetbrains.jetpad.geometry.Vector;
+import jetbrains.jetpad.model.property.PropertyChangeEvent;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Bounds of cells in a {@link FocusOrderIndex}, used for vertical navigation.
+ * Cells which are on the same line are adjacent in focus order, so the line above or below a cell is found by scanning
+ * the order from the cell's position, and the target cell is the one closest to the x offset on that line.
+ * Only cells strictly above (or below) the cell's own line are candidates, so with several columns the cells of
+ * a neighbouring column which are on the other side of the line are skipped.
+ *
+ * Bounds are read lazily and cached until a property which can affect layout changes, so a series of up/down key
+ * presses reads bounds of each visited cell once. Bounds aren't read for the whole container since it would force
+ * layout (and, for virtualized cells, mapping) of the whole tree.
+ */
+class CellLineIndex {
+  private static final int THRESHOLD = 2;
+
+  private static final Set<CellPropertySpec<?>> LAYOUT_NEUTRAL = new HashSet<CellPropertySpec<?>>(Arrays.asList(
+      Cell.HOVERED, Cell.FOCUSED, Cell.SELECTED, Cell.FOCUS_HIGHLIGHTED, Cell.PAIR_HIGHLIGHTED,
+      Cell.BACKGROUND, Cell.BORDER_COLOR, Cell.HAS_SHADOW, Cell.RED_UNDERLINE, Cell.YELLOW_UNDERLINE, Cell.LINK,
+      Cell.TOP_POPUP, Cell.BOTTOM_POPUP, Cell.FRONT_POPUP, Cell.LEFT_POPUP, Cell.RIGHT_POPUP,
+      TextCell.TEXT_COLOR, TextCell.CARET_VISIBLE, TextCell.CARET_POSITION,
+      TextCell.SELECTION_VISIBLE, TextCell.SELECTION_START));
+
+  private final CellContainer myContainer;
+  private final FocusOrderIndex myOrder;
+
+  private Rectangle[] myBounds;
+  private int myBoundsVersion;
+
+  CellLineIndex(CellContainer container, FocusOrderIndex order) {
+    myContainer = container;
+    myOrder = order;
+  }
+
+  Registration install() {
+    return myContainer.addListener(new CellContainerAdapter() {
+      @Override
+      public void onCellPropertyChanged(Cell cell, CellPropertySpec<?> prop, PropertyChangeEvent<?> change) {
+        if (!LAYOUT_NEUTRAL.contains(prop)) {
+          invalidateBounds();
+        }
+      }
+    });
+  }
+
+  /**
+   * @return the focusable cell on the closest line above the cell which is the closest to xOffset,
+   * or null if there's no such cell or the cell isn't indexed
+   */
+  Cell upper(Cell cell, int xOffset) {
+    int position = position(cell);
+    if (position == -1) return null;
+    int result = upper(position, bounds(position), xOffset);
+    return result == -1 ? null : myOrder.get(result);
+  }
+
+  Cell lower(Cell cell, int xOffset) {
+    int position = position(cell);
+    if (position == -1) return null;
+    int result = lower(position, bounds(position), xOffset);
+    return result == -1 ? null : myOrder.get(result);
+  }
+
+  /**
+   * Moves line by line until the line is at least pageHeight away from the cell
+   * @return the closest to xOffset cell on that line or on the last line on the way (the cell itself if it's the first line)
+   */
+  Cell pageUp(Cell cell, int xOffset, int pageHeight) {
+    int position = position(cell);
+    if (position == -1) return null;
+    Rectangle start = bounds(position);
+    int current = position;
+    while (true) {
+      int next = upper(current, bounds(current), xOffset);
+      if (next == -1) {
+        return myOrder.get(current);
+      }
+      if (start.distance(bounds(next).origin) >= pageHeight) {
+        return myOrder.get(next);
+      }
+      current = next;
+    }
+  }
+
+  Cell pageDown(Cell cell, int xOffset, int pageHeight) {
+    int position = position(cell);
+    if (position == -1) return null;
+    Rectangle start = bounds(position);
+    int current = position;
+    while (true) {
+      int next = lower(current, bounds(current), xOffset);
+      if (next == -1) {
+        return myOrder.get(current);
+      }
+      if (start.distance(bounds(next).origin) >= pageHeight) {
+        return myOrder.get(next);
+      }
+      current = next;
+    }
+  }
+
+  /**
+   * @return whether the cell can be navigated from with this index
+   */
+  boolean prepare(Cell cell) {
+    return myOrder.prepare(cell);
+  }
+
+  private int upper(int position, Rectangle bounds, int xOffset) {
+    int best = -1;
+    for (int i = position - 1; i >= 0; i--) {
+      Rectangle current = bounds(i);
+      if (!isAbove(current, bounds)) continue;
+      if (best == -1) {
+        best = i;
+      } else {
+        if (isAbove(current, bounds(best))) break;
+        if (distance(current, xOffset) < distance(bounds(best), xOffset)) {
+          best = i;
+        }
+      }
+    }
+    return best;
+  }
+
+  private int lower(int position, Rectangle bounds, int xOffset) {
+    int best = -1;
+    for (int i = position + 1; i < myOrder.size(); i++) {
+      Rectangle current = bounds(i);
+      if (!isAbove(bounds, current)) continue;
+      if (best == -1) {
+        best = i;
+      } else {
+        if (isAbove(bounds(best), current)) break;
+        if (distance(current, xOffset) < distance(bounds(best), xOffset)) {
+          best = i;
+        }
+      }
+    }
+    return best;
+  }
+
+  private boolean isAbove(Rectangle upper, Rectangle lower) {
+    return upper.origin.y + upper.dimension.y - THRESHOLD <= lower.origin.y;
+  }
+
+  private double distance(Rectangle bounds, int xOffset) {
+    return bounds.distance(new Vector(xOffset, bounds.origin.y));
+  }
+
+  private int position(Cell cell) {
+    if (myBounds == null || myBoundsVersion != myOrder.version()) {
+      myBounds = new Rectangle[myOrder.size()];
+      myBoundsVersion = myOrder.version();
+    }
+    return myOrder.position(cell);
+  }
+
+  private Rectangle bounds(int position) {
+    Rectangle result = myBounds[position];
+    if (result == null) {
+      result = myOrder.get(position).getBounds();
+      myBounds[position] = result;
+    }
+    return result;
+  }
+
+  private void invalidateBounds() {
+    myBounds = null;
+  }
+}
@@ -28,6 +28,8 @@ import jetbrains.jetpad.cell.trait.CellTrait;
 import jetbrains.jetpad.cell.util.Cells;
 import jetbrains.jetpad.event.Key;
 import jetbrains.jetpad.event.KeyEvent;
+import jetbrains.jetpad.event.KeyStroke;
+import jetbrains.jetpad.event.KeyStrokeMap;
 import jetbrains.jetpad.event.KeyStrokeSpecs;
 import jetbrains.jetpad.event.MouseEvent;
 import jetbrains.jetpad.geometry.Rectangle;
@@ -40,11 +42,6 @@ import jetbrains.jetpad.model.property.*;
 
 import java.util.Stack;
 
-import static jetbrains.jetpad.model.composite.Composites.next;
-import static jetbrains.jetpad.model.composite.Composites.nextFocusable;
-import static jetbrains.jetpad.model.composite.Composites.prev;
-import static jetbrains.jetpad.model.composite.Composites.prevFocusable;
-
 public class CellNavigationController {
   public static final CellPropertySpec<Cell> PAIR_CELL = new CellPropertySpec<>("pairCell");
 
@@ -56,22 +53,53 @@ public class CellNavigationController {
     }
   };
 
+  private static final Predicate<Cell> HAS_TEXT_EDITING = new Predicate<Cell>() {
+    public boolean apply(Cell cell) {
+      return cell.get(TextEditing.EDITABLE);
+    }
+  };
+
+  private static final KeyStrokeMap<Navigation> NAVIGATIONS = new KeyStrokeMap<Navigation>()
+      .put(new KeyStroke(Key.RIGHT), Navigation.RIGHT)
+      .put(KeyStrokeSpecs.NEXT_WORD, Navigation.NEXT_WORD)
+      .put(KeyStrokeSpecs.NEXT_EDITABLE, Navigation.NEXT_EDITABLE)
+      .put(new KeyStroke(Key.LEFT), Navigation.LEFT)
+      .put(KeyStrokeSpecs.PREV_WORD, Navigation.PREV_WORD)
+      .put(KeyStrokeSpecs.PREV_EDITABLE, Navigation.PREV_EDITABLE)
+      .put(new KeyStroke(Key.UP), Navigation.UP)
+      .put(new KeyStroke(Key.DOWN), Navigation.DOWN)
+      .put(new KeyStroke(Key.PAGE_UP), Navigation.PAGE_UP)
+      .put(new KeyStroke(Key.PAGE_DOWN), Navigation.PAGE_DOWN)
+      .put(KeyStrokeSpecs.HOME, Navigation.HOME)
+      .put(KeyStrokeSpecs.END, Navigation.END)
+      .put(KeyStrokeSpecs.FILE_HOME, Navigation.FILE_HOME)
+      .put(KeyStrokeSpecs.FILE_END, Navigation.FILE_END)
+      .put(KeyStrokeSpecs.SELECT_UP, Navigation.SELECT_UP)
+      .put(KeyStrokeSpecs.SELECT_DOWN, Navigation.SELECT_DOWN)
+      .put(KeyStrokeSpecs.MATCHING_CONSTRUCTS, Navigation.MATCHING_CONSTRUCT);
+
   public static Registration install(CellContainer container) {
     final CellNavigationController controller = new CellNavigationController(container);
     return controller.install();
   }
 
   private final CellContainer myContainer;
+  private final FocusOrderIndex myFocusOrder;
+  private final CellLineIndex myLineIndex;
   private final Value<Integer> myPrevXOffset = new Value<>(null);
   private final Value<Boolean> myStackResetEnabled = new Value<>(true);
   private final Stack<Cell> mySelectionStack = new Stack<>();
 
   private CellNavigationController(CellContainer container) {
     myContainer = container;
+    myFocusOrder = new FocusOrderIndex(container, HAS_TEXT_EDITING);
+    myLineIndex = new CellLineIndex(container, myFocusOrder);
   }
 
   private CompositeRegistration install() {
     CompositeRegistration result = new CompositeRegistration();
+    result.add(myFocusOrder.install());
+    result.add(myLineIndex.install());
     result.add(
       selectedCaretOffset().addHandler(new EventHandler<PropertyChangeEvent<Integer>>() {
         @Override
@@ -189,6 +217,22 @@ public class CellNavigationController {
     }
   }
 
+  private Cell nextFocusable(Cell cell) {
+    return myFocusOrder.prepare(cell) ? myFocusOrder.next(cell) : Composites.nextFocusable(cell);
+  }
+
+  private Cell prevFocusable(Cell cell) {
+    return myFocusOrder.prepare(cell) ? myFocusOrder.prev(cell) : Composites.prevFocusable(cell);
+  }
+
+  private Cell nextEditable(Cell cell) {
+    return myFocusOrder.prepare(cell) ? myFocusOrder.nextMatching(cell) : Composites.next(cell, EDITABLE);
+  }
+
+  private Cell prevEditable(Cell cell) {
+    return myFocusOrder.prepare(cell) ? myFocusOrder.prevMatching(cell) : Composites.prev(cell, EDITABLE);
+  }
+
   private int selectedXOffset() {
     return selectedCaretOffset().get() + focusedCell().get().getBounds().origin.x;
   }
@@ -198,105 +242,144 @@ public class CellNavigationController {
   }
 
   private void handleKeyPress(Cell cell, KeyEvent event) {
+    Navigation navigation = NAVIGATIONS.get(event);
+    if (navigation == null) return;
+
     Cell current = focusedCell().get();
     Integer currentOffset = null;
 
-    if (event.is(Key.UP) || event.is(Key.DOWN) || event.is(Key.PAGE_UP) || event.is(Key.PAGE_DOWN)) {
+    if (navigation.isVertical()) {
       currentOffset = myPrevXOffset.get();
       if (currentOffset == null) {
         currentOffset = selectedXOffset();
       }
     }
 
-    Rectangle visibleRect = focusedCell().get().getContainer().visibleRect();
-
     Cell next = null;
     boolean restoreOffset = false;
 
-    if (event.is(Key.RIGHT)) {
-      next = nextFocusable(current);
-      moveToHome(next);
-    } else if (event.is(KeyStrokeSpecs.NEXT_WORD)) {
-      next = nextFocusable(current);
-      if (next != null) {
+    switch (navigation) {
+      case RIGHT:
+        next = nextFocusable(current);
         moveToHome(next);
-      } else if (!current.get(PositionHandler.PROPERTY).isEnd()) {
-        next = current;
+        break;
+      case NEXT_WORD:
+        next = nextFocusable(current);
+        if (next != null) {
+          moveToHome(next);
+        } else if (!current.get(PositionHandler.PROPERTY).isEnd()) {
+          next = current;
+          moveToEnd(next);
+        }
+        break;
+      case NEXT_EDITABLE:
+        next = nextEditable(current);
+        if (next != null) {
+          moveToHome(next);
+        } else if (!current.get(PositionHandler.PROPERTY).isEnd()) {
+          next = current;
+          moveToEnd(next);
+        }
+        break;
+      case LEFT:
+        next = prevFocusable(current);
         moveToEnd(next);
-      }
-    } else if (event.is(KeyStrokeSpecs.NEXT_EDITABLE)) {
-      next = next(current, EDITABLE);
-      if (next != null) {
+        break;
+      case PREV_WORD:
+        next = prevFocusable(current);
         moveToHome(next);
-      } else if (!current.get(PositionHandler.PROPERTY).isEnd()) {
-        next = current;
-        moveToEnd(next);
-      }
-    } else if (event.is(Key.LEFT)) {
-      next = prevFocusable(current);
-      moveToEnd(next);
-    } else if (event.is(KeyStrokeSpecs.PREV_WORD)) {
-      next = prevFocusable(current);
-      moveToHome(next);
-    } else if (event.is(KeyStrokeSpecs.PREV_EDITABLE)) {
-      next = prev(current, EDITABLE);
-      moveToHome(next);
-    } else if (event.is(Key.UP)) {
-      next = WITH_BOUNDS.upperFocusable(current, currentOffset);
-      restoreOffset = true;
-    } else if (event.is(Key.DOWN)) {
-      next = WITH_BOUNDS.lowerFocusable(current, currentOffset);
-      restoreOffset = true;
-    } else if (event.is(Key.PAGE_UP)) {
-      next = new PageUpDown(current, currentOffset, visibleRect.dimension.y) {
-        @Override
-        protected Cell next(Cell current, int offset) {
-          return WITH_BOUNDS.upperFocusable(current, offset);
+        break;
+      case PREV_EDITABLE:
+        next = prevEditable(current);
+        moveToHome(next);
+        break;
+      case UP:
+        if (myLineIndex.prepare(current)) {
+          next = myLineIndex.upper(current, currentOffset);
+        } else {
+          next = WITH_BOUNDS.upperFocusable(current, currentOffset);
         }
-      }.execute();
-      restoreOffset = true;
-    } else if (event.is(Key.PAGE_DOWN)) {
-      next = new PageUpDown(current, currentOffset, visibleRect.dimension.y) {
-        @Override
-        protected Cell next(Cell current, int offset) {
-          return WITH_BOUNDS.lowerFocusable(current, offset);
+        restoreOffset = true;
+        break;
+      case DOWN:
+        if (myLineIndex.prepare(current)) {
+          next = myLineIndex.lower(current, currentOffset);
+        } else {
+          next = WITH_BOUNDS.lowerFocusable(current, currentOffset);
         }
-      }.execute();
-      restoreOffset = true;
-    } else if (event.is(KeyStrokeSpecs.HOME)) {
-      next = WITH_BOUNDS.homeElement(current);
-      moveToHome(next);
-    } else if (event.is(KeyStrokeSpecs.END)) {
-      next = WITH_BOUNDS.endElement(current);
-      moveToEnd(next);
-    } else if (event.is(KeyStrokeSpecs.FILE_HOME)) {
-      next = Composites.firstFocusable(cell, true);
-      moveToHome(next);
-    } else if (event.is(KeyStrokeSpecs.FILE_END)) {
-      next = Composites.lastFocusable(cell, true);
-      moveToEnd(next);
-    } else if (event.is(KeyStrokeSpecs.SELECT_UP)) {
-      Cell focusableParent = Composites.focusableParent(current);
-      if (focusableParent != null) {
-        mySelectionStack.push(current);
-        next = focusableParent;
-        myStackResetEnabled.set(false);
+        restoreOffset = true;
+        break;
+      case PAGE_UP: {
+        Rectangle visibleRect = current.getContainer().visibleRect();
+        if (myLineIndex.prepare(current)) {
+          next = myLineIndex.pageUp(current, currentOffset, visibleRect.dimension.y);
+        } else {
+          next = new PageUpDown(current, currentOffset, visibleRect.dimension.y) {
+            @Override
+            protected Cell next(Cell current, int offset) {
+              return WITH_BOUNDS.upperFocusable(current, offset);
+            }
+          }.execute();
+        }
+        restoreOffset = true;
+        break;
       }
-    } else if (event.is(KeyStrokeSpecs.SELECT_DOWN)) {
-      if (mySelectionStack.isEmpty()) {
-        next = Composites.firstFocusable(current, false);
-      } else {
-        next = mySelectionStack.pop();
+      case PAGE_DOWN: {
+        Rectangle visibleRect = current.getContainer().visibleRect();
+        if (myLineIndex.prepare(current)) {
+          next = myLineIndex.pageDown(current, currentOffset, visibleRect.dimension.y);
+        } else {
+          next = new PageUpDown(current, currentOffset, visibleRect.dimension.y) {
+            @Override
+            protected Cell next(Cell current, int offset) {
+              return WITH_BOUNDS.lowerFocusable(current, offset);
+            }
+          }.execute();
+        }
+        restoreOffset = true;
+        break;
       }
-      myStackResetEnabled.set(false);
-    } else if (event.is(KeyStrokeSpecs.MATCHING_CONSTRUCTS) && current.get(PAIR_CELL) != null) {
-      next = current.get(PAIR_CELL);
-      if (Composites.isBefore(next, current)) {
+      case HOME:
+        next = WITH_BOUNDS.homeElement(current);
         moveToHome(next);
-      } else {
+        break;
+      case END:
+        next = WITH_BOUNDS.endElement(current);
         moveToEnd(next);
-      }
-      restoreOffset = false;
+        break;
+      case FILE_HOME:
+        next = myFocusOrder.prepare(current) ? myFocusOrder.first() : Composites.firstFocusable(cell, true);
+        moveToHome(next);
+        break;
+      case FILE_END:
+        next = myFocusOrder.prepare(current) ? myFocusOrder.last() : Composites.lastFocusable(cell, true);
+        moveToEnd(next);
+        break;
+      case SELECT_UP:
+        Cell focusableParent = Composites.focusableParent(current);
+        if (focusableParent != null) {
+          mySelectionStack.push(current);
+          next = focusableParent;
+          myStackResetEnabled.set(false);
+        }
+        break;
+      case SELECT_DOWN:
+        if (mySelectionStack.isEmpty()) {
+          next = Composites.firstFocusable(current, false);
+        } else {
+          next = mySelectionStack.pop();
+        }
+        myStackResetEnabled.set(false);
+        break;
+      case MATCHING_CONSTRUCT:
+        next = current.get(PAIR_CELL);
+        if (next == null) break;
+        if (Composites.isBefore(next, current)) {
+          moveToHome(next);
+        } else {
+          moveToEnd(next);
+        }
+        break;
     }
 
     if (next != null) {
@@ -377,4 +460,15 @@ public class CellNavigationController {
       }
     }
   }
-}
\ No newline at end of file
+
+  private enum Navigation {
+    RIGHT, NEXT_WORD, NEXT_EDITABLE, LEFT, PREV_WORD, PREV_EDITABLE,
+    UP, DOWN, PAGE_UP, PAGE_DOWN,
+    HOME, END, FILE_HOME, FILE_END,
+    SELECT_UP, SELECT_DOWN, MATCHING_CONSTRUCT;
+
+    boolean isVertical() {
+      return this == UP || this == DOWN || this == PAGE_UP || this == PAGE_DOWN;
+    }
+  }
+}
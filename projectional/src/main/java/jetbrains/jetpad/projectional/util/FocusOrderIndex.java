@@ -0,0 +1,327 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.projectional.util;
+
+import com.google.common.base.Predicate;
+import jetbrains.jetpad.base.Registration;
+import jetbrains.jetpad.cell.Cell;
+import jetbrains.jetpad.cell.CellContainer;
+import jetbrains.jetpad.cell.CellContainerAdapter;
+import jetbrains.jetpad.cell.CellPropertySpec;
+import jetbrains.jetpad.cell.util.ImplicitTreap;
+import jetbrains.jetpad.model.collections.CollectionItemEvent;
+import jetbrains.jetpad.model.property.PropertyChangeEvent;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Focusable visible cells of a container in navigation order, so that next/previous focusable cell
+ * of an indexed cell is found without walking non-focusable cells between them. A focusable cell is in the order
+ * if none of its descendants is, the same way {@link jetbrains.jetpad.model.composite.Composites#nextFocusable}
+ * steps over the ancestors of the cell it starts from.
+ *
+ * Every cell under the root has an entry, and the entries of a cell's children are kept in an {@link ImplicitTreap}
+ * which counts the indexed cells in their subtrees, as well as the indexed cells matching the filter. So a position
+ * lookup, getting the cell at a position and finding the closest matching cell cost O(log n) per level of the tree,
+ * and a change in the tree only updates the entries of the added or removed subtree and the counts on the path to
+ * the root. The index is built when it's used for the first time.
+ *
+ * The filter is applied when a cell is indexed and when its focusability or visibility changes. Cells found by
+ * {@link #nextMatching(Cell)} and {@link #prevMatching(Cell)} are checked with the filter again, so a cell which
+ * stopped matching without a notification is skipped, but one which started matching won't be found until it's
+ * indexed again.
+ */
+class FocusOrderIndex {
+  private final CellContainer myContainer;
+  private final Predicate<Cell> myFilter;
+
+  private Map<Cell, Entry> myEntries;
+  private Entry myRoot;
+  private int myVersion;
+
+  FocusOrderIndex(CellContainer container, Predicate<Cell> filter) {
+    myContainer = container;
+    myFilter = filter;
+  }
+
+  Registration install() {
+    return myContainer.addListener(new CellContainerAdapter() {
+      @Override
+      public void onCellPropertyChanged(Cell cell, CellPropertySpec<?> prop, PropertyChangeEvent<?> change) {
+        if (prop == Cell.FOCUSABLE || prop == Cell.VISIBLE) {
+          Entry entry = entry(cell);
+          if (entry == null) return;
+          entry.read(myFilter);
+          myVersion++;
+          update(entry);
+        }
+      }
+
+      @Override
+      public void onChildAdded(Cell parent, CollectionItemEvent<? extends Cell> change) {
+        Entry entry = entry(parent);
+        if (entry == null) return;
+        Entry child = index(change.getNewItem());
+        child.owner = entry;
+        entry.children().insert(change.getIndex(), child);
+        myVersion++;
+        update(entry);
+      }
+
+      @Override
+      public void onChildRemoved(Cell parent, CollectionItemEvent<? extends Cell> change) {
+        Entry entry = entry(parent);
+        if (entry == null) return;
+        forget(entry.children().remove(change.getIndex()));
+        myVersion++;
+        update(entry);
+      }
+    });
+  }
+
+  /**
+   * @return whether the cell is in the index
+   */
+  boolean prepare(Cell cell) {
+    if (myEntries == null) {
+      myEntries = new IdentityHashMap<>();
+      myRoot = index(myContainer.root);
+    }
+    return position(cell) != -1;
+  }
+
+  /**
+   * Number of changes of the order. Positions of cells are valid while the version doesn't change.
+   */
+  int version() {
+    return myVersion;
+  }
+
+  int size() {
+    return myRoot.ownCount;
+  }
+
+  Cell get(int position) {
+    return find(position, false);
+  }
+
+  int position(Cell cell) {
+    Entry entry = entry(cell);
+    if (entry == null || !entry.isIndexed()) return -1;
+    return before(entry, false);
+  }
+
+  Cell first() {
+    return size() == 0 ? null : get(0);
+  }
+
+  Cell last() {
+    return size() == 0 ? null : get(size() - 1);
+  }
+
+  Cell next(Cell cell) {
+    int position = position(cell) + 1;
+    return position < size() ? get(position) : null;
+  }
+
+  Cell prev(Cell cell) {
+    int position = position(cell) - 1;
+    return position >= 0 ? get(position) : null;
+  }
+
+  /**
+   * @return the closest cell after the indexed cell which matches the filter
+   */
+  Cell nextMatching(Cell cell) {
+    Entry entry = entry(cell);
+    while (true) {
+      int rank = before(entry, true) + entry.ownMatching;
+      if (rank >= myRoot.ownMatching) return null;
+      Cell result = find(rank, true);
+      if (myFilter.apply(result)) return result;
+      rematch(result);
+    }
+  }
+
+  Cell prevMatching(Cell cell) {
+    Entry entry = entry(cell);
+    while (true) {
+      int rank = before(entry, true) - 1;
+      if (rank < 0) return null;
+      Cell result = find(rank, true);
+      if (myFilter.apply(result)) return result;
+      rematch(result);
+    }
+  }
+
+  private Entry entry(Cell cell) {
+    return myEntries == null ? null : myEntries.get(cell);
+  }
+
+  private Entry index(Cell cell) {
+    Entry entry = new Entry(cell);
+    entry.read(myFilter);
+    myEntries.put(cell, entry);
+    List<Cell> children = cell.children();
+    for (int i = 0; i < children.size(); i++) {
+      Entry child = index(children.get(i));
+      child.owner = entry;
+      entry.children().insert(i, child);
+    }
+    entry.recount();
+    return entry;
+  }
+
+  private void forget(Entry node) {
+    if (node == null) return;
+    myEntries.remove(node.cell);
+    if (node.children != null) {
+      forget(node.children.root());
+    }
+    forget(node.left());
+    forget(node.right());
+  }
+
+  private void rematch(Cell cell) {
+    Entry entry = entry(cell);
+    entry.read(myFilter);
+    update(entry);
+  }
+
+  private void update(Entry entry) {
+    Entry current = entry;
+    while (current.recount() && current.owner != null) {
+      current.owner.children.updated(current);
+      current = current.owner;
+    }
+  }
+
+  /**
+   * @return the number of indexed (or matching) cells before the entry's cell, or -1 if it's under an invisible cell
+   */
+  private int before(Entry entry, boolean matching) {
+    int result = 0;
+    for (Entry current = entry; current.owner != null; current = current.owner) {
+      if (!current.owner.visible) return -1;
+      Entry node = current;
+      result += total(node.left(), matching);
+      for (; node.parent() != null; node = node.parent()) {
+        if (node == node.parent().right()) {
+          result += total(node.parent().left(), matching) + own(node.parent(), matching);
+        }
+      }
+    }
+    return result;
+  }
+
+  private Cell find(int position, boolean matching) {
+    Entry entry = myRoot;
+    int remaining = position;
+    while (entry.children != null && total(entry.children.root(), false) > 0) {
+      Entry node = entry.children.root();
+      while (true) {
+        int left = total(node.left(), matching);
+        if (remaining < left) {
+          node = node.left();
+          continue;
+        }
+        remaining -= left;
+        int own = own(node, matching);
+        if (remaining < own) break;
+        remaining -= own;
+        node = node.right();
+      }
+      entry = node;
+    }
+    return entry.cell;
+  }
+
+  private static int total(Entry node, boolean matching) {
+    if (node == null) return 0;
+    return matching ? node.matchingCount : node.count;
+  }
+
+  private static int own(Entry node, boolean matching) {
+    return matching ? node.ownMatching : node.ownCount;
+  }
+
+  private static class Entry extends ImplicitTreap.Node<Entry> {
+    private final Cell cell;
+    private ImplicitTreap<Entry> children;
+    private Entry owner;
+
+    private boolean visible;
+    private boolean focusable;
+    private boolean matching;
+
+    private int ownCount;
+    private int ownMatching;
+    private int count;
+    private int matchingCount;
+
+    private Entry(Cell cell) {
+      this.cell = cell;
+    }
+
+    private ImplicitTreap<Entry> children() {
+      if (children == null) {
+        children = new ImplicitTreap<>();
+      }
+      return children;
+    }
+
+    private void read(Predicate<Cell> filter) {
+      visible = cell.visible().get();
+      focusable = cell.focusable().get();
+      matching = focusable && filter.apply(cell);
+    }
+
+    private boolean isIndexed() {
+      return visible && focusable && total(children == null ? null : children.root(), false) == 0;
+    }
+
+    /**
+     * Recomputes the numbers of indexed and matching cells in the cell's subtree
+     * @return whether they changed
+     */
+    private boolean recount() {
+      int newCount = 0;
+      int newMatching = 0;
+      if (visible) {
+        Entry root = children == null ? null : children.root();
+        if (total(root, false) > 0) {
+          newCount = root.count;
+          newMatching = root.matchingCount;
+        } else if (focusable) {
+          newCount = 1;
+          newMatching = matching ? 1 : 0;
+        }
+      }
+      if (newCount == ownCount && newMatching == ownMatching) return false;
+      ownCount = newCount;
+      ownMatching = newMatching;
+      return true;
+    }
+
+    @Override
+    protected void update() {
+      count = ownCount + total(left(), false) + total(right(), false);
+      matchingCount = ownMatching + total(left(), true) + total(right(), true);
+    }
+  }
+}
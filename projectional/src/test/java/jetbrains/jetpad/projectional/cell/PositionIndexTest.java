@@ -0,0 +1,124 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.projectional.cell;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PositionIndexTest {
+  private PositionIndex<String> myIndex = new PositionIndex<>();
+
+  @Test
+  public void positionsShiftAfterInsert() {
+    String a = "a";
+    String b = "b";
+    String c = "c";
+    myIndex.add(0, a);
+    myIndex.add(1, c);
+    assertEquals(1, myIndex.indexOf(c));
+
+    myIndex.add(1, b);
+
+    assertEquals(0, myIndex.indexOf(a));
+    assertEquals(1, myIndex.indexOf(b));
+    assertEquals(2, myIndex.indexOf(c));
+  }
+
+  @Test
+  public void positionsShiftAfterRemove() {
+    String a = "a";
+    String b = "b";
+    String c = "c";
+    myIndex.add(0, a);
+    myIndex.add(1, b);
+    myIndex.add(2, c);
+    assertEquals(2, myIndex.indexOf(c));
+
+    myIndex.remove(1);
+
+    assertEquals(-1, myIndex.indexOf(b));
+    assertEquals(1, myIndex.indexOf(c));
+    assertEquals(0, myIndex.indexOf(a));
+  }
+
+  @Test
+  public void identitySemantics() {
+    String a = new String("a");
+    myIndex.add(0, a);
+
+    assertEquals(-1, myIndex.indexOf(new String("a")));
+  }
+
+  @Test
+  public void duplicates() {
+    String a = "a";
+    String b = "b";
+    myIndex.add(0, a);
+    myIndex.add(1, b);
+    myIndex.add(2, a);
+
+    assertEquals(0, myIndex.indexOf(a));
+
+    myIndex.remove(0);
+
+    assertEquals(0, myIndex.indexOf(b));
+    assertEquals(1, myIndex.indexOf(a));
+  }
+
+  @Test
+  public void removingDuplicateKeepsOtherOccurrences() {
+    String a = "a";
+    String b = "b";
+    myIndex.add(0, a);
+    myIndex.add(1, b);
+    myIndex.add(2, a);
+    myIndex.add(3, b);
+
+    myIndex.remove(2);
+
+    assertEquals(0, myIndex.indexOf(a));
+    assertEquals(1, myIndex.indexOf(b));
+
+    myIndex.remove(0);
+
+    assertEquals(-1, myIndex.indexOf(a));
+    assertEquals(0, myIndex.indexOf(b));
+  }
+
+  @Test
+  public void frontEdits() {
+    String[] elements = new String[1000];
+    for (int i = 0; i < elements.length; i++) {
+      elements[i] = "e" + i;
+      myIndex.add(0, elements[i]);
+    }
+    myIndex.add(0, elements[0]);
+    myIndex.remove(1);
+
+    assertEquals(elements.length, myIndex.size());
+    assertEquals(0, myIndex.indexOf(elements[0]));
+    assertEquals(1, myIndex.indexOf(elements[elements.length - 2]));
+    assertEquals(elements.length - 2, myIndex.indexOf(elements[1]));
+    assertEquals(elements[0], myIndex.get(0));
+    assertEquals(elements[1], myIndex.get(elements.length - 2));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void addOutOfBounds() {
+    myIndex.add(1, "a");
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.projectional.cell;
+
+import com.google.common.base.Functions;
+import jetbrains.jetpad.cell.Cell;
+import jetbrains.jetpad.cell.CellContainer;
+import jetbrains.jetpad.cell.TextCell;
+import jetbrains.jetpad.cell.VerticalCell;
+import jetbrains.jetpad.event.ClipboardContent;
+import jetbrains.jetpad.event.ContentKind;
+import jetbrains.jetpad.event.ContentKinds;
+import jetbrains.jetpad.event.Key;
+import jetbrains.jetpad.event.KeyEvent;
+import jetbrains.jetpad.event.PasteEvent;
+import jetbrains.jetpad.mapper.Mapper;
+import jetbrains.jetpad.mapper.MapperFactory;
+import jetbrains.jetpad.model.collections.list.ObservableArrayList;
+import jetbrains.jetpad.model.collections.list.ObservableList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures pasting 10k items into a projectional list and deleting them as one selection.
+ */
+public class ProjectionalListPasteBenchmark {
+  private static final ContentKind<List<Item>> ITEMS = ContentKinds.create("items");
+  private static final int PASTED = 10000;
+  private static final int ROUNDS = 10;
+
+  public static void main(String[] args) {
+    ObservableList<Item> items = new ObservableArrayList<>();
+    items.add(new Item());
+
+    CellContainer container = new CellContainer();
+    ListMapper mapper = new ListMapper(items);
+    mapper.attachRoot();
+    container.root.children().add(mapper.getTarget());
+
+    for (int i = 0; i < ROUNDS; i++) {
+      Item first = items.get(0);
+      mapper.getDescendantMapper(first).getTarget().focus();
+
+      long pasteStart = System.nanoTime();
+      container.paste(new PasteEvent(createContent()));
+      long pasteEnd = System.nanoTime();
+
+      mapper.getDescendantMapper(items.get(1)).getTarget().focus();
+      mapper.mySynchronizer.select(items.get(1), items.get(items.size() - 1));
+      long deleteStart = System.nanoTime();
+      container.keyPressed(new KeyEvent(Key.DELETE));
+      long deleteEnd = System.nanoTime();
+
+      System.out.println("paste " + PASTED + " items: " + (pasteEnd - pasteStart) / 1000000 + " ms, "
+          + "delete " + PASTED + " items: " + (deleteEnd - deleteStart) / 1000000 + " ms, "
+          + "items left: " + items.size());
+    }
+
+    container.root.children().clear();
+    mapper.detachRoot();
+  }
+
+  private static ClipboardContent createContent() {
+    final List<Item> pasted = new ArrayList<>();
+    for (int i = 0; i < PASTED; i++) {
+      pasted.add(new Item());
+    }
+    return new ClipboardContent() {
+      @Override
+      public boolean isSupported(ContentKind<?> kind) {
+        return kind == ITEMS;
+      }
+
+      @Override
+      public <T> T get(ContentKind<T> kind) {
+        return (T) pasted;
+      }
+    };
+  }
+
+  private static class Item {
+  }
+
+  private static class ListMapper extends Mapper<ObservableList<Item>, VerticalCell> {
+    private ProjectionalRoleSynchronizer<Object, Item> mySynchronizer;
+
+    ListMapper(ObservableList<Item> source) {
+      super(source, new VerticalCell());
+    }
+
+    @Override
+    protected void registerSynchronizers(SynchronizersConfiguration conf) {
+      super.registerSynchronizers(conf);
+      mySynchronizer = ProjectionalSynchronizers.<Object, Item>forRole(this, getSource(), getTarget(),
+          new MapperFactory<Item, Cell>() {
+            @Override
+            public Mapper<? extends Item, ? extends Cell> createMapper(Item source) {
+              return new ItemMapper(source);
+            }
+          });
+      mySynchronizer.supportListContentKind(ITEMS, Functions.<List<Item>>identity());
+      conf.add(mySynchronizer);
+    }
+  }
+
+  private static class ItemMapper extends Mapper<Item, TextCell> {
+    ItemMapper(Item source) {
+      super(source, new TextCell("item"));
+      getTarget().focusable().set(true);
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.projectional.cell;
+
+import jetbrains.jetpad.cell.Cell;
+import jetbrains.jetpad.cell.CellContainer;
+import jetbrains.jetpad.cell.TextCell;
+import jetbrains.jetpad.cell.VerticalCell;
+import jetbrains.jetpad.event.Key;
+import jetbrains.jetpad.event.KeyEvent;
+import jetbrains.jetpad.mapper.Mapper;
+import jetbrains.jetpad.mapper.MapperFactory;
+import jetbrains.jetpad.model.collections.list.ObservableArrayList;
+import jetbrains.jetpad.model.collections.list.ObservableList;
+
+import java.util.Random;
+
+/**
+ * Measures selecting and deleting ranges in a projectional list of 100k items.
+ */
+public class ProjectionalListSelectionBenchmark {
+  private static final int ITEMS = 100000;
+  private static final int RANGE = 50;
+  private static final int ROUNDS = 1000;
+
+  public static void main(String[] args) {
+    for (int i = 0; i < 3; i++) {
+      run();
+    }
+  }
+
+  private static void run() {
+    ObservableList<Item> items = new ObservableArrayList<>();
+    for (int i = 0; i < ITEMS; i++) {
+      items.add(new Item());
+    }
+
+    CellContainer container = new CellContainer();
+    long start = System.nanoTime();
+    ListMapper mapper = new ListMapper(items);
+    mapper.attachRoot();
+    container.root.children().add(mapper.getTarget());
+    long mapped = System.nanoTime();
+
+    Random random = new Random(239);
+    long selectTime = 0;
+    long deleteTime = 0;
+    for (int i = 0; i < ROUNDS; i++) {
+      int from = random.nextInt(items.size() - RANGE);
+      Item first = items.get(from);
+      Item last = items.get(from + RANGE - 1);
+
+      long selectStart = System.nanoTime();
+      mapper.getDescendantMapper(last).getTarget().focus();
+      mapper.mySynchronizer.select(first, last);
+      long deleteStart = System.nanoTime();
+      container.keyPressed(new KeyEvent(Key.DELETE));
+      long deleteEnd = System.nanoTime();
+
+      selectTime += deleteStart - selectStart;
+      deleteTime += deleteEnd - deleteStart;
+    }
+
+    System.out.println("mapping " + ITEMS + " items: " + (mapped - start) / 1000000 + " ms, "
+        + ROUNDS + " selections: " + selectTime / 1000000 + " ms, "
+        + ROUNDS + " range deletions: " + deleteTime / 1000000 + " ms, "
+        + "items left: " + items.size());
+
+    container.root.children().clear();
+    mapper.detachRoot();
+  }
+
+  private static class Item {
+  }
+
+  private static class ListMapper extends Mapper<ObservableList<Item>, VerticalCell> {
+    private ProjectionalRoleSynchronizer<Object, Item> mySynchronizer;
+
+    ListMapper(ObservableList<Item> source) {
+      super(source, new VerticalCell());
+    }
+
+    @Override
+    protected void registerSynchronizers(SynchronizersConfiguration conf) {
+      super.registerSynchronizers(conf);
+      mySynchronizer = ProjectionalSynchronizers.<Object, Item>forRole(this, getSource(), getTarget(),
+          new MapperFactory<Item, Cell>() {
+            @Override
+            public Mapper<? extends Item, ? extends Cell> createMapper(Item source) {
+              return new ItemMapper(source);
+            }
+          });
+      conf.add(mySynchronizer);
+    }
+  }
+
+  private static class ItemMapper extends Mapper<Item, TextCell> {
+    ItemMapper(Item source) {
+      super(source, new TextCell("item"));
+      getTarget().focusable().set(true);
+    }
+  }
+}
@@ -807,6 +807,57 @@ public class ProjectionalListSynchronizerTest extends EditingTestCase {
     assertEquals(Arrays.<Child>asList(c3), container.children);
   }
 
+  @Test
+  public void selectionDeleteAll() {
+    for (int i = 0; i < 3; i++) {
+      container.children.add(new NonEmptyChild());
+    }
+    getChild(1).focus();
+    rootMapper.mySynchronizer.select(container.children.get(0), container.children.get(2));
+
+    del();
+
+    assertTrue(container.children.isEmpty());
+    assertEquals(1, rootMapper.getTarget().container.children().size());
+    assertNotNull(myCellContainer.focusedCell.get());
+  }
+
+  @Test
+  public void selectionRangeHighlight() {
+    for (int i = 0; i < 5; i++) {
+      container.children.add(new NonEmptyChild());
+    }
+    getChild(2).focus();
+
+    rootMapper.mySynchronizer.select(container.children.get(1), container.children.get(3));
+    assertSelected(container.children.get(1), container.children.get(2), container.children.get(3));
+    assertHighlighted(false, true, true, true, false);
+
+    rootMapper.mySynchronizer.select(container.children.get(2), container.children.get(4));
+    assertHighlighted(false, false, true, true, true);
+
+    container.children.add(3, new NonEmptyChild());
+    assertSelected(container.children.get(2), container.children.get(3), container.children.get(4), container.children.get(5));
+    assertHighlighted(false, false, true, true, true, true);
+  }
+
+  @Test
+  public void selectionAnchorRemoved() {
+    for (int i = 0; i < 5; i++) {
+      container.children.add(new NonEmptyChild());
+    }
+    getChild(2).focus();
+    rootMapper.mySynchronizer.select(container.children.get(1), container.children.get(3));
+
+    container.children.remove(1);
+    assertSelected(container.children.get(1), container.children.get(2));
+    assertHighlighted(false, true, true, false);
+
+    container.children.remove(2);
+    assertSelected(container.children.get(1));
+    assertHighlighted(false, true, false);
+  }
+
 
   @Test
   public void selectAfterInDecoratedChild() {
@@ -922,6 +973,30 @@ public class ProjectionalListSynchronizerTest extends EditingTestCase {
     assertEquals(4, container.children.size());
   }
 
+  @Test
+  public void pasteMultipleInTheMiddle() {
+    add3Items();
+    selectChild(0);
+
+    press(KeyStrokeSpecs.SELECT_AFTER);
+    press(KeyStrokeSpecs.SELECT_AFTER);
+    press(KeyStrokeSpecs.COPY);
+    selectLast(1);
+    press(KeyStrokeSpecs.PASTE);
+
+    assertEquals(5, container.children.size());
+    Cell parent = getChild(0).getParent();
+    int prevIndex = -1;
+    for (int i = 0; i < container.children.size(); i++) {
+      Cell cell = getChild(i);
+      assertSame(parent, cell.getParent());
+      assertSame(myCellContainer, cell.getContainer());
+      int index = parent.children().indexOf(cell);
+      assertTrue(index > prevIndex);
+      prevIndex = index;
+    }
+  }
+
   @Test
   public void copyWithItemToTextSupport() {
     rootMapper.mySynchronizer.supportContentToString(itemToString);
@@ -1265,6 +1340,14 @@ public class ProjectionalListSynchronizerTest extends EditingTestCase {
     assertEquals(Arrays.asList(expected), rootMapper.mySynchronizer.getSelectedItems());
   }
 
+  private void assertHighlighted(Boolean... expected) {
+    List<Boolean> actual = new ArrayList<>();
+    for (int i = 0; i < container.children.size(); i++) {
+      actual.add(getChild(i).selected().get());
+    }
+    assertEquals(Arrays.asList(expected), actual);
+  }
+
   private Cell getChild(int index) {
     Child child = container.children.get(index);
     return (Cell) rootMapper.getDescendantMapper(child).getTarget();
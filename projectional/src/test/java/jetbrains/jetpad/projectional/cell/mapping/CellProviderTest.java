@@ -23,6 +23,8 @@ import jetbrains.jetpad.cell.VerticalCell;
 import jetbrains.jetpad.mapper.*;
 import jetbrains.jetpad.model.collections.list.ObservableCollections;
 import jetbrains.jetpad.model.composite.HasParent;
+import jetbrains.jetpad.model.property.ValueProperty;
+import jetbrains.jetpad.projectional.cell.ProjectionalSynchronizers;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -90,6 +92,133 @@ public class CellProviderTest {
     assertEquals(Arrays.asList("c", "d", "e"), filteredSource);
   }
 
+  @Test
+  public void toCellMapping() {
+    Object token = new Object();
+    Cell root = new VerticalCell();
+    LabelMapper mapper = new LabelMapper(token, root);
+    MappingContext ctx = new MappingContext();
+    mapper.attachRoot(ctx);
+    CellProvider labelProvider = CellProvider.fromMapper(mapper);
+
+    assertSame(token, labelProvider.getSource(mapper.label));
+    assertSame(mapper.getSource(), labelProvider.getSource(root));
+    assertEquals(Arrays.asList(mapper.label), labelProvider.getCellsOnPath(Arrays.asList(token, mapper.getSource())));
+
+    mapper.detachRoot();
+  }
+
+  @Test
+  public void descendantMappingOfCellOutsideItsTarget() {
+    Object token = new Object();
+    OuterMapper mapper = new OuterMapper(token);
+    mapper.attachRoot(new MappingContext());
+    CellProvider outerProvider = CellProvider.fromMapper(mapper);
+
+    assertSame(mapper.getSource(), outerProvider.getSource(mapper.label));
+    assertTrue(outerProvider.getCells(token).isEmpty());
+
+    mapper.detachRoot();
+  }
+
+  private static class OuterMapper extends Mapper<Object, Cell> {
+    private final TextCell label = new TextCell();
+    private final Cell slot = new HorizontalCell();
+    private final Object myToken;
+
+    OuterMapper(Object token) {
+      super(new Object(), new VerticalCell());
+      myToken = token;
+      getTarget().children().addAll(Arrays.asList(label, slot));
+    }
+
+    @Override
+    protected void registerSynchronizers(SynchronizersConfiguration conf) {
+      conf.add(ProjectionalSynchronizers.forSingleRole(this, new ValueProperty<>(new Object()), slot,
+          new MapperFactory<Object, Cell>() {
+            @Override
+            public Mapper<?, ? extends Cell> createMapper(Object source) {
+              return new LabelOwnerMapper(source, label, myToken);
+            }
+          }));
+    }
+  }
+
+  /**
+   * Maps a cell which isn't inside its own target.
+   */
+  private static class LabelOwnerMapper extends Mapper<Object, Cell> {
+    private final Cell myLabel;
+    private final Object myToken;
+
+    LabelOwnerMapper(Object source, Cell label, Object token) {
+      super(source, new TextCell());
+      myLabel = label;
+      myToken = token;
+    }
+
+    @Override
+    protected void registerSynchronizers(SynchronizersConfiguration conf) {
+      conf.add(new LabelSynchronizer());
+    }
+
+    private class LabelSynchronizer implements Synchronizer, ToCellMapping {
+      @Override
+      public void attach(SynchronizerContext ctx) {
+      }
+
+      @Override
+      public void detach() {
+      }
+
+      @Override
+      public List<Cell> getCells(Object source) {
+        return source == myToken ? Collections.singletonList(myLabel) : Collections.<Cell>emptyList();
+      }
+
+      @Override
+      public Object getSource(Cell cell) {
+        return cell == myLabel ? myToken : null;
+      }
+    }
+  }
+
+  private static class LabelMapper extends Mapper<Object, Cell> {
+    private final TextCell label = new TextCell();
+    private final Object myToken;
+
+    LabelMapper(Object token, Cell target) {
+      super(new Object(), target);
+      myToken = token;
+      target.children().add(label);
+    }
+
+    @Override
+    protected void registerSynchronizers(SynchronizersConfiguration conf) {
+      conf.add(new LabelSynchronizer());
+    }
+
+    private class LabelSynchronizer implements Synchronizer, ToCellMapping {
+      @Override
+      public void attach(SynchronizerContext ctx) {
+      }
+
+      @Override
+      public void detach() {
+      }
+
+      @Override
+      public List<Cell> getCells(Object source) {
+        return source == myToken ? Collections.<Cell>singletonList(label) : Collections.<Cell>emptyList();
+      }
+
+      @Override
+      public Object getSource(Cell cell) {
+        return cell == label ? myToken : null;
+      }
+    }
+  }
+
   private static class RootMapper extends Mapper<List<List<String>>, Cell> {
     public RootMapper(List<List<String>> source, Cell target) {
       super(source, target);
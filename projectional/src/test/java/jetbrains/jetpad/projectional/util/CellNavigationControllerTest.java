@@ -26,6 +26,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -138,6 +139,72 @@ public class CellNavigationControllerTest extends EditingTestCase {
     assertFocused(c11);
   }
 
+  @Test
+  public void rightAfterStructureChange() {
+    c11.focus();
+    right();
+    left();
+    right();
+
+    TextCell inserted = view(true);
+    c1.children().add(3, inserted);
+    layout();
+    c11.focus();
+
+    right();
+    assertFocused(c13);
+    right();
+    assertFocused(inserted);
+  }
+
+  @Test
+  public void downInTwoColumns() {
+    TextCell a1 = editable("abcdef");
+    TextCell a2 = editable("abcdefabcdef");
+    TextCell a3 = editable("a");
+    TextCell b1 = editable("abcdef");
+    TextCell b2 = editable("abcdef");
+    twoColumns(Arrays.asList(a1, a2, a3), Arrays.asList(b1, b2));
+    a2.focus();
+    a2.get(PositionHandler.PROPERTY).end();
+
+    down();
+
+    assertFocused(a3);
+  }
+
+  @Test
+  public void upInTwoColumns() {
+    TextCell a1 = editable("abcdef");
+    TextCell a2 = editable("abcdef");
+    TextCell a3 = editable("abcdef");
+    TextCell b1 = editable("a");
+    TextCell b2 = editable("abcdefabcdef");
+    twoColumns(Arrays.asList(a1, a2, a3), Arrays.asList(b1, b2));
+    b2.focus();
+    b2.get(PositionHandler.PROPERTY).end();
+
+    up();
+
+    assertFocused(b1);
+  }
+
+  @Test
+  public void downAfterStructureChange() {
+    c2.focus();
+    down();
+    up();
+
+    TextCell inserted = view(true);
+    ((Cell) c2.getParent()).children().add(2, inserted);
+    layout();
+    c2.focus();
+
+    down();
+
+    assertFocused(inserted);
+  }
+
   @Test
   public void upDownDoesntChangeAnything() {
     c13.focus();
@@ -242,6 +309,21 @@ public class CellNavigationControllerTest extends EditingTestCase {
     assertTrue(c42.isEnd());
   }
 
+  @Test
+  public void nextEditableAfterStructureChange() {
+    c11.focus();
+    tab();
+    assertFocused(c41);
+
+    TextCell inserted = editable();
+    c1.children().add(inserted);
+    layout();
+    c11.focus();
+    tab();
+
+    assertFocused(inserted);
+  }
+
   @Test
   public void nextEditableSkipsInvisible() {
     c41.visible().set(false);
@@ -391,12 +473,26 @@ public class CellNavigationControllerTest extends EditingTestCase {
   }
 
   private TextCell editable() {
+    return editable("abcdef");
+  }
+
+  private TextCell editable(String text) {
     TextCell result = new TextCell();
-    result.text().set("abcdef");
+    result.text().set(text);
     result.addTrait(TextEditing.textEditing());
     return result;
   }
 
+  private void twoColumns(List<? extends Cell> left, List<? extends Cell> right) {
+    VerticalCell leftColumn = new VerticalCell();
+    leftColumn.children().addAll(left);
+    VerticalCell rightColumn = new VerticalCell();
+    rightColumn.children().addAll(right);
+    myCellContainer.root.children().clear();
+    myCellContainer.root.children().add(CellFactory.horizontal(leftColumn, rightColumn));
+    layout();
+  }
+
   private TextCell navigable() {
     TextCell result = new TextCell();
     result.text().set("abcdef");
@@ -35,6 +35,7 @@ public class SvgNodeContainer {
   };
   private Listeners<SvgNodeContainerListener> myListeners = new Listeners<>();
   private SvgPlatformPeer myPeer;
+  private boolean myInTransaction;
 
   public SvgNodeContainer(SvgSvgElement root) {
     mySvgRoot.set(root);
@@ -56,6 +57,39 @@ public class SvgNodeContainer {
     return myListeners.add(l);
   }
 
+  public boolean isInTransaction() {
+    return myInTransaction;
+  }
+
+  /**
+   * Groups changes made by the runnable, so that listeners can apply them at once when the transaction finishes
+   * instead of reacting to each of them. Nested transactions are merged into the outermost one.
+   */
+  public void executeTransaction(Runnable r) {
+    if (myInTransaction) {
+      r.run();
+    } else {
+      myInTransaction = true;
+      myListeners.fire(new ListenerCaller<SvgNodeContainerListener>() {
+        @Override
+        public void call(SvgNodeContainerListener l) {
+          l.onBeforeTransaction();
+        }
+      });
+      try {
+        r.run();
+      } finally {
+        myInTransaction = false;
+        myListeners.fire(new ListenerCaller<SvgNodeContainerListener>() {
+          @Override
+          public void call(SvgNodeContainerListener l) {
+            l.onAfterTransaction();
+          }
+        });
+      }
+    }
+  }
+
   void attributeChanged(final SvgElement element, final SvgAttributeEvent<?> event) {
     myListeners.fire(new ListenerCaller<SvgNodeContainerListener>() {
       @Override
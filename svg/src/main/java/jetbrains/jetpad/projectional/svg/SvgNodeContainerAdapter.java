@@ -29,4 +29,12 @@ public class SvgNodeContainerAdapter implements SvgNodeContainerListener {
   @Override
   public void onNodeDetached(SvgNode element) {
   }
+
+  @Override
+  public void onBeforeTransaction() {
+  }
+
+  @Override
+  public void onAfterTransaction() {
+  }
 }
\ No newline at end of file
@@ -21,4 +21,6 @@ public interface SvgNodeContainerListener {
   void onAttributeSet(SvgElement element, SvgAttributeEvent<?> event);
   void onNodeAttached(SvgNode node);
   void onNodeDetached(SvgNode node);
+  void onBeforeTransaction();
+  void onAfterTransaction();
 }
\ No newline at end of file
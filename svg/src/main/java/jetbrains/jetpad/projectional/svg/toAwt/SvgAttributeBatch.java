@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.projectional.svg.toAwt;
+
+import org.w3c.dom.Element;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Coalesces attribute writes to the Batik DOM while a transaction is open. Each element gets only the last value
+ * written to each of its attributes, and all of them are applied in one pass when the transaction finishes,
+ * so the dynamic GVT bridge updates every graphics node once per transaction.
+ */
+class SvgAttributeBatch {
+  private final Map<Element, Map<String, String>> myPending = new LinkedHashMap<>();
+  private boolean myActive;
+
+  boolean isActive() {
+    return myActive;
+  }
+
+  void begin() {
+    myActive = true;
+  }
+
+  void setAttribute(Element element, String name, String value) {
+    if (!myActive) {
+      apply(element, name, value);
+      return;
+    }
+
+    Map<String, String> attributes = myPending.get(element);
+    if (attributes == null) {
+      attributes = new HashMap<>();
+      myPending.put(element, attributes);
+    }
+    attributes.put(name, value);
+  }
+
+  void flush() {
+    myActive = false;
+    applyPending();
+  }
+
+  /**
+   * Applies pending writes without finishing the batch, e.g. before the DOM is queried for geometry.
+   */
+  void applyPending() {
+    if (myPending.isEmpty()) return;
+
+    for (Map.Entry<Element, Map<String, String>> e : myPending.entrySet()) {
+      Element element = e.getKey();
+      for (Map.Entry<String, String> attr : e.getValue().entrySet()) {
+        apply(element, attr.getKey(), attr.getValue());
+      }
+    }
+    myPending.clear();
+  }
+
+  void discard(Element element) {
+    myPending.remove(element);
+  }
+
+  private void apply(Element element, String name, String value) {
+    if (value == null) {
+      element.removeAttribute(name);
+    } else {
+      element.setAttribute(name, value);
+    }
+  }
+}
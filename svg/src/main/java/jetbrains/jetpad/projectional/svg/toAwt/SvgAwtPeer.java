@@ -30,6 +30,7 @@ import java.util.Map;
 
 class SvgAwtPeer implements SvgPlatformPeer {
   private Map<SvgNode, Mapper<? extends SvgNode, ? extends Node>> myMappingMap = new HashMap<>();
+  private SvgAttributeBatch myAttributeBatch = new SvgAttributeBatch();
 
   private void ensureElementConsistency(SvgNode source, Node target) {
     if (source instanceof SvgElement && !(target instanceof SVGOMElement)) {
@@ -77,9 +78,14 @@ class SvgAwtPeer implements SvgPlatformPeer {
     myMappingMap.remove(source);
   }
 
+  SvgAttributeBatch attributeBatch() {
+    return myAttributeBatch;
+  }
+
   @Override
   public double getComputedTextLength(SvgTextContent node) {
     ensureSourceRegistered((SvgNode) node);
+    myAttributeBatch.applyPending();
 
     Node target = myMappingMap.get(node).getTarget();
     return ((SVGOMTextContentElement) target).getComputedTextLength();
@@ -87,6 +93,7 @@ class SvgAwtPeer implements SvgPlatformPeer {
 
   private DoubleVector transformCoordinates(SvgLocatable relative, DoubleVector point, boolean inverse) {
     ensureSourceRegistered((SvgNode) relative);
+    myAttributeBatch.applyPending();
 
     Node relativeTarget = myMappingMap.get(relative).getTarget();
     SVGMatrix matrix = ((SVGLocatable) relativeTarget).
@@ -112,6 +119,7 @@ class SvgAwtPeer implements SvgPlatformPeer {
   @Override
   public DoubleRectangle getBBox(SvgLocatable element) {
     ensureSourceRegistered((SvgNode) element);
+    myAttributeBatch.applyPending();
 
     Node target = myMappingMap.get(element).getTarget();
     SVGRect bBox = ((SVGLocatable) target).getBBox();
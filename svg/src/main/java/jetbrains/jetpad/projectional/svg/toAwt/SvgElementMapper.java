@@ -56,10 +56,8 @@ class SvgElementMapper<SourceT extends SvgElement, TargetT extends SVGOMElement>
         myReg = getSource().addListener(new SvgElementListener<Object>() {
           @Override
           public void onAttrSet(SvgAttributeEvent<Object> event) {
-            if (event.getNewValue() == null) {
-              getTarget().removeAttribute(event.getAttrSpec().toString());
-            }
-            getTarget().setAttribute(event.getAttrSpec().toString(), event.getNewValue().toString());
+            Object value = event.getNewValue();
+            getPeer().attributeBatch().setAttribute(getTarget(), event.getAttrSpec().toString(), value == null ? null : value.toString());
           }
         });
 
@@ -71,6 +69,7 @@ class SvgElementMapper<SourceT extends SvgElement, TargetT extends SVGOMElement>
       @Override
       public void detach() {
         myReg.remove();
+        getPeer().attributeBatch().discard(getTarget());
       }
     });
 
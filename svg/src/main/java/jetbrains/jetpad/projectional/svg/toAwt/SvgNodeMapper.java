@@ -32,6 +32,10 @@ class SvgNodeMapper<SourceT extends SvgNode, TargetT extends Node> extends Mappe
     myPeer = peer;
   }
 
+  SvgAwtPeer getPeer() {
+    return myPeer;
+  }
+
   @Override
   protected void registerSynchronizers(final Mapper.SynchronizersConfiguration conf) {
     super.registerSynchronizers(conf);
@@ -15,8 +15,10 @@
  */
 package jetbrains.jetpad.projectional.svg.toAwt;
 
+import jetbrains.jetpad.base.Registration;
 import jetbrains.jetpad.mapper.Mapper;
 import jetbrains.jetpad.mapper.MappingContext;
+import jetbrains.jetpad.projectional.svg.SvgNodeContainerAdapter;
 import jetbrains.jetpad.projectional.svg.SvgSvgElement;
 import org.apache.batik.dom.svg.SVGDOMImplementation;
 import org.apache.batik.dom.svg.SVGOMDocument;
@@ -32,6 +34,7 @@ public class SvgRootDocumentMapper extends Mapper<SvgSvgElement, SVGOMDocument>
 
   private SvgElementMapper<SvgSvgElement, SVGOMSVGElement> myRootMapper;
   private SvgAwtPeer myPeer;
+  private Registration myTransactionReg;
 
   public SvgRootDocumentMapper(SvgSvgElement source) {
     super(source, createDocument());
@@ -50,10 +53,30 @@ public class SvgRootDocumentMapper extends Mapper<SvgSvgElement, SVGOMDocument>
     myRootMapper = new SvgElementMapper<>(getSource(), (SVGOMSVGElement) getTarget().getDocumentElement(), getTarget(), myPeer);
     getTarget().getDocumentElement().setAttribute("shape-rendering", "geometricPrecision");
     myRootMapper.attachRoot();
+
+    final SvgAttributeBatch batch = myPeer.attributeBatch();
+    if (getSource().container().isInTransaction()) {
+      batch.begin();
+    }
+    myTransactionReg = getSource().container().addListener(new SvgNodeContainerAdapter() {
+      @Override
+      public void onBeforeTransaction() {
+        batch.begin();
+      }
+
+      @Override
+      public void onAfterTransaction() {
+        batch.flush();
+      }
+    });
   }
 
   @Override
   protected void onDetach() {
+    myTransactionReg.remove();
+    myTransactionReg = null;
+    myPeer.attributeBatch().flush();
+
     myRootMapper.detachRoot();
     myRootMapper = null;
 
@@ -147,6 +147,41 @@ public class SvgElementContainerTest {
     assertTrue(isAttributeSet.get());
   }
 
+  @Test
+  public void transactionEvents() {
+    final Value<Integer> before = new Value<>(0);
+    final Value<Integer> after = new Value<>(0);
+    container.addListener(new SvgNodeContainerAdapter() {
+      @Override
+      public void onBeforeTransaction() {
+        before.set(before.get() + 1);
+      }
+
+      @Override
+      public void onAfterTransaction() {
+        after.set(after.get() + 1);
+      }
+    });
+
+    container.executeTransaction(new Runnable() {
+      @Override
+      public void run() {
+        assertTrue(container.isInTransaction());
+        container.executeTransaction(new Runnable() {
+          @Override
+          public void run() {
+            root.setAttribute("attr", "value");
+          }
+        });
+        assertEquals(0, (int) after.get());
+      }
+    });
+
+    assertFalse(container.isInTransaction());
+    assertEquals(1, (int) before.get());
+    assertEquals(1, (int) after.get());
+  }
+
   private SvgNode newNode() {
     return new MySvgNode();
   }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.projectional.svg.toAwt;
+
+import jetbrains.jetpad.projectional.svg.SvgCircleElement;
+import jetbrains.jetpad.projectional.svg.SvgColor;
+import jetbrains.jetpad.projectional.svg.SvgNodeContainer;
+import jetbrains.jetpad.projectional.svg.SvgSvgElement;
+import org.apache.batik.bridge.BridgeContext;
+import org.apache.batik.bridge.GVTBuilder;
+import org.apache.batik.bridge.UserAgentAdapter;
+import org.apache.batik.gvt.GraphicsNode;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Time per frame of moving and recoloring 10k circles mapped to a dynamic Batik document,
+ * with each attribute write applied immediately and with writes batched in a transaction.
+ * Every frame writes each attribute twice, as data-driven code often does. Run with -Djava.awt.headless=true.
+ */
+public class SvgAttributeBatchBenchmark {
+  private static final int CIRCLES = 10000;
+  private static final int FRAMES = 20;
+  private static final int SIZE = 800;
+
+  public static void main(String[] args) {
+    SvgSvgElement root = new SvgSvgElement(SIZE, SIZE);
+    final SvgNodeContainer container = new SvgNodeContainer(root);
+    final List<SvgCircleElement> circles = new ArrayList<>();
+    for (int i = 0; i < CIRCLES; i++) {
+      SvgCircleElement circle = new SvgCircleElement(i % SIZE, i / SIZE * 10, 3);
+      circles.add(circle);
+      root.children().add(circle);
+    }
+
+    SvgRootDocumentMapper mapper = new SvgRootDocumentMapper(root);
+    mapper.attachRoot();
+    BridgeContext bridgeContext = new BridgeContext(new UserAgentAdapter());
+    bridgeContext.setDynamic(true);
+    GraphicsNode graphicsNode = new GVTBuilder().build(bridgeContext, mapper.getTarget());
+    BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+
+    for (int pass = 0; pass < 2; pass++) {
+      long immediate = 0;
+      long batched = 0;
+      for (int frame = 0; frame < FRAMES; frame++) {
+        final int offset = frame;
+
+        long start = System.nanoTime();
+        update(circles, offset);
+        paint(graphicsNode, image);
+        immediate += System.nanoTime() - start;
+
+        start = System.nanoTime();
+        container.executeTransaction(new Runnable() {
+          @Override
+          public void run() {
+            update(circles, offset + 1);
+          }
+        });
+        paint(graphicsNode, image);
+        batched += System.nanoTime() - start;
+      }
+      System.out.println("immediate: " + immediate / FRAMES / 1000000 + " ms/frame, "
+          + "batched: " + batched / FRAMES / 1000000 + " ms/frame");
+    }
+
+    mapper.detachRoot();
+    bridgeContext.dispose();
+  }
+
+  private static void update(List<SvgCircleElement> circles, int offset) {
+    for (int i = 0; i < circles.size(); i++) {
+      SvgCircleElement circle = circles.get(i);
+      circle.cx().set((double) ((i + offset) % SIZE));
+      circle.fill().set(SvgColor.BLACK);
+      circle.cx().set((double) ((i + offset + 1) % SIZE));
+      circle.fill().set((i + offset) % 2 == 0 ? SvgColor.RED : SvgColor.BLUE);
+    }
+  }
+
+  private static void paint(GraphicsNode graphicsNode, BufferedImage image) {
+    Graphics2D g = image.createGraphics();
+    try {
+      graphicsNode.paint(g);
+    } finally {
+      g.dispose();
+    }
+  }
+}
@@ -42,23 +42,41 @@ public class SvgView extends View {
       }
     });
     mySvgElementContainer.addListener(new SvgNodeContainerAdapter() {
+      private boolean myChanged;
+
       @Override
       public void onAttributeSet(SvgElement element, SvgAttributeEvent event) {
         if (element == root().get() &&
             (event.getAttrSpec().toString().equalsIgnoreCase("height") || (event.getAttrSpec().toString().equalsIgnoreCase("width")))) {
           invalidate();
         }
-        repaint();
+        changed();
       }
 
       @Override
       public void onNodeAttached(SvgNode node) {
-        repaint();
+        changed();
       }
 
       @Override
       public void onNodeDetached(SvgNode node) {
-        repaint();
+        changed();
+      }
+
+      @Override
+      public void onAfterTransaction() {
+        if (myChanged) {
+          myChanged = false;
+          repaint();
+        }
+      }
+
+      private void changed() {
+        if (mySvgElementContainer.isInTransaction()) {
+          myChanged = true;
+        } else {
+          repaint();
+        }
       }
     });
   }
@@ -67,6 +85,13 @@ public class SvgView extends View {
     return mySvgElementContainer;
   }
 
+  /**
+   * Runs svg changes as one update: renderers apply them together and the view is repainted once.
+   */
+  public void executeTransaction(Runnable r) {
+    mySvgElementContainer.executeTransaction(r);
+  }
+
   public Property<SvgSvgElement> root() {
     return getProp(SVG_ROOT);
   }
@@ -41,6 +41,11 @@ public class TextView extends View {
   public static final ViewPropertySpec<Boolean> SELECTION_VISIBLE = new ViewPropertySpec<>("selectionVisible", ViewPropertyKind.REPAINT, false);
   public static final ViewPropertySpec<Integer> SELECTION_START = new ViewPropertySpec<>("selectionStart", ViewPropertyKind.REPAINT, 0);
 
+  private int[] myPrefixWidths;
+  private String myMeasuredText;
+  private Font myMeasuredFont;
+  private ViewContainerPeer myMeasuredPeer;
+
   public TextView() {
   }
 
@@ -98,46 +103,82 @@ public class TextView extends View {
   }
 
   public int getCaretAt(int xOffset) {
-
     String text = this.text().get();
     if (text == null) return 0;
-    for (int i = 0; i < text.length(); i++) {
-      int width = (textWidth(text.substring(0, i)) + textWidth(text.substring(0, i + 1))) / 2;
-      if (width >= xOffset) return i;
+
+    int[] widths = prefixWidths();
+    int low = 0;
+    int high = text.length();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      int width = (widths[mid] + widths[mid + 1]) / 2;
+      if (width >= xOffset) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
     }
-    return text.length();
+    return low;
   }
 
-
   public int getCaretOffset(int caret) {
     if (container() == null) {
       throw new IllegalStateException();
     }
     if (text().get() == null) return 0;
-    return textWidth(text().get().substring(0, caret));
+    return prefixWidths()[caret];
   }
 
   @Override
   protected void doValidate(ValidationContext ctx) {
     super.doValidate(ctx);
-    String text = text().get();
-    Vector bounds = new Vector(textWidth(text) + 1, textHeight());
+    int[] widths = prefixWidths();
+    Vector bounds = new Vector(widths[widths.length - 1] + 1, textHeight());
     ctx.bounds(new Vector(bounds.x, bounds.y), textBaseLine());
   }
 
-  private int textWidth(String text) {
+  @Override
+  protected void onDetach() {
+    super.onDetach();
+    myPrefixWidths = null;
+    myMeasuredText = null;
+    myMeasuredFont = null;
+    myMeasuredPeer = null;
+  }
+
+  private int[] prefixWidths() {
     ViewContainerPeer peer = container().peer();
-    return peer.textWidth(font().get(), text);
+    String text = text().get();
+    if (text == null) {
+      text = "";
+    }
+    Font font = measuredFont();
+    if (myPrefixWidths == null || peer != myMeasuredPeer || !text.equals(myMeasuredText)) {
+      myPrefixWidths = peer.textPrefixWidths(font, text);
+      myMeasuredText = text;
+      myMeasuredPeer = peer;
+    }
+    return myPrefixWidths;
+  }
+
+  private Font measuredFont() {
+    Font font = myMeasuredFont;
+    if (font == null || !font.getFamily().equals(fontFamily().get()) || font.getSize() != fontSize().get()
+        || font.isBold() != bold().get() || font.isItalic() != italic().get()) {
+      myMeasuredFont = new Font(fontFamily().get(), fontSize().get(), bold().get(), italic().get());
+      myPrefixWidths = null;
+    }
+    return myMeasuredFont;
   }
 
   private int textHeight() {
     ViewContainerPeer peer = container().peer();
-    return peer.textHeight(font().get());
+    return peer.textHeight(measuredFont());
   }
 
   private int textBaseLine() {
     ViewContainerPeer peer = container().peer();
-    return peer.textBaseLine(font().get());
+    return peer.textBaseLine(measuredFont());
   }
 
   @Override
@@ -25,6 +25,7 @@ import jetbrains.jetpad.model.event.Listeners;
 import jetbrains.jetpad.base.Registration;
 import jetbrains.jetpad.model.property.Property;
 import jetbrains.jetpad.model.property.PropertyChangeEvent;
+import jetbrains.jetpad.model.property.ReadableProperty;
 import jetbrains.jetpad.model.property.ValueProperty;
 import jetbrains.jetpad.projectional.view.spi.NullViewContainerPeer;
 import jetbrains.jetpad.projectional.view.spi.ViewContainerPeer;
@@ -41,6 +42,7 @@ public class ViewContainer {
   private Listeners<ViewContainerListener> myListeners = new Listeners<>();
   private boolean myInCommand;
   private View myViewUnderMouse;
+  private ValueProperty<Rectangle> myVisibleArea = new ValueProperty<>();
 
   public ViewContainer() {
     myPeer.attach(this);
@@ -75,6 +77,18 @@ public class ViewContainer {
     return myPeer.visibleRect();
   }
 
+  /**
+   * Visible rectangle as last reported by the peer via {@link #visibleRectChanged()}, e.g. on scrolling.
+   * Listen to it to react to scrolling, use {@link #visibleRect()} to get the current value.
+   */
+  public ReadableProperty<Rectangle> visibleArea() {
+    return myVisibleArea;
+  }
+
+  public void visibleRectChanged() {
+    myVisibleArea.set(myPeer.visibleRect());
+  }
+
   public void setPeer(ViewContainerPeer peer) {
     myPeer.detach();
     myPeer = peer;
@@ -39,7 +39,7 @@ public class ViewPropertySpec<ValueT> {
     return myDefaultValue;
   }
 
-  ViewPropertyKind kind() {
+  public ViewPropertyKind kind() {
     return myKind;
   }
 
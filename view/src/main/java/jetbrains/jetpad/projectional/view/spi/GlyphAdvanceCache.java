@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.projectional.view.spi;
+
+import jetbrains.jetpad.values.Font;
+import jetbrains.jetpad.values.FontFamily;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-font cache of character advances which lets peers compute widths of all prefixes of a text
+ * with one measurement per distinct character instead of one per prefix.
+ * Printable ascii characters of monospaced fonts share a single measured advance.
+ * Widths are sums of single character advances, so kerning and ligatures aren't taken into account and for
+ * proportional fonts they may differ slightly from the width of the whole string.
+ */
+public abstract class GlyphAdvanceCache {
+  private static final char FIRST_PRINTABLE = 0x20;
+  private static final char LAST_ASCII = 0x7F;
+  private static final char MONOSPACE_SAMPLE = 'x';
+
+  private final Map<String, FontAdvances> myFonts = new HashMap<>();
+
+  public int[] prefixWidths(Font font, String text) {
+    FontAdvances advances = advances(font);
+    int[] result = new int[text.length() + 1];
+    double width = 0;
+    for (int i = 0; i < text.length(); i++) {
+      width += advances.get(text.charAt(i));
+      result[i + 1] = (int) width;
+    }
+    return result;
+  }
+
+  public void clear() {
+    myFonts.clear();
+  }
+
+  protected abstract double measure(Font font, char ch);
+
+  protected boolean isMonospaced(Font font) {
+    return font.getFamily() == FontFamily.MONOSPACED;
+  }
+
+  private FontAdvances advances(Font font) {
+    String key = font.getFamily() + ":" + font.getSize() + ":" + font.isBold() + ":" + font.isItalic();
+    FontAdvances result = myFonts.get(key);
+    if (result == null) {
+      result = new FontAdvances(font);
+      myFonts.put(key, result);
+    }
+    return result;
+  }
+
+  private class FontAdvances {
+    private final Font myFont;
+    private final double[] myAscii = new double[LAST_ASCII];
+    private Map<Character, Double> myOther;
+
+    FontAdvances(Font font) {
+      myFont = font;
+      Arrays.fill(myAscii, Double.NaN);
+      if (isMonospaced(font)) {
+        Arrays.fill(myAscii, FIRST_PRINTABLE, LAST_ASCII, measure(font, MONOSPACE_SAMPLE));
+      }
+    }
+
+    double get(char ch) {
+      if (ch < LAST_ASCII) {
+        double result = myAscii[ch];
+        if (Double.isNaN(result)) {
+          result = measure(myFont, ch);
+          myAscii[ch] = result;
+        }
+        return result;
+      }
+
+      if (myOther == null) {
+        myOther = new HashMap<>();
+      }
+      Double result = myOther.get(ch);
+      if (result == null) {
+        result = measure(myFont, ch);
+        myOther.put(ch, result);
+      }
+      return result;
+    }
+  }
+}
@@ -73,6 +73,15 @@ public class NullViewContainerPeer implements ViewContainerPeer {
     return text.length() * 5;
   }
 
+  @Override
+  public int[] textPrefixWidths(Font font, String text) {
+    int[] result = new int[text.length() + 1];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = i * 5;
+    }
+    return result;
+  }
+
   @Override
   public void requestFocus() {
   }
@@ -36,6 +36,7 @@ public interface ViewContainerPeer {
   int textHeight(Font font);
   int textBaseLine(Font font);
   int textWidth(Font font, String text);
+  int[] textPrefixWidths(Font font, String text);
 
   void requestFocus();
 
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.projectional.view.toAwt;
+
+public final class CacheStatistics {
+  private final int mySize;
+  private final long myHits;
+  private final long myMisses;
+  private final long myEvictions;
+
+  CacheStatistics(int size, long hits, long misses, long evictions) {
+    mySize = size;
+    myHits = hits;
+    myMisses = misses;
+    myEvictions = evictions;
+  }
+
+  public int size() {
+    return mySize;
+  }
+
+  public long hits() {
+    return myHits;
+  }
+
+  public long misses() {
+    return myMisses;
+  }
+
+  public long evictions() {
+    return myEvictions;
+  }
+
+  public double hitRate() {
+    long requests = myHits + myMisses;
+    return requests == 0 ? 0.0 : (double) myHits / requests;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStatistics(size=" + mySize + ", hits=" + myHits + ", misses=" + myMisses + ", evictions=" + myEvictions + ")";
+  }
+}
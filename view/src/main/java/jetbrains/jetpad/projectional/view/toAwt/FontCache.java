@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.projectional.view.toAwt;
+
+import jetbrains.jetpad.values.Font;
+import jetbrains.jetpad.values.FontFamily;
+
+import java.awt.FontMetrics;
+import java.awt.Toolkit;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * AWT fonts and their metrics keyed by family, size and style. The number of distinct fonts in an editor is small,
+ * so entries are never evicted.
+ */
+class FontCache {
+  private static final String MONOSPACED_FONT = java.awt.Font.MONOSPACED;
+
+  static String toFontName(FontFamily fontFamily) {
+    if (fontFamily == FontFamily.MONOSPACED) {
+      return MONOSPACED_FONT;
+    } else if (fontFamily == FontFamily.SERIF) {
+      return java.awt.Font.SERIF;
+    }
+    return fontFamily.toString();
+  }
+
+  private final Map<FontKey, Entry> myEntries = new HashMap<>();
+
+  private long myHits;
+  private long myMisses;
+
+  java.awt.Font getFont(FontFamily family, int size, boolean bold, boolean italic) {
+    return getEntry(family, size, bold, italic).font;
+  }
+
+  java.awt.Font getFont(Font font) {
+    return getFont(font.getFamily(), font.getSize(), font.isBold(), font.isItalic());
+  }
+
+  FontMetrics getFontMetrics(Font font) {
+    return getEntry(font.getFamily(), font.getSize(), font.isBold(), font.isItalic()).getMetrics();
+  }
+
+  CacheStatistics statistics() {
+    return new CacheStatistics(myEntries.size(), myHits, myMisses, 0);
+  }
+
+  private Entry getEntry(FontFamily family, int size, boolean bold, boolean italic) {
+    int style = java.awt.Font.PLAIN;
+    if (bold) {
+      style |= java.awt.Font.BOLD;
+    }
+    if (italic) {
+      style |= java.awt.Font.ITALIC;
+    }
+
+    FontKey key = new FontKey(toFontName(family), size, style);
+    Entry entry = myEntries.get(key);
+    if (entry != null) {
+      myHits++;
+      return entry;
+    }
+
+    myMisses++;
+    entry = new Entry(new java.awt.Font(key.myName, style, size));
+    myEntries.put(key, entry);
+    return entry;
+  }
+
+  private static class Entry {
+    final java.awt.Font font;
+    private FontMetrics myMetrics;
+
+    Entry(java.awt.Font font) {
+      this.font = font;
+    }
+
+    FontMetrics getMetrics() {
+      if (myMetrics == null) {
+        myMetrics = Toolkit.getDefaultToolkit().getFontMetrics(font);
+      }
+      return myMetrics;
+    }
+  }
+
+  private static class FontKey {
+    private final String myName;
+    private final int mySize;
+    private final int myStyle;
+
+    FontKey(String name, int size, int style) {
+      myName = name;
+      mySize = size;
+      myStyle = style;
+    }
+
+    @Override
+    public int hashCode() {
+      return (myName.hashCode() * 31 + mySize) * 31 + myStyle;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (!(obj instanceof FontKey)) return false;
+      FontKey other = (FontKey) obj;
+      return mySize == other.mySize && myStyle == other.myStyle && myName.equals(other.myName);
+    }
+  }
+}
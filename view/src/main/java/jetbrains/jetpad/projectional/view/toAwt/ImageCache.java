@@ -0,0 +1,150 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.projectional.view.toAwt;
+
+import jetbrains.jetpad.base.base64.Base64Coder;
+import jetbrains.jetpad.projectional.base.ImageData;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decoded images keyed by {@link ImageData} identity. Keys are held weakly, so an image which is no longer
+ * referenced from the view tree is dropped together with its data, and the number of entries is bounded
+ * with least-recently-used eviction.
+ */
+class ImageCache {
+  static final int DEFAULT_MAX_SIZE = 256;
+
+  private static final String PNG_PREFIX = "data:image/png;base64,";
+  private static final String JPG_PREFIX = "data:image/jpeg;base64,";
+
+  private final int myMaxSize;
+  private final ReferenceQueue<ImageData> myQueue = new ReferenceQueue<>();
+  private final Map<IdentityKey, BufferedImage> myImages;
+
+  private long myHits;
+  private long myMisses;
+  private long myEvictions;
+
+  ImageCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  ImageCache(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize = " + maxSize);
+    }
+    myMaxSize = maxSize;
+    myImages = new LinkedHashMap<IdentityKey, BufferedImage>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<IdentityKey, BufferedImage> eldest) {
+        if (size() > myMaxSize) {
+          myEvictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  BufferedImage get(ImageData data) {
+    expungeCollected();
+
+    IdentityKey key = new IdentityKey(data, null);
+    if (myImages.containsKey(key)) {
+      myHits++;
+      return myImages.get(key);
+    }
+
+    myMisses++;
+    BufferedImage image = decode(data);
+    myImages.put(new IdentityKey(data, myQueue), image);
+    return image;
+  }
+
+  void clear() {
+    myImages.clear();
+    while (myQueue.poll() != null) {
+    }
+  }
+
+  CacheStatistics statistics() {
+    expungeCollected();
+    return new CacheStatistics(myImages.size(), myHits, myMisses, myEvictions);
+  }
+
+  private void expungeCollected() {
+    Reference<? extends ImageData> ref;
+    while ((ref = myQueue.poll()) != null) {
+      myImages.remove(ref);
+    }
+  }
+
+  private static BufferedImage decode(ImageData imageData) {
+    try {
+      if (imageData instanceof ImageData.BinaryImageData) {
+        ImageData.BinaryImageData data = (ImageData.BinaryImageData) imageData;
+        return ImageIO.read(new ByteArrayInputStream(data.getData()));
+      }
+
+      String url = ((ImageData.UrlImageData) imageData).getUrl();
+      if (url.startsWith(PNG_PREFIX) || url.startsWith(JPG_PREFIX)) {
+        String base64;
+        if (url.startsWith(PNG_PREFIX)) {
+          base64 = url.substring(PNG_PREFIX.length());
+        } else {
+          base64 = url.substring(JPG_PREFIX.length());
+        }
+        byte[] data = Base64Coder.decodeBytes(base64);
+        return ImageIO.read(new ByteArrayInputStream(data));
+      }
+      return ImageIO.read(new URL(url));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static class IdentityKey extends WeakReference<ImageData> {
+    private final int myHash;
+
+    IdentityKey(ImageData referent, ReferenceQueue<ImageData> queue) {
+      super(referent, queue);
+      myHash = System.identityHashCode(referent);
+    }
+
+    @Override
+    public int hashCode() {
+      return myHash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (!(obj instanceof IdentityKey)) return false;
+      ImageData data = get();
+      return data != null && data == ((IdentityKey) obj).get();
+    }
+  }
+}
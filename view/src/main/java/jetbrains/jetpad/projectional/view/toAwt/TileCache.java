@@ -0,0 +1,190 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.projectional.view.toAwt;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Retained rasterization of a component split into fixed-size tiles. A tile is rendered once and then blitted
+ * until a rectangle intersecting it is invalidated. Tiles are evicted in least-recently-painted order, and
+ * images of evicted tiles are reused for new ones.
+ */
+class TileCache {
+  static final int TILE_SIZE = 256;
+  static final int DEFAULT_MAX_TILES = 96;
+
+  private final int myMaxTiles;
+  private final TileRenderer myRenderer;
+  private final Map<Long, Tile> myTiles = new HashMap<>();
+  private final List<BufferedImage> myFreeImages = new ArrayList<>();
+
+  private long myClock;
+  private long myHits;
+  private long myMisses;
+  private long myEvictions;
+
+  TileCache(TileRenderer renderer) {
+    this(DEFAULT_MAX_TILES, renderer);
+  }
+
+  TileCache(int maxTiles, TileRenderer renderer) {
+    if (maxTiles <= 0) {
+      throw new IllegalArgumentException("maxTiles = " + maxTiles);
+    }
+    myMaxTiles = maxTiles;
+    myRenderer = renderer;
+  }
+
+  void paint(Graphics2D g, Rectangle area) {
+    if (area.isEmpty()) return;
+
+    int firstX = Math.max(0, area.x) / TILE_SIZE;
+    int firstY = Math.max(0, area.y) / TILE_SIZE;
+    int lastX = (area.x + area.width - 1) / TILE_SIZE;
+    int lastY = (area.y + area.height - 1) / TILE_SIZE;
+
+    for (int ty = firstY; ty <= lastY; ty++) {
+      for (int tx = firstX; tx <= lastX; tx++) {
+        Tile tile = getTile(tx, ty);
+        g.drawImage(tile.image, tx * TILE_SIZE, ty * TILE_SIZE, null);
+      }
+    }
+  }
+
+  void invalidate(Rectangle rect) {
+    if (rect.isEmpty() || myTiles.isEmpty()) return;
+
+    int firstX = Math.max(0, rect.x) / TILE_SIZE;
+    int firstY = Math.max(0, rect.y) / TILE_SIZE;
+    int lastX = Math.max(0, rect.x + rect.width - 1) / TILE_SIZE;
+    int lastY = Math.max(0, rect.y + rect.height - 1) / TILE_SIZE;
+
+    if ((long) (lastX - firstX + 1) * (lastY - firstY + 1) > myTiles.size()) {
+      for (Map.Entry<Long, Tile> e : myTiles.entrySet()) {
+        long key = e.getKey();
+        int tx = (int) (key >> 32);
+        int ty = (int) key;
+        if (tx >= firstX && tx <= lastX && ty >= firstY && ty <= lastY) {
+          e.getValue().dirty = true;
+        }
+      }
+      return;
+    }
+
+    for (int ty = firstY; ty <= lastY; ty++) {
+      for (int tx = firstX; tx <= lastX; tx++) {
+        Tile tile = myTiles.get(key(tx, ty));
+        if (tile != null) {
+          tile.dirty = true;
+        }
+      }
+    }
+  }
+
+  void invalidateAll() {
+    for (Tile tile : myTiles.values()) {
+      tile.dirty = true;
+    }
+  }
+
+  void clear() {
+    myTiles.clear();
+    myFreeImages.clear();
+  }
+
+  CacheStatistics statistics() {
+    return new CacheStatistics(myTiles.size(), myHits, myMisses, myEvictions);
+  }
+
+  private Tile getTile(int tx, int ty) {
+    Long key = key(tx, ty);
+    Tile tile = myTiles.get(key);
+    if (tile != null && !tile.dirty) {
+      myHits++;
+      tile.lastUsed = ++myClock;
+      return tile;
+    }
+
+    myMisses++;
+    if (tile == null) {
+      if (myTiles.size() >= myMaxTiles) {
+        evictLeastRecentlyUsed();
+      }
+      tile = new Tile(allocateImage());
+      myTiles.put(key, tile);
+    }
+    tile.lastUsed = ++myClock;
+    render(tile, tx, ty);
+    return tile;
+  }
+
+  private void render(Tile tile, int tx, int ty) {
+    Graphics2D g = tile.image.createGraphics();
+    try {
+      g.translate(-tx * TILE_SIZE, -ty * TILE_SIZE);
+      Rectangle area = new Rectangle(tx * TILE_SIZE, ty * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+      g.clip(area);
+      myRenderer.render(g, area);
+    } finally {
+      g.dispose();
+    }
+    tile.dirty = false;
+  }
+
+  private void evictLeastRecentlyUsed() {
+    Map.Entry<Long, Tile> eldest = null;
+    for (Map.Entry<Long, Tile> e : myTiles.entrySet()) {
+      if (eldest == null || e.getValue().lastUsed < eldest.getValue().lastUsed) {
+        eldest = e;
+      }
+    }
+    if (eldest == null) return;
+    myTiles.remove(eldest.getKey());
+    myFreeImages.add(eldest.getValue().image);
+    myEvictions++;
+  }
+
+  private BufferedImage allocateImage() {
+    if (!myFreeImages.isEmpty()) {
+      return myFreeImages.remove(myFreeImages.size() - 1);
+    }
+    return new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+  }
+
+  private static Long key(int tx, int ty) {
+    return ((long) tx << 32) | (ty & 0xFFFFFFFFL);
+  }
+
+  interface TileRenderer {
+    void render(Graphics2D g, Rectangle area);
+  }
+
+  private static class Tile {
+    final BufferedImage image;
+    boolean dirty;
+    long lastUsed;
+
+    Tile(BufferedImage image) {
+      this.image = image;
+    }
+  }
+}
@@ -18,7 +18,6 @@ package jetbrains.jetpad.projectional.view.toAwt;
 import jetbrains.jetpad.base.Disposable;
 import jetbrains.jetpad.base.Handler;
 import jetbrains.jetpad.base.Registration;
-import jetbrains.jetpad.base.base64.Base64Coder;
 import jetbrains.jetpad.base.edt.AwtEventDispatchThread;
 import jetbrains.jetpad.base.edt.EventDispatchThread;
 import jetbrains.jetpad.event.*;
@@ -31,48 +30,39 @@ import jetbrains.jetpad.projectional.base.ImageData;
 import jetbrains.jetpad.projectional.svg.SvgSvgElement;
 import jetbrains.jetpad.projectional.svg.toAwt.SvgRootDocumentMapper;
 import jetbrains.jetpad.projectional.view.*;
+import jetbrains.jetpad.projectional.view.spi.GlyphAdvanceCache;
 import jetbrains.jetpad.projectional.view.spi.NullViewContainerPeer;
 import jetbrains.jetpad.projectional.view.spi.ViewContainerPeer;
 import jetbrains.jetpad.values.Color;
 import jetbrains.jetpad.values.Font;
-import jetbrains.jetpad.values.FontFamily;
 import org.apache.batik.bridge.BridgeContext;
 import org.apache.batik.bridge.GVTBuilder;
 import org.apache.batik.bridge.UserAgent;
 import org.apache.batik.bridge.UserAgentAdapter;
 import org.apache.batik.gvt.GraphicsNode;
+import org.apache.batik.gvt.UpdateTracker;
 import org.apache.batik.gvt.event.AWTEventDispatcher;
 import org.apache.batik.gvt.event.EventDispatcher;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.Timer;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import java.awt.*;
 import java.awt.datatransfer.*;
 import java.awt.event.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.net.URL;
 import java.util.*;
+import java.util.List;
 
 import static jetbrains.jetpad.projectional.view.toAwt.AwtConverters.toAwtColor;
 
 public class ViewContainerComponent extends JComponent implements Scrollable {
-  private static final String MONOSPACED_FONT = java.awt.Font.MONOSPACED;
-
-  private static String toFontName(FontFamily fontFamily) {
-    if (fontFamily == FontFamily.MONOSPACED) {
-      return MONOSPACED_FONT;
-    } else if (fontFamily == FontFamily.SERIF) {
-      return java.awt.Font.SERIF;
-    }
-    return fontFamily.toString();
-  }
-
   static final Color SELECTION_COLOR = Color.DARK_BLUE;
 
   private ViewContainer myContainer;
@@ -81,6 +71,7 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
   private Set<View> myMovedViews = new LinkedHashSet<>();
   private Set<jetbrains.jetpad.geometry.Rectangle> myDirtyAreas = new LinkedHashSet<>();
   private Set<View> myDirtyViews = new LinkedHashSet<>();
+  private Set<SvgView> myDirtySvgViews = new LinkedHashSet<>();
   private boolean myCaretVisible;
   private boolean myFocused;
   private Timer myTimer;
@@ -89,6 +80,30 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
   private MyViewContainerPeer myPeer = new MyViewContainerPeer();
 
   private Map<View, PaintHelper<? extends View>> myViewPaintHelpers = new HashMap<>();
+  private ImageCache myImageCache = new ImageCache();
+  private FontCache myFontCache = new FontCache();
+  private GlyphAdvanceCache myGlyphAdvances = new GlyphAdvanceCache() {
+    @Override
+    protected double measure(Font font, char ch) {
+      return getFontMetrics(font).charWidth(ch);
+    }
+  };
+  private TileCache myTileCache = new TileCache(new TileCache.TileRenderer() {
+    @Override
+    public void render(Graphics2D g, Rectangle area) {
+      g.setColor(toAwtColor(Color.WHITE));
+      g.fillRect(area.x, area.y, area.width, area.height);
+      paint(g, myContainer.root());
+    }
+  });
+  private boolean myTileCacheEnabled = true;
+  private ChangeListener myViewportListener = new ChangeListener() {
+    @Override
+    public void stateChanged(ChangeEvent e) {
+      if (myContainer == null) return;
+      myContainer.visibleRectChanged();
+    }
+  };
 
   public ViewContainerComponent() {
     setFocusable(true);
@@ -334,6 +349,22 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
   }
 
 
+  @Override
+  public void addNotify() {
+    super.addNotify();
+    if (getParent() instanceof JViewport) {
+      ((JViewport) getParent()).addChangeListener(myViewportListener);
+    }
+  }
+
+  @Override
+  public void removeNotify() {
+    if (getParent() instanceof JViewport) {
+      ((JViewport) getParent()).removeChangeListener(myViewportListener);
+    }
+    super.removeNotify();
+  }
+
   private void setCaretVisible(boolean visible) {
     if (myCaretVisible == visible) return;
 
@@ -356,12 +387,37 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
     return myContainer;
   }
 
+  public CacheStatistics imageCacheStatistics() {
+    return myImageCache.statistics();
+  }
+
+  public CacheStatistics fontCacheStatistics() {
+    return myFontCache.statistics();
+  }
+
+  public CacheStatistics tileCacheStatistics() {
+    return myTileCache.statistics();
+  }
+
+  public boolean isTileCacheEnabled() {
+    return myTileCacheEnabled;
+  }
+
+  public void setTileCacheEnabled(boolean enabled) {
+    if (myTileCacheEnabled == enabled) return;
+    myTileCacheEnabled = enabled;
+    myTileCache.clear();
+    repaint();
+  }
+
   public void container(ViewContainer container) {
     if (myContainer != null) {
       myContainer.setPeer(new NullViewContainerPeer());
       myContainerReg.remove();
       myTimer.stop();
       myContainerReg = null;
+      myImageCache.clear();
+      myTileCache.clear();
     }
 
     myContainer = container;
@@ -390,6 +446,11 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
         myContainer.addListener(new ViewContainerAdapter() {
           @Override
           public void onPropertySet(View view, ViewPropertySpec<?> prop, PropertyChangeEvent<?> event) {
+            if (prop == View.VISIBLE || prop.kind() == ViewPropertyKind.RELAYOUT) {
+              //these don't request repaint themselves, and retained tiles would keep the old content
+              repaint(view.bounds().get());
+            }
+
             if (view instanceof TextView && prop == TextView.CARET_VISIBLE) {
               TextView textView = (TextView) view;
               if (textView.caretVisible().get()) {
@@ -445,6 +506,7 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
       for (jetbrains.jetpad.geometry.Rectangle r : myDirtyAreas) {
         repaint(r);
       }
+      myDirtyAreas.clear();
       myMovedViews.clear();
     }
   }
@@ -461,30 +523,52 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
   protected void paintComponent(Graphics g) {
     super.paintComponent(g);
 
+    validateRoot();
+
+    Graphics2D g2 = (Graphics2D) g;
+    Rectangle clip = g2.getClipBounds();
+    if (myTileCacheEnabled && clip != null && isTranslationOnly(g2.getTransform())) {
+      myTileCache.paint(g2, clip);
+      return;
+    }
+
     g.setColor(toAwtColor(jetbrains.jetpad.values.Color.WHITE));
     g.fillRect(0, 0, getWidth(), getHeight());
 
-    myContainer.root().validate();
     paint(g, myContainer.root());
   }
 
+  private boolean isTranslationOnly(AffineTransform transform) {
+    //tiles are rasterized in device pixels of a non-scaled surface, scaled output would be blurred
+    return (transform.getType() & ~AffineTransform.TYPE_TRANSLATION) == 0;
+  }
+
   private void paint(Graphics graphics, View view) {
     if (!view.visible().get()) return;
-    Graphics2D g = (Graphics2D) graphics;
-    java.awt.Rectangle clip = g.getClipBounds();
+    java.awt.Rectangle clip = graphics.getClipBounds();
     jetbrains.jetpad.geometry.Rectangle bounds = view.bounds().get();
     if (clip != null) {
       jetbrains.jetpad.geometry.Rectangle rect = new jetbrains.jetpad.geometry.Rectangle(clip.x, clip.y, clip.width, clip.height);
 
       if (!rect.intersects(bounds)) return;
     }
-    g.clipRect(bounds.origin.x, bounds.origin.y, bounds.dimension.x, bounds.dimension.y);
 
+    Graphics2D g = (Graphics2D) graphics.create();
+    try {
+      g.clipRect(bounds.origin.x, bounds.origin.y, bounds.dimension.x, bounds.dimension.y);
 
-    paintContent(view, (Graphics2D) g.create());
+      Graphics2D contentGraphics = (Graphics2D) g.create();
+      try {
+        paintContent(view, contentGraphics);
+      } finally {
+        contentGraphics.dispose();
+      }
 
-    for (View child : view.children()) {
-      paint(g.create(), child);
+      for (View child : view.children()) {
+        paint(g, child);
+      }
+    } finally {
+      g.dispose();
     }
   }
 
@@ -516,14 +600,7 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
       String text = textView.text().get();
       Vector origin = bounds.origin;
 
-      java.awt.Font font = new java.awt.Font(toFontName(textView.fontFamily().get()), java.awt.Font.PLAIN, textView.fontSize().get());
-      if (textView.bold().get()) {
-        font = font.deriveFont(java.awt.Font.BOLD, font.getSize());
-      }
-      if (textView.italic().get()) {
-        font = font.deriveFont(java.awt.Font.ITALIC, font.getSize());
-      }
-      g.setFont(font);
+      g.setFont(myFontCache.getFont(textView.fontFamily().get(), textView.fontSize().get(), textView.bold().get(), textView.italic().get()));
 
       g.setColor(toAwtColor(textView.textColor().get()));
       g.drawString(text, origin.x, origin.y + textView.baseLine());
@@ -533,9 +610,9 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
         int end = textView.caretPosition().get();
 
         int left = Math.min(start, end);
-        int xLeft = xOffset(g, text, left);
+        int xLeft = textView.getCaretOffset(left);
         int right = Math.max(start, end);
-        int xRight = xOffset(g, text, right);
+        int xRight = textView.getCaretOffset(right);
         g.setColor(toAwtColor(SELECTION_COLOR));
         g.fillRect(origin.x + xLeft, origin.y, xRight - xLeft - 1, bounds.dimension.y - 1);
 
@@ -544,7 +621,7 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
       }
 
       if (textView.caretVisible().get() && myCaretVisible && myFocused) {
-        int xOffset = xOffset(g, text, textView.caretPosition().get());
+        int xOffset = textView.getCaretOffset(textView.caretPosition().get());
         g.drawLine(origin.x + xOffset, origin.y, origin.x + xOffset, origin.y + bounds.dimension.y - 1);
       }
     }
@@ -596,31 +673,7 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
       if (imageData instanceof ImageData.EmptyImageData) {
         //ignore
       } else if (imageData instanceof ImageData.BinaryImageData || imageData instanceof ImageData.UrlImageData) {
-        BufferedImage image;
-        try {
-          if (imageData instanceof ImageData.BinaryImageData) {
-            ImageData.BinaryImageData data = (ImageData.BinaryImageData) imageData;
-            image = ImageIO.read(new ByteArrayInputStream(data.getData()));
-          } else {
-            String url = ((ImageData.UrlImageData) imageData).getUrl();
-            String pngPrefix = "data:image/png;base64,";
-            String jpgPrefix = "data:image/jpeg;base64,";
-            if (url.startsWith(pngPrefix) || url.startsWith(jpgPrefix)) {
-              String base64;
-              if (url.startsWith(pngPrefix)) {
-                base64 = url.substring(pngPrefix.length());
-              } else {
-                base64 = url.substring(jpgPrefix.length());
-              }
-              byte[] data = Base64Coder.decodeBytes(base64);
-              image = ImageIO.read(new ByteArrayInputStream(data));
-            } else {
-              image = ImageIO.read(new URL(url));
-            }
-          }
-        } catch (IOException e) {
-          throw new RuntimeException(e);
-        }
+        BufferedImage image = myImageCache.get(imageData);
 
         g.drawImage(image, bounds.origin.x, bounds.origin.y, bounds.dimension.x, bounds.dimension.y, new ImageObserver() {
           @Override
@@ -689,19 +742,8 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
     }
   }
 
-  private int xOffset(Graphics g, String text, int pos) {
-    return Math.max(0, g.getFontMetrics().stringWidth(text.substring(0, pos)));
-  }
-
   private FontMetrics getFontMetrics(Font font) {
-    int style = java.awt.Font.PLAIN;
-    if (font.isBold()) {
-      style |= java.awt.Font.BOLD;
-    }
-    if (font.isItalic()) {
-      style |= java.awt.Font.ITALIC;
-    }
-    return Toolkit.getDefaultToolkit().getFontMetrics(new java.awt.Font(toFontName(font.getFamily()), style, font.getSize()));
+    return myFontCache.getFontMetrics(font);
   }
 
   @Override
@@ -733,10 +775,42 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
     return viewPort.getWidth() > getPreferredSize().width;
   }
 
+  private void repaintSvgViews() {
+    for (SvgView view : myDirtySvgViews) {
+      SvgPaintHelper helper = (SvgPaintHelper) myViewPaintHelpers.get(view);
+      if (helper == null) continue;
+
+      jetbrains.jetpad.geometry.Rectangle bounds = view.bounds().get();
+      List<Rectangle> dirtyAreas = helper.takeDirtyAreas();
+      if (dirtyAreas == null) {
+        repaint(bounds);
+        continue;
+      }
+      for (Rectangle area : dirtyAreas) {
+        jetbrains.jetpad.geometry.Rectangle rect = new jetbrains.jetpad.geometry.Rectangle(
+            bounds.origin.x + area.x, bounds.origin.y + area.y, area.width, area.height).intersect(bounds);
+        if (rect != null) {
+          repaint(rect);
+        }
+      }
+    }
+    myDirtySvgViews.clear();
+  }
+
   private void repaint(jetbrains.jetpad.geometry.Rectangle rect) {
     repaint(new Rectangle(rect.origin.x, rect.origin.y, rect.dimension.x, rect.dimension.y));
   }
 
+  @Override
+  public void repaint(long tm, int x, int y, int width, int height) {
+    //all repaint requests end up here, so tiles can't keep content which was requested to be repainted.
+    //the cache is null while the super constructor runs
+    if (myTileCache != null) {
+      myTileCache.invalidate(new Rectangle(x, y, width, height));
+    }
+    super.repaint(tm, x, y, width, height);
+  }
+
   @Override
   public boolean getScrollableTracksViewportHeight() {
     JViewport viewPort = (JViewport) getParent();
@@ -766,6 +840,20 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
     public void repaint(View view) {
       if (!view.visible().get()) return;
 
+      if (view instanceof SvgView && myViewPaintHelpers.containsKey(view)) {
+        //svg changes may still be pending in a transaction, so dirty areas are collected later
+        if (myDirtySvgViews.isEmpty()) {
+          SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+              repaintSvgViews();
+            }
+          });
+        }
+        myDirtySvgViews.add((SvgView) view);
+        return;
+      }
+
       if (myContainer.root().valid().get()) {
         ViewContainerComponent.this.repaint(view.bounds().get());
       } else {
@@ -824,6 +912,11 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
       return getFontMetrics(font).stringWidth(text);
     }
 
+    @Override
+    public int[] textPrefixWidths(Font font, String text) {
+      return myGlyphAdvances.prefixWidths(font, text);
+    }
+
     @Override
     public void requestFocus() {
       ViewContainerComponent.this.requestFocus();
@@ -848,6 +941,7 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
 
   private static class SvgPaintHelper implements PaintHelper<SvgView> {
     private GraphicsNode myGraphicsNode;
+    private UpdateTracker myUpdateTracker;
     private SvgRootDocumentMapper myMapper;
     private UserAgent myUserAgent;
     private BridgeContext myBridgeContext;
@@ -881,6 +975,8 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
 
       GVTBuilder builder = new GVTBuilder();
       myGraphicsNode = builder.build(myBridgeContext, myMapper.getTarget());
+      myUpdateTracker = new UpdateTracker();
+      myGraphicsNode.getRoot().addTreeGraphicsNodeChangeListener(myUpdateTracker);
 
       myUserAgent.getEventDispatcher().setRootNode(myGraphicsNode);
     }
@@ -891,6 +987,24 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
       myGraphicsNode.paint(g);
     }
 
+    /**
+     * Areas changed in the graphics tree since the last call, in view coordinates.
+     * Returns null if they are unknown and the whole view should be repainted.
+     */
+    List<Rectangle> takeDirtyAreas() {
+      if (myUpdateTracker == null || !myUpdateTracker.hasChanged()) return null;
+
+      List<Rectangle> result = new ArrayList<>();
+      for (Object area : myUpdateTracker.getDirtyAreas()) {
+        Rectangle bounds = ((Shape) area).getBounds();
+        //antialiasing touches pixels next to the shape
+        bounds.grow(1, 1);
+        result.add(bounds);
+      }
+      myUpdateTracker.clear();
+      return result;
+    }
+
     @Override
     public void update(SvgView view) {
       clear();
@@ -911,6 +1025,10 @@ public class ViewContainerComponent extends JComponent implements Scrollable {
       }
       myMapper = null;
       myBridgeContext.dispose();
+      if (myGraphicsNode != null) {
+        myGraphicsNode.getRoot().removeTreeGraphicsNodeChangeListener(myUpdateTracker);
+      }
+      myUpdateTracker = null;
       myGraphicsNode = null;
       myUserAgent.getEventDispatcher().setRootNode(null);
     }
@@ -54,6 +54,7 @@ import jetbrains.jetpad.projectional.view.TextView;
 import jetbrains.jetpad.projectional.view.View;
 import jetbrains.jetpad.projectional.view.ViewContainer;
 import jetbrains.jetpad.projectional.view.dom.DomView;
+import jetbrains.jetpad.projectional.view.spi.GlyphAdvanceCache;
 import jetbrains.jetpad.projectional.view.spi.NullViewContainerPeer;
 import jetbrains.jetpad.projectional.view.spi.ViewContainerPeer;
 import jetbrains.jetpad.values.Font;
@@ -108,6 +109,7 @@ public class ViewContainerToElementMapper extends Mapper<ViewContainer, Element>
       @Override
       public void onResize(ResizeEvent event) {
         update();
+        getSource().visibleRectChanged();
       }
     })));
 
@@ -115,6 +117,7 @@ public class ViewContainerToElementMapper extends Mapper<ViewContainer, Element>
       @Override
       public void onWindowScroll(Window.ScrollEvent event) {
         update();
+        getSource().visibleRectChanged();
       }
     })));
 
@@ -313,6 +316,16 @@ public class ViewContainerToElementMapper extends Mapper<ViewContainer, Element>
     final double fontWidth = metrics.dimension().x;
     final double fontHeight = metrics.dimension().y;
 
+    final GlyphAdvanceCache glyphAdvances = new GlyphAdvanceCache() {
+      @Override
+      protected double measure(Font font, char ch) {
+        if (font.equals(TextView.DEFAULT_FONT)) {
+          return fontWidth;
+        }
+        return TextMetricsCalculator.calculateApprox(font, String.valueOf(ch)).dimension().x;
+      }
+    };
+
     getSource().setPeer(new ViewContainerPeer() {
       private Registration myReg;
 
@@ -385,6 +398,11 @@ public class ViewContainerToElementMapper extends Mapper<ViewContainer, Element>
         }
       }
 
+      @Override
+      public int[] textPrefixWidths(Font font, String text) {
+        return glyphAdvances.prefixWidths(font, text);
+      }
+
       @Override
       public void requestFocus() {
         myRootDiv.focus();
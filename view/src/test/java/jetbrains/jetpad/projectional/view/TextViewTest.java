@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.projectional.view;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TextViewTest {
+  private ViewContainer container = new ViewContainer();
+  private TextView textView = new TextView("abcd");
+
+  @Before
+  public void init() {
+    container.contentRoot().children().add(textView);
+  }
+
+  @Test
+  public void caretAtStart() {
+    assertEquals(0, textView.getCaretAt(0));
+    assertEquals(0, textView.getCaretAt(2));
+  }
+
+  @Test
+  public void caretInTheMiddle() {
+    assertEquals(1, textView.getCaretAt(3));
+    assertEquals(1, textView.getCaretAt(7));
+    assertEquals(2, textView.getCaretAt(8));
+  }
+
+  @Test
+  public void caretAfterEnd() {
+    assertEquals(4, textView.getCaretAt(18));
+    assertEquals(4, textView.getCaretAt(100));
+  }
+
+  @Test
+  public void caretOffset() {
+    assertEquals(0, textView.getCaretOffset(0));
+    assertEquals(15, textView.getCaretOffset(3));
+  }
+
+  @Test
+  public void widthsUpdatedOnTextChange() {
+    textView.getCaretOffset(4);
+
+    textView.text().set("ab");
+
+    assertEquals(10, textView.getCaretOffset(2));
+    assertEquals(2, textView.getCaretAt(100));
+  }
+
+  @Test
+  public void validatedWidth() {
+    container.root().validate();
+
+    assertEquals(21, textView.bounds().get().dimension.x);
+  }
+}
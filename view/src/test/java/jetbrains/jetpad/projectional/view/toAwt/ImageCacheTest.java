@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.projectional.view.toAwt;
+
+import jetbrains.jetpad.geometry.Vector;
+import jetbrains.jetpad.projectional.base.ImageData;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+public class ImageCacheTest {
+  @Test
+  public void decodedImageIsReused() throws IOException {
+    ImageCache cache = new ImageCache();
+    ImageData data = createImage();
+
+    BufferedImage first = cache.get(data);
+    BufferedImage second = cache.get(data);
+
+    assertNotNull(first);
+    assertSame(first, second);
+    assertEquals(1, cache.statistics().hits());
+    assertEquals(1, cache.statistics().misses());
+  }
+
+  @Test
+  public void keysAreComparedByIdentity() throws IOException {
+    ImageCache cache = new ImageCache();
+
+    cache.get(createImage());
+    cache.get(createImage());
+
+    assertEquals(2, cache.statistics().misses());
+  }
+
+  @Test
+  public void leastRecentlyUsedIsEvicted() throws IOException {
+    ImageCache cache = new ImageCache(2);
+    ImageData first = createImage();
+    ImageData second = createImage();
+    ImageData third = createImage();
+
+    cache.get(first);
+    cache.get(second);
+    cache.get(first);
+    cache.get(third);
+
+    assertEquals(2, cache.statistics().size());
+    assertEquals(1, cache.statistics().evictions());
+
+    cache.get(first);
+    assertEquals(2, cache.statistics().hits());
+
+    cache.get(second);
+    assertEquals(4, cache.statistics().misses());
+  }
+
+  private ImageData createImage() throws IOException {
+    BufferedImage image = new BufferedImage(2, 2, BufferedImage.TYPE_INT_RGB);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(image, "png", out);
+    return ImageData.binaryData(new Vector(2, 2), out.toByteArray());
+  }
+}
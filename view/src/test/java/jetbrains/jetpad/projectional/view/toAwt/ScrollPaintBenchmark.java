@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.projectional.view.toAwt;
+
+import jetbrains.jetpad.projectional.view.TextView;
+import jetbrains.jetpad.projectional.view.VerticalView;
+import jetbrains.jetpad.projectional.view.ViewContainer;
+
+import javax.swing.SwingUtilities;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Headless measurement of frames per second while scrolling a 20k-line document back and forth,
+ * with and without the tile cache. Run with -Djava.awt.headless=true.
+ */
+public class ScrollPaintBenchmark {
+  private static final int LINES = 20000;
+  private static final int WIDTH = 800;
+  private static final int HEIGHT = 600;
+  private static final int SCROLL_STEP = 48;
+  private static final int FRAMES = 2000;
+
+  public static void main(String[] args) throws Exception {
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+        ViewContainer container = createDocument();
+        ViewContainerComponent component = new ViewContainerComponent();
+        component.container(container);
+        component.setSize(WIDTH, container.root().bounds().get().dimension.y);
+
+        BufferedImage screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+        component.setTileCacheEnabled(false);
+        scroll(component, screen);
+        System.out.println("without tile cache: " + scroll(component, screen) + " fps");
+
+        component.setTileCacheEnabled(true);
+        scroll(component, screen);
+        System.out.println("with tile cache: " + scroll(component, screen) + " fps");
+        System.out.println(component.tileCacheStatistics());
+
+        component.container(null);
+      }
+    });
+    System.exit(0);
+  }
+
+  private static ViewContainer createDocument() {
+    ViewContainer container = new ViewContainer();
+    VerticalView lines = new VerticalView();
+    for (int i = 0; i < LINES; i++) {
+      lines.children().add(new TextView("line " + i + ": the quick brown fox jumps over the lazy dog"));
+    }
+    container.contentRoot().children().add(lines);
+    container.root().validate();
+    return container;
+  }
+
+  private static long scroll(ViewContainerComponent component, BufferedImage screen) {
+    int maxOffset = component.getHeight() - HEIGHT;
+    int offset = 0;
+    int step = SCROLL_STEP;
+
+    long start = System.nanoTime();
+    for (int i = 0; i < FRAMES; i++) {
+      Graphics2D g = screen.createGraphics();
+      try {
+        g.translate(0, -offset);
+        g.setClip(0, offset, WIDTH, HEIGHT);
+        component.paintComponent(g);
+      } finally {
+        g.dispose();
+      }
+
+      if (offset + step < 0 || offset + step > maxOffset) {
+        step = -step;
+      }
+      offset += step;
+    }
+    long elapsed = System.nanoTime() - start;
+    return FRAMES * 1000000000L / elapsed;
+  }
+}
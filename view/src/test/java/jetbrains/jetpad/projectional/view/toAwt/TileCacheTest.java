@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012-2016 JetBrains s.r.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.jetpad.projectional.view.toAwt;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import static jetbrains.jetpad.projectional.view.toAwt.TileCache.TILE_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TileCacheTest {
+  private final List<Rectangle> myRendered = new ArrayList<>();
+  private final TileCache.TileRenderer myRenderer = new TileCache.TileRenderer() {
+    @Override
+    public void render(Graphics2D g, Rectangle area) {
+      myRendered.add(area);
+    }
+  };
+  private final BufferedImage myScreen = new BufferedImage(4 * TILE_SIZE, 4 * TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+  private final Graphics2D myGraphics = myScreen.createGraphics();
+
+  @After
+  public void dispose() {
+    myGraphics.dispose();
+  }
+
+  @Test
+  public void tileRenderedOnce() {
+    TileCache cache = new TileCache(myRenderer);
+
+    cache.paint(myGraphics, new Rectangle(0, 0, TILE_SIZE, TILE_SIZE));
+    cache.paint(myGraphics, new Rectangle(10, 10, 20, 20));
+
+    assertEquals(1, myRendered.size());
+    assertEquals(1, cache.statistics().hits());
+    assertEquals(1, cache.statistics().misses());
+  }
+
+  @Test
+  public void onlyInvalidatedTilesRerendered() {
+    TileCache cache = new TileCache(myRenderer);
+    cache.paint(myGraphics, new Rectangle(0, 0, 2 * TILE_SIZE, TILE_SIZE));
+    myRendered.clear();
+
+    cache.invalidate(new Rectangle(TILE_SIZE + 10, 10, 5, 5));
+    cache.paint(myGraphics, new Rectangle(0, 0, 2 * TILE_SIZE, TILE_SIZE));
+
+    assertEquals(1, myRendered.size());
+    assertEquals(new Rectangle(TILE_SIZE, 0, TILE_SIZE, TILE_SIZE), myRendered.get(0));
+  }
+
+  @Test
+  public void invalidationOnTileBorder() {
+    TileCache cache = new TileCache(myRenderer);
+    cache.paint(myGraphics, new Rectangle(0, 0, 2 * TILE_SIZE, 2 * TILE_SIZE));
+    myRendered.clear();
+
+    cache.invalidate(new Rectangle(TILE_SIZE - 1, TILE_SIZE - 1, 2, 2));
+    cache.paint(myGraphics, new Rectangle(0, 0, 2 * TILE_SIZE, 2 * TILE_SIZE));
+
+    assertEquals(4, myRendered.size());
+  }
+
+  @Test
+  public void invalidateAll() {
+    TileCache cache = new TileCache(myRenderer);
+    cache.paint(myGraphics, new Rectangle(0, 0, 2 * TILE_SIZE, TILE_SIZE));
+    myRendered.clear();
+
+    cache.invalidateAll();
+    cache.paint(myGraphics, new Rectangle(0, 0, 2 * TILE_SIZE, TILE_SIZE));
+
+    assertEquals(2, myRendered.size());
+  }
+
+  @Test
+  public void leastRecentlyPaintedTileEvicted() {
+    TileCache cache = new TileCache(2, myRenderer);
+    Rectangle first = new Rectangle(0, 0, TILE_SIZE, TILE_SIZE);
+    Rectangle second = new Rectangle(TILE_SIZE, 0, TILE_SIZE, TILE_SIZE);
+    Rectangle third = new Rectangle(2 * TILE_SIZE, 0, TILE_SIZE, TILE_SIZE);
+
+    cache.paint(myGraphics, first);
+    cache.paint(myGraphics, second);
+    cache.paint(myGraphics, first);
+    cache.paint(myGraphics, third);
+
+    assertEquals(2, cache.statistics().size());
+    assertEquals(1, cache.statistics().evictions());
+
+    myRendered.clear();
+    cache.paint(myGraphics, first);
+    assertTrue(myRendered.isEmpty());
+
+    cache.paint(myGraphics, second);
+    assertEquals(1, myRendered.size());
+  }
+
+  @Test
+  public void scrollReusesTiles() {
+    TileCache cache = new TileCache(myRenderer);
+    int height = TILE_SIZE + TILE_SIZE / 2;
+    cache.paint(myGraphics, new Rectangle(0, 0, TILE_SIZE, height));
+    assertEquals(2, myRendered.size());
+    myRendered.clear();
+
+    cache.paint(myGraphics, new Rectangle(0, TILE_SIZE / 4, TILE_SIZE, height));
+    assertTrue(myRendered.isEmpty());
+
+    cache.paint(myGraphics, new Rectangle(0, TILE_SIZE, TILE_SIZE, height));
+    assertEquals(1, myRendered.size());
+    assertEquals(new Rectangle(0, 2 * TILE_SIZE, TILE_SIZE, TILE_SIZE), myRendered.get(0));
+  }
+}